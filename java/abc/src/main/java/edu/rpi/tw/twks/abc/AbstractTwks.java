@@ -28,12 +28,14 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public abstract class AbstractTwks<TwksConfigurationT extends TwksConfiguration, TwksMetricsT extends AbstractTwksMetrics> implements Twks {
     private final static Logger logger = LoggerFactory.getLogger(AbstractTwks.class);
     private final TwksConfigurationT configuration;
+    private final Optional<IncrementalDumpJournal> incrementalDumpJournal;
     private final TwksMetricsT metrics;
     private final TwksObservers observers = new TwksObservers(this);
 
     protected AbstractTwks(final TwksConfigurationT configuration, final TwksMetricsT metrics) {
         this.configuration = checkNotNull(configuration);
         this.metrics = checkNotNull(metrics);
+        this.incrementalDumpJournal = configuration.getDumpIncremental() ? Optional.of(new IncrementalDumpJournal(configuration.getDumpDirectoryPath())) : Optional.empty();
 
         if (configuration.getGeoSparqlConfiguration().getEnable()) {
             GeoSPARQLConfig.setupMemoryIndex();
@@ -45,7 +47,7 @@ public abstract class AbstractTwks<TwksConfigurationT extends TwksConfiguration,
 
     @Override
     public final TwksTransaction beginTransaction(final ReadWrite readWrite) {
-        return new ObservingTwksTransaction(this, _beginTransaction(readWrite), observers);
+        return new ObservingTwksTransaction(this, _beginTransaction(readWrite), incrementalDumpJournal, observers);
     }
 
     @Override
@@ -80,6 +82,11 @@ public abstract class AbstractTwks<TwksConfigurationT extends TwksConfiguration,
 
     @Override
     public final void dump() throws IOException {
+        if (incrementalDumpJournal.isPresent()) {
+            incrementalDumpJournal.get().dump(() -> beginTransaction(ReadWrite.READ));
+            return;
+        }
+
         try (final TwksTransaction transaction = beginTransaction(ReadWrite.READ)) {
             transaction.dump();
         }
@@ -22,13 +22,18 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 public abstract class AbstractTwksTransaction<TwksT extends AbstractTwks<TwksConfigurationT, TwksMetricsT>, TwksConfigurationT extends TwksConfiguration, TwksMetricsT extends AbstractTwksMetrics> implements TwksTransaction {
-    private final static String GET_NANOPUBLICATION_DATASET_QUERY_STRING = "prefix np: <http://www.nanopub.org/nschema#>\n" +
-            "prefix : <%s>\n" +
+    // Bind ?np
+    private final static PreparedQuery GET_NANOPUBLICATION_DATASET_QUERY = new PreparedQuery("prefix np: <http://www.nanopub.org/nschema#>\n" +
             "select ?G ?S ?P ?O where {\n" +
-            "  {graph ?G {: a np:Nanopublication}} union\n" +
-            "  {graph ?H {: a np:Nanopublication {: np:hasAssertion ?G} union {: np:hasProvenance ?G} union {: np:hasPublicationInfo ?G}}}\n" +
+            "  {graph ?G {?np a np:Nanopublication}} union\n" +
+            "  {graph ?H {?np a np:Nanopublication {?np np:hasAssertion ?G} union {?np np:hasProvenance ?G} union {?np np:hasPublicationInfo ?G}}}\n" +
             "  graph ?G {?S ?P ?O}\n" +
-            "}";
+            "}");
+    private final static String GET_NANOPUBLICATION_URIS_QUERY_STRING = "prefix np: <http://www.nanopub.org/nschema#>\n" +
+            "select distinct ?np where {\n" +
+            "  graph ?H { ?np a np:Nanopublication }\n" +
+            "  filter(str(?np) > ?after)\n" +
+            "} order by str(?np)";
     private final static Query IS_EMPTY_QUERY = QueryFactory.create("SELECT (COUNT(?s) as ?count) WHERE { graph ?g { ?s ?p ?o } } LIMIT 1");
 
     private final static Logger logger = LoggerFactory.getLogger(AbstractTwksTransaction.class);
@@ -53,6 +58,12 @@ public abstract class AbstractTwksTransaction<TwksT extends AbstractTwks<TwksCon
             logger.info("created dump directory {}", dumpDirectoryPath);
         }
 
+        final int dumpShards = twks.getConfiguration().getDumpShards();
+        if (dumpShards > 0) {
+            new ShardedNanopublicationDumper(dumpDirectoryPath, dumpShards).dump(this::getNanopublications);
+            return;
+        }
+
         final Map<String, Uri> nanopublicationFileNames = new HashMap<>();
         getNanopublications(new NanopublicationConsumer() {
             @Override
@@ -84,6 +95,10 @@ public abstract class AbstractTwksTransaction<TwksT extends AbstractTwks<TwksCon
         });
     }
 
+    protected final TwksConfigurationT getConfiguration() {
+        return twks.getConfiguration();
+    }
+
     protected final TwksMetricsT getMetrics() {
         return twks.getMetrics();
     }
@@ -104,14 +119,35 @@ public abstract class AbstractTwksTransaction<TwksT extends AbstractTwks<TwksCon
         return Optional.of(nanopublications.get(0));
     }
 
-    protected final Dataset getNanopublicationDataset(final Uri uri) {
-        try (final QueryExecution queryExecution = queryNanopublications(QueryFactory.create(String.format(GET_NANOPUBLICATION_DATASET_QUERY_STRING, uri)))) {
+    protected Dataset getNanopublicationDataset(final Uri uri) {
+        try (final QueryExecution queryExecution = queryNanopublications(GET_NANOPUBLICATION_DATASET_QUERY.bind("np", uri))) {
             return MoreDatasetFactory.createDatasetFromResultSet(queryExecution.execSelect());
         }
     }
 
     protected abstract void getNanopublications(NanopublicationConsumer consumer);
 
+    /**
+     * Get a page of nanopublication URIs in URI order.
+     * <p>
+     * Every page filters and orders all of the nanopublications in the store, so implementations with an index should override this.
+     */
+    @Override
+    public ImmutableList<Uri> getNanopublicationUris(final Optional<Uri> afterNanopublicationUri, final int limit) {
+        final ParameterizedSparqlString queryString = new ParameterizedSparqlString(GET_NANOPUBLICATION_URIS_QUERY_STRING);
+        queryString.setLiteral("after", afterNanopublicationUri.map(Uri::toString).orElse(""));
+        final Query query = queryString.asQuery();
+        query.setLimit(limit);
+
+        final ImmutableList.Builder<Uri> resultBuilder = ImmutableList.builder();
+        try (final QueryExecution queryExecution = queryNanopublications(query)) {
+            for (final ResultSet resultSet = queryExecution.execSelect(); resultSet.hasNext(); ) {
+                resultBuilder.add(Uri.parse(resultSet.nextSolution().getResource("np").getURI()));
+            }
+        }
+        return resultBuilder.build();
+    }
+
     @Override
     public final TwksT getTwks() {
         return twks;
@@ -3,11 +3,21 @@ package edu.rpi.tw.twks.abc;
 import com.google.common.collect.ImmutableList;
 import edu.rpi.tw.twks.nanopub.DatasetTransaction;
 import edu.rpi.tw.twks.uri.Uri;
+import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.sparql.core.Quad;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.function.Predicate;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -50,6 +60,23 @@ public final class DatasetQuadStoreTransaction implements QuadStoreTransaction {
         return datasetTransaction;
     }
 
+    @Override
+    public final boolean containsStatement(final Statement statement, final Predicate<Uri> graphNameFilter) {
+        final Triple triple = statement.asTriple();
+        final Iterator<Quad> quads = dataset.asDatasetGraph().findNG(Node.ANY, triple.getSubject(), triple.getPredicate(), triple.getObject());
+        try {
+            while (quads.hasNext()) {
+                final Node graphName = quads.next().getGraph();
+                if (graphName.isURI() && graphNameFilter.test(Uri.parse(graphName.getURI()))) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            Iter.close(quads);
+        }
+    }
+
     @Override
     public final Model getNamedGraph(final Uri graphName) throws NoSuchNamedGraphException {
         // dataset.getNamedModel creates a graph if it doesn't exist, so we have to test separately.
@@ -64,11 +91,21 @@ public final class DatasetQuadStoreTransaction implements QuadStoreTransaction {
         return dataset.getNamedModel(graphName.toString());
     }
 
+    @Override
+    public final Model getUnionGraph(final Predicate<Uri> graphNameFilter, final Optional<Iterable<Uri>> graphNames) {
+        return ModelFactory.createModelForGraph(new FilteredUnionGraph(dataset.asDatasetGraph(), graphNameFilter, graphNames));
+    }
+
     @Override
     public final QueryExecution query(final Query query) {
         return QueryExecutionFactory.create(query, dataset);
     }
 
+    @Override
+    public final QueryExecution queryUnionGraph(final Query query, final Predicate<Uri> graphNameFilter, final Optional<Iterable<Uri>> graphNames) {
+        return QueryExecutionFactory.create(query, getUnionGraph(graphNameFilter, graphNames));
+    }
+
     @Override
     public final void removeAllGraphs() {
         final ImmutableList<String> datasetNames = ImmutableList.copyOf(dataset.listNames());
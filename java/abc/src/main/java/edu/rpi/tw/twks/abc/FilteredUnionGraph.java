@@ -0,0 +1,75 @@
+package edu.rpi.tw.twks.abc;
+
+import edu.rpi.tw.twks.uri.Uri;
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.WrappedIterator;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Read-only union of the named graphs in a DatasetGraph whose names are accepted by a filter.
+ * <p>
+ * Finds go straight to the DatasetGraph's quad indices and skip quads in other graphs, so the union is never copied.
+ * A find that matches every statement goes through the accepted graph names instead, if they're given, rather than every quad in the store.
+ * <p>
+ * A statement in several accepted graphs is only returned from the one with the lowest name, so duplicates are dropped without remembering the statements returned so far.
+ */
+final class FilteredUnionGraph extends GraphBase {
+    private final DatasetGraph datasetGraph;
+    private final Predicate<Uri> graphNameFilter;
+    private final Optional<Iterable<Uri>> graphNames;
+
+    FilteredUnionGraph(final DatasetGraph datasetGraph, final Predicate<Uri> graphNameFilter, final Optional<Iterable<Uri>> graphNames) {
+        this.datasetGraph = checkNotNull(datasetGraph);
+        this.graphNameFilter = checkNotNull(graphNameFilter);
+        this.graphNames = checkNotNull(graphNames);
+    }
+
+    private boolean acceptGraphName(final Node graphName) {
+        return graphName.isURI() && graphNameFilter.test(Uri.parse(graphName.getURI()));
+    }
+
+    @Override
+    protected final ExtendedIterator<Triple> graphBaseFind(final Triple triplePattern) {
+        final Iterator<Quad> quads;
+        if (graphNames.isPresent() && !triplePattern.getSubject().isConcrete() && !triplePattern.getPredicate().isConcrete() && !triplePattern.getObject().isConcrete()) {
+            quads = Iter.flatMap(graphNames.get().iterator(), graphName -> datasetGraph.find(NodeFactory.createURI(graphName.toString()), Node.ANY, Node.ANY, Node.ANY));
+        } else {
+            quads = Iter.filter(
+                    datasetGraph.findNG(Node.ANY, triplePattern.getSubject(), triplePattern.getPredicate(), triplePattern.getObject()),
+                    quad -> acceptGraphName(quad.getGraph())
+            );
+        }
+        return WrappedIterator.create(Iter.map(Iter.filter(quads, this::isInLowestAcceptedGraph), Quad::asTriple));
+    }
+
+    /**
+     * Check that no accepted graph with a lower name than the quad's also contains its statement.
+     */
+    private boolean isInLowestAcceptedGraph(final Quad quad) {
+        final String graphName = quad.getGraph().getURI();
+        final Iterator<Quad> sameStatementQuads = datasetGraph.findNG(Node.ANY, quad.getSubject(), quad.getPredicate(), quad.getObject());
+        try {
+            while (sameStatementQuads.hasNext()) {
+                final Node otherGraphName = sameStatementQuads.next().getGraph();
+                if (otherGraphName.isURI() && otherGraphName.getURI().compareTo(graphName) < 0 && acceptGraphName(otherGraphName)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            Iter.close(sameStatementQuads);
+        }
+    }
+}
@@ -76,6 +76,11 @@ public class ForwardingTwksTransaction implements TwksTransaction {
         return delegate.getNanopublication(uri);
     }
 
+    @Override
+    public ImmutableList<Uri> getNanopublicationUris(final Optional<Uri> afterNanopublicationUri, final int limit) {
+        return delegate.getNanopublicationUris(afterNanopublicationUri, limit);
+    }
+
     @Override
     public Model getOntologyAssertions(final ImmutableSet<Uri> ontologyUris) {
         return delegate.getOntologyAssertions(ontologyUris);
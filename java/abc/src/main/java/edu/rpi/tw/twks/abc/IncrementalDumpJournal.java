@@ -0,0 +1,209 @@
+package edu.rpi.tw.twks.abc;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import edu.rpi.tw.twks.api.TwksTransaction;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.nanopub.NanopublicationPart;
+import edu.rpi.tw.twks.uri.Uri;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.core.Quad;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Journal of the nanopublication URIs touched by committed transactions, for incremental dumps.
+ * <p>
+ * The journal only records which nanopublications changed. An incremental dump resolves each one against the store as of the dump:
+ * nanopublications that exist are written to a delta file, and the rest are written to a tombstone list.
+ * Entries are appended before the store commits, so a crash between the two can only make a dump include a nanopublication that didn't change.
+ * A dump takes its change marker and begins its snapshot while no transaction is between appending and committing;
+ * otherwise a change could be journaled before the marker, committed after the snapshot, and be missing from every dump.
+ * <p>
+ * The first dump after the journal is enabled is a full dump, which becomes the base for the deltas.
+ */
+final class IncrementalDumpJournal {
+    private final static String DELETE_ALL_ENTRY = "*";
+    private final static DateTimeFormatter DUMP_FILE_TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'").withZone(ZoneOffset.UTC);
+    private final static Logger logger = LoggerFactory.getLogger(IncrementalDumpJournal.class);
+    private final Path basePath;
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private final Path dumpDirectoryPath;
+    private final Path dumpingJournalPath;
+    private final Path journalPath;
+
+    IncrementalDumpJournal(final Path dumpDirectoryPath) {
+        this.dumpDirectoryPath = checkNotNull(dumpDirectoryPath);
+        basePath = dumpDirectoryPath.resolve(".twks-incremental-base");
+        dumpingJournalPath = dumpDirectoryPath.resolve(".twks-journal.dumping");
+        journalPath = dumpDirectoryPath.resolve(".twks-journal");
+    }
+
+    static String newDeleteAllEntry() {
+        return DELETE_ALL_ENTRY;
+    }
+
+    static String newEntry(final Uri nanopublicationUri) {
+        return nanopublicationUri.toString();
+    }
+
+    /**
+     * Record journal entries from a transaction and commit it.
+     *
+     * @param commit commits the store transaction
+     */
+    final void commit(final List<String> entries, final Runnable commit) {
+        commitLock.readLock().lock();
+        try {
+            append(entries);
+            commit.run();
+        } finally {
+            commitLock.readLock().unlock();
+        }
+    }
+
+    private synchronized void append(final List<String> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(dumpDirectoryPath);
+            Files.write(journalPath, entries, Charsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Dump the store: a full dump if there's no base yet, otherwise the changes since the last dump.
+     *
+     * @param beginReadTransaction begins a read transaction on the store
+     */
+    final void dump(final Supplier<TwksTransaction> beginReadTransaction) throws IOException {
+        Files.createDirectories(dumpDirectoryPath);
+
+        if (!Files.exists(basePath)) {
+            Files.deleteIfExists(dumpingJournalPath);
+            final TwksTransaction snapshotTransaction;
+            commitLock.writeLock().lock();
+            try {
+                synchronized (this) {
+                    Files.deleteIfExists(journalPath);
+                }
+                snapshotTransaction = beginReadTransaction.get();
+            } finally {
+                commitLock.writeLock().unlock();
+            }
+            try (final TwksTransaction transaction = snapshotTransaction) {
+                transaction.dump();
+            }
+            Files.write(basePath, ImmutableList.of(Instant.now().toString()), Charsets.UTF_8);
+            logger.info("wrote full dump as the base for incremental dumps to {}", dumpDirectoryPath);
+            return;
+        }
+
+        final TwksTransaction snapshotTransaction;
+        commitLock.writeLock().lock();
+        try {
+            rotate();
+            snapshotTransaction = beginReadTransaction.get();
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+
+        // Resolve the touched nanopublications
+        boolean deleteAll = false;
+        final Set<Uri> nanopublicationUris = new LinkedHashSet<>();
+        if (Files.exists(dumpingJournalPath)) {
+            for (final String entry : Files.readAllLines(dumpingJournalPath, Charsets.UTF_8)) {
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                if (entry.equals(DELETE_ALL_ENTRY)) {
+                    deleteAll = true;
+                    continue;
+                }
+                nanopublicationUris.add(Uri.parse(entry));
+            }
+        }
+
+        final String timestamp = DUMP_FILE_TIMESTAMP_FORMATTER.format(Instant.now());
+        final Path deltaFilePath = dumpDirectoryPath.resolve("delta-" + timestamp + ".trig");
+        final Path tombstonesFilePath = dumpDirectoryPath.resolve("tombstones-" + timestamp + ".txt");
+        long deltaCount = 0;
+        long tombstonesCount = 0;
+        try (final TwksTransaction transaction = snapshotTransaction;
+             final OutputStream deltaOutputStream = new BufferedOutputStream(Files.newOutputStream(deltaFilePath));
+             final BufferedWriter tombstonesWriter = Files.newBufferedWriter(tombstonesFilePath, Charsets.UTF_8)) {
+            if (deleteAll) {
+                // Every nanopublication in earlier dumps was deleted. Nanopublications put since then are in the delta.
+                tombstonesWriter.write(DELETE_ALL_ENTRY);
+                tombstonesWriter.newLine();
+            }
+
+            final StreamRDF deltaStream = StreamRDFWriter.getWriterStream(deltaOutputStream, Lang.TRIG);
+            deltaStream.start();
+            for (final Uri nanopublicationUri : nanopublicationUris) {
+                final Optional<Nanopublication> nanopublication = transaction.getNanopublication(nanopublicationUri);
+                if (nanopublication.isPresent()) {
+                    for (final NanopublicationPart nanopublicationPart : new NanopublicationPart[]{nanopublication.get().getHead(), nanopublication.get().getAssertion(), nanopublication.get().getProvenance(), nanopublication.get().getPublicationInfo()}) {
+                        final Node graphNode = NodeFactory.createURI(nanopublicationPart.getName().toString());
+                        nanopublicationPart.getModel().getGraph().find().forEachRemaining(triple -> deltaStream.quad(new Quad(graphNode, triple)));
+                    }
+                    deltaCount++;
+                } else if (!deleteAll) {
+                    tombstonesWriter.write(nanopublicationUri.toString());
+                    tombstonesWriter.newLine();
+                    tombstonesCount++;
+                }
+            }
+            deltaStream.finish();
+        }
+
+        // The delta is complete, so the rotated journal is no longer needed. If the dump failed before here, the next dump picks it up again.
+        Files.deleteIfExists(dumpingJournalPath);
+        logger.info("wrote incremental dump of {} changed and {} deleted nanopublication(s) to {} and {}", deltaCount, tombstonesCount, deltaFilePath, tombstonesFilePath);
+    }
+
+    /**
+     * Move the current journal aside for dumping. This is the change marker: later commits go to a new journal.
+     * <p>
+     * A journal left over from a failed dump is kept and added to.
+     */
+    private synchronized void rotate() throws IOException {
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+        if (Files.exists(dumpingJournalPath)) {
+            Files.write(dumpingJournalPath, Files.readAllBytes(journalPath), StandardOpenOption.APPEND);
+            Files.delete(journalPath);
+        } else {
+            Files.move(journalPath, dumpingJournalPath);
+        }
+    }
+}
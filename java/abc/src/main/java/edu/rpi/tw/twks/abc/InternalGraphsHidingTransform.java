@@ -0,0 +1,67 @@
+package edu.rpi.tw.twks.abc;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Query;
+import org.apache.jena.sparql.expr.*;
+import org.apache.jena.sparql.syntax.Element;
+import org.apache.jena.sparql.syntax.ElementFilter;
+import org.apache.jena.sparql.syntax.ElementGroup;
+import org.apache.jena.sparql.syntax.ElementNamedGraph;
+import org.apache.jena.sparql.syntax.syntaxtransform.ElementTransformCopyBase;
+import org.apache.jena.sparql.syntax.syntaxtransform.QueryTransformOps;
+
+/**
+ * Rewrite a query over the nanopublications so it doesn't match the store's internal graphs, such as the nanopublication index and the assertion union graphs.
+ * <p>
+ * GRAPH ?g patterns get a filter on the graph name, and GRAPH patterns that name an internal graph match nothing.
+ * Internal graphs are dropped from FROM and FROM NAMED.
+ * The rewrite is on the query syntax, so it works the same way on every quad store.
+ */
+final class InternalGraphsHidingTransform extends ElementTransformCopyBase {
+    final static String INTERNAL_GRAPH_NAME_PREFIX = "urn:twks:";
+
+    private InternalGraphsHidingTransform() {
+    }
+
+    static Query apply(final Query query) {
+        if (query.getQueryPattern() == null) {
+            return query;
+        }
+        final Query result = QueryTransformOps.transform(query, new InternalGraphsHidingTransform());
+        if (!result.hasDatasetDescription()) {
+            return result;
+        }
+
+        // Drop internal graphs from FROM and FROM NAMED.
+        // A query without FROM or FROM NAMED left would run over the whole store instead, so it matches nothing.
+        result.getGraphURIs().removeIf(InternalGraphsHidingTransform::isInternalGraphName);
+        result.getNamedGraphURIs().removeIf(InternalGraphsHidingTransform::isInternalGraphName);
+        if (!result.hasDatasetDescription()) {
+            result.setQueryPattern(filter(result.getQueryPattern(), NodeValue.FALSE));
+        }
+        return result;
+    }
+
+    private static Element filter(final Element element, final Expr filterExpr) {
+        final ElementGroup group = new ElementGroup();
+        group.addElement(element);
+        group.addElementFilter(new ElementFilter(filterExpr));
+        return group;
+    }
+
+    private static boolean isInternalGraphName(final String graphName) {
+        return graphName.startsWith(INTERNAL_GRAPH_NAME_PREFIX);
+    }
+
+    @Override
+    public final Element transform(final ElementNamedGraph el, final Node graphNameNode, final Element subElt) {
+        final ElementNamedGraph namedGraphElement = subElt == el.getElement() ? el : new ElementNamedGraph(graphNameNode, subElt);
+        if (graphNameNode.isVariable()) {
+            return filter(namedGraphElement, new E_LogicalNot(new E_StrStartsWith(new E_Str(new ExprVar(graphNameNode)), NodeValue.makeString(INTERNAL_GRAPH_NAME_PREFIX))));
+        } else if (graphNameNode.isURI() && isInternalGraphName(graphNameNode.getURI())) {
+            return filter(namedGraphElement, NodeValue.FALSE);
+        } else {
+            return namedGraphElement;
+        }
+    }
+}
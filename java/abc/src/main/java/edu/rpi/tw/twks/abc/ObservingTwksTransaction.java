@@ -1,5 +1,6 @@
 package edu.rpi.tw.twks.abc;
 
+import com.google.common.collect.ImmutableList;
 import edu.rpi.tw.twks.api.Twks;
 import edu.rpi.tw.twks.api.TwksTransaction;
 import edu.rpi.tw.twks.nanopub.Nanopublication;
@@ -7,19 +8,25 @@ import edu.rpi.tw.twks.uri.Uri;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Wraps a TwksTransaction, recording operations and then replaying them to observers if/when the transaction commit.
+ * <p>
+ * If incremental dumps are enabled, the nanopublications the operations touched are also appended to the journal as part of the commit.
  */
 final class ObservingTwksTransaction extends ForwardingTwksTransaction {
+    private final Optional<IncrementalDumpJournal> incrementalDumpJournal;
+    private final List<String> incrementalDumpJournalEntries = new ArrayList<>();
     private final List<ObservedOperation> observedOperations = new ArrayList<>();
     private final TwksObservers observers;
     private final Twks twks;
 
-    ObservingTwksTransaction(final Twks twks, final TwksTransaction delegate, final TwksObservers observers) {
+    ObservingTwksTransaction(final Twks twks, final TwksTransaction delegate, final Optional<IncrementalDumpJournal> incrementalDumpJournal, final TwksObservers observers) {
         super(delegate);
+        this.incrementalDumpJournal = checkNotNull(incrementalDumpJournal);
         this.observers = checkNotNull(observers);
         this.twks = checkNotNull(twks);
     }
@@ -27,12 +34,18 @@ final class ObservingTwksTransaction extends ForwardingTwksTransaction {
     @Override
     public final void abort() {
         delegate().abort();
+        incrementalDumpJournalEntries.clear();
         observedOperations.clear();
     }
 
     @Override
     public final void commit() {
-        delegate().commit();
+        if (incrementalDumpJournal.isPresent()) {
+            incrementalDumpJournal.get().commit(incrementalDumpJournalEntries, delegate()::commit);
+        } else {
+            delegate().commit();
+        }
+        incrementalDumpJournalEntries.clear();
         observedOperations.forEach(operation -> operation.notifyObservers(observers));
         observedOperations.clear();
     }
@@ -40,13 +53,40 @@ final class ObservingTwksTransaction extends ForwardingTwksTransaction {
     @Override
     public final DeleteNanopublicationResult deleteNanopublication(final Uri uri) {
         final DeleteNanopublicationResult result = delegate().deleteNanopublication(uri);
+        incrementalDumpJournalEntries.add(IncrementalDumpJournal.newEntry(uri));
         observedOperations.add(new DeleteNanopublicationObservedOperation(uri));
         return result;
     }
 
+    @Override
+    public final void deleteNanopublications() {
+        delegate().deleteNanopublications();
+        incrementalDumpJournalEntries.add(IncrementalDumpJournal.newDeleteAllEntry());
+    }
+
+    @Override
+    public final ImmutableList<DeleteNanopublicationResult> deleteNanopublications(final ImmutableList<Uri> uris) {
+        final ImmutableList<DeleteNanopublicationResult> results = delegate().deleteNanopublications(uris);
+        for (final Uri uri : uris) {
+            incrementalDumpJournalEntries.add(IncrementalDumpJournal.newEntry(uri));
+        }
+        return results;
+    }
+
+    @Override
+    public final ImmutableList<PutNanopublicationResult> postNanopublications(final ImmutableList<Nanopublication> nanopublications) {
+        final ImmutableList<PutNanopublicationResult> results = delegate().postNanopublications(nanopublications);
+        for (final Nanopublication nanopublication : nanopublications) {
+            incrementalDumpJournalEntries.add(IncrementalDumpJournal.newEntry(nanopublication.getUri()));
+            observedOperations.add(new PutNanopublicationObservedOperation(nanopublication));
+        }
+        return results;
+    }
+
     @Override
     public PutNanopublicationResult putNanopublication(final Nanopublication nanopublication) {
         final PutNanopublicationResult result = delegate().putNanopublication(nanopublication);
+        incrementalDumpJournalEntries.add(IncrementalDumpJournal.newEntry(nanopublication.getUri()));
         observedOperations.add(new PutNanopublicationObservedOperation(nanopublication));
         return result;
     }
@@ -0,0 +1,41 @@
+package edu.rpi.tw.twks.abc;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NullIterator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Read-only union of a list of graphs.
+ * <p>
+ * A find goes to each graph in turn and drops the triples that an earlier graph in the list also contains,
+ * so each distinct triple is returned once without remembering the triples returned so far.
+ */
+final class OrderedUnionGraph extends GraphBase {
+    private final ImmutableList<Graph> graphs;
+
+    OrderedUnionGraph(final ImmutableList<Graph> graphs) {
+        this.graphs = checkNotNull(graphs);
+    }
+
+    @Override
+    protected final ExtendedIterator<Triple> graphBaseFind(final Triple triplePattern) {
+        ExtendedIterator<Triple> result = NullIterator.instance();
+        for (int graphI = 0; graphI < graphs.size(); graphI++) {
+            final ImmutableList<Graph> earlierGraphs = graphs.subList(0, graphI);
+            result = result.andThen(graphs.get(graphI).find(triplePattern).filterDrop(triple -> {
+                for (final Graph earlierGraph : earlierGraphs) {
+                    if (earlierGraph.contains(triple)) {
+                        return true;
+                    }
+                }
+                return false;
+            }));
+        }
+        return result;
+    }
+}
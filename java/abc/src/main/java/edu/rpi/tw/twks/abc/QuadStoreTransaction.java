@@ -4,6 +4,10 @@ import edu.rpi.tw.twks.uri.Uri;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Statement;
+
+import java.util.Optional;
+import java.util.function.Predicate;
 
 /**
  * Interface for transactions on quad stores, with a minimal set of operations needed by TwksTransaction.
@@ -40,6 +44,13 @@ public interface QuadStoreTransaction extends AutoCloseable {
      */
     boolean containsNamedGraph(Uri graphName);
 
+    /**
+     * Check whether any named graph whose name is accepted by a filter contains the given statement.
+     * <p>
+     * Stops at the first such graph instead of collecting every graph that contains the statement.
+     */
+    boolean containsStatement(Statement statement, Predicate<Uri> graphNameFilter);
+
     /**
      * Get a named graph's Model. Throws an exception if the named graph does not exist in the store.
      */
@@ -50,11 +61,23 @@ public interface QuadStoreTransaction extends AutoCloseable {
      */
     Model getOrCreateNamedGraph(Uri graphName);
 
+    /**
+     * Get a read-only view of the union of the named graphs whose names are accepted by a filter.
+     * <p>
+     * graphNames, if present, are the distinct names the filter accepts, so finds that match every statement don't have to scan the other graphs.
+     */
+    Model getUnionGraph(Predicate<Uri> graphNameFilter, Optional<Iterable<Uri>> graphNames);
+
     /**
      * Query over all named graphs in the quad store.
      */
     QueryExecution query(Query query);
 
+    /**
+     * Query the union of the named graphs whose names are accepted by a filter, as the default graph.
+     */
+    QueryExecution queryUnionGraph(Query query, Predicate<Uri> graphNameFilter, Optional<Iterable<Uri>> graphNames);
+
     /**
      * Remove all named graphs in the store.
      */
@@ -6,6 +6,8 @@ import com.codahale.metrics.Timer;
 import static com.codahale.metrics.MetricRegistry.name;
 
 public final class QuadStoreTwksMetrics extends AbstractTwksMetrics {
+    public final Timer deleteNanopublicationUpdateAllAssertionsUnionGraphTimer;
+    public final Timer deleteNanopublicationUpdateOntologyAssertionsUnionGraphTimer;
     public final Timer getNanopublicationGraphNamesTimer;
     public final Timer putNanopublicationAddNamedGraphsTimer;
     public final Timer putNanopublicationUpdateAllAssertionsUnionGraphTimer;
@@ -13,6 +15,8 @@ public final class QuadStoreTwksMetrics extends AbstractTwksMetrics {
 
     public QuadStoreTwksMetrics(final MetricRegistry registry) {
         super(registry);
+        deleteNanopublicationUpdateAllAssertionsUnionGraphTimer = registry.timer(name(getClass(), "deleteNanopublicationUpdateAllAssertionsUnionGraphTimer"));
+        deleteNanopublicationUpdateOntologyAssertionsUnionGraphTimer = registry.timer(name(getClass(), "deleteNanopublicationUpdateOntologyAssertionsUnionGraphTimer"));
         getNanopublicationGraphNamesTimer = registry.timer(name(getClass(), "getNanopublicationGraphNamesTimer"));
         putNanopublicationAddNamedGraphsTimer = registry.timer(name(getClass(), "putNanopublicationAddNamedGraphsTimer"));
         putNanopublicationUpdateAllAssertionsUnionGraphTimer = registry.timer(name(getClass(), "putNanopublicationUpdateAllAssertionsUnionGraphTimer"));
@@ -2,31 +2,34 @@ package edu.rpi.tw.twks.abc;
 
 import com.codahale.metrics.Timer;
 import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
 import edu.rpi.tw.twks.configuration.TwksConfiguration;
 import edu.rpi.tw.twks.nanopub.*;
 import edu.rpi.tw.twks.uri.Uri;
 import edu.rpi.tw.twks.vocabulary.SIO;
 import edu.rpi.tw.twks.vocabulary.Vocabularies;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.apache.jena.graph.Graph;
 import org.apache.jena.query.*;
-import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.ModelFactory;
-import org.apache.jena.rdf.model.Resource;
-import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.rdf.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Predicate;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public abstract class QuadStoreTwksTransaction<TwksT extends AbstractTwks<TwksConfigurationT, TwksMetricsT>, TwksConfigurationT extends TwksConfiguration, TwksMetricsT extends QuadStoreTwksMetrics> extends AbstractTwksTransaction<TwksT, TwksConfigurationT, TwksMetricsT> {
     private final static Logger logger = LoggerFactory.getLogger(QuadStoreTwksTransaction.class);
+    private final static int REBUILD_ASSERTIONS_UNION_GRAPHS_BATCH_SIZE = 1000;
     private final QuadStoreTransaction quadStoreTransaction;
+    private @Nullable NanopublicationIndex nanopublicationIndex = null;
 
     protected QuadStoreTwksTransaction(final QuadStoreTransaction quadStore, final TwksT twks) {
         super(twks);
@@ -50,41 +53,20 @@ public abstract class QuadStoreTwksTransaction<TwksT extends AbstractTwks<TwksCo
 
     @Override
     public final DeleteNanopublicationResult deleteNanopublication(final Uri uri) {
-        final Set<Uri> nanopublicationGraphNames = getNanopublicationGraphNames(uri);
-        if (nanopublicationGraphNames.isEmpty()) {
+        final NanopublicationIndex nanopublicationIndex = getOrBuildNanopublicationIndex();
+        final Optional<NanopublicationGraphNames> nanopublicationGraphNames = getNanopublicationGraphNames(nanopublicationIndex, uri);
+        if (!nanopublicationGraphNames.isPresent()) {
             return DeleteNanopublicationResult.NOT_FOUND;
         }
-        if (nanopublicationGraphNames.size() != 4) {
-            throw new IllegalStateException();
-        }
-        for (final Uri nanopublicationGraphName : nanopublicationGraphNames) {
+        // Copy the assertions before removing the nanopublication's graphs, so they can be retracted from the union graphs afterwards.
+        final Model assertions = copyNamedGraph(nanopublicationGraphNames.get().getAssertionGraphName());
+
+        for (final Uri nanopublicationGraphName : nanopublicationGraphNames.get().asSet()) {
             quadStoreTransaction.removeNamedGraph(nanopublicationGraphName);
         }
+        nanopublicationIndex.deleteNanopublication(uri);
 
-        {
-            // Delete all assertion union graphs and rebuild from nanopublications
-            // This handles the case where there are duplicates, at the cost of O(n) in the number of named graphs in the store +
-            // O(m) in the number of nanopublications.
-            // Delete is a rare enough operation that we don't need a better algorithm yet.
-            final AllAssertionsUnionGraph allAssertionsUnionGraph = new AllAssertionsUnionGraph(quadStoreTransaction);
-            final OntologyAssertionsUnionGraphs ontologyAssertionsUnionGraphs = new OntologyAssertionsUnionGraphs(quadStoreTransaction);
-
-            allAssertionsUnionGraph.deleteNanopublication(uri);
-            ontologyAssertionsUnionGraphs.deleteNanopublication(uri);
-
-            getNanopublications(new NanopublicationConsumer() {
-                @Override
-                public void accept(final Nanopublication nanopublication) {
-                    allAssertionsUnionGraph.putNanopublication(nanopublication);
-                    ontologyAssertionsUnionGraphs.putNanopublication(nanopublication);
-                }
-
-                @Override
-                public void onMalformedNanopublicationException(final MalformedNanopublicationException exception) {
-                    logger.error("malformed nanopublication when rebuilding assertions union graphs: {}", exception.getMessage());
-                }
-            });
-        }
+        retractAssertions(nanopublicationIndex, ImmutableMap.of(uri, assertions));
 
         return DeleteNanopublicationResult.DELETED;
     }
@@ -92,25 +74,97 @@ public abstract class QuadStoreTwksTransaction<TwksT extends AbstractTwks<TwksCo
     @Override
     public final void deleteNanopublications() {
         quadStoreTransaction.removeAllGraphs();
+        nanopublicationIndex = null;
     }
 
     @Override
     public final Model getAssertions() {
-        return new AllAssertionsUnionGraph(quadStoreTransaction).get();
+        return newAllAssertionsUnionGraph().get();
+    }
+
+    private AllAssertionsUnionGraph newAllAssertionsUnionGraph() {
+        return getConfiguration().getVirtualAssertionsUnion() ? new VirtualAllAssertionsUnionGraph(getNanopublicationIndex(), quadStoreTransaction) : new MaterializedAllAssertionsUnionGraph(quadStoreTransaction);
+    }
+
+    /**
+     * Check whether the quad store contains a named graph with a query rather than containsNamedGraph, which some quad stores only answer for graphs the client has already opened.
+     */
+    private static boolean containsNamedGraph(final QuadStoreTransaction quadStoreTransaction, final Uri graphName) {
+        final Query query = NanopublicationQueries.GET_EXTANT_GRAPH_NAMES_QUERY.bindValues("G", ImmutableSet.of(graphName));
+        query.setLimit(1);
+        try (final QueryExecution queryExecution = quadStoreTransaction.query(query)) {
+            return queryExecution.execSelect().hasNext();
+        }
     }
 
-    private ImmutableSet<Uri> getNanopublicationGraphNames(final Uri nanopublicationUri) {
+    /**
+     * Copy a named graph out of the quad store, so the copy survives the graph's removal.
+     */
+    private Model copyNamedGraph(final Uri graphName) {
+        try {
+            return ModelFactory.createDefaultModel().add(quadStoreTransaction.getNamedGraph(graphName));
+        } catch (final NoSuchNamedGraphException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    protected final Dataset getNanopublicationDataset(final Uri uri) {
+        final Optional<NanopublicationIndex> nanopublicationIndex = getNanopublicationIndex();
+        if (!nanopublicationIndex.isPresent()) {
+            // A store written before the index existed, which hasn't been written to since
+            return super.getNanopublicationDataset(uri);
+        }
+
+        final Dataset result = DatasetFactory.create();
+        final Optional<NanopublicationGraphNames> nanopublicationGraphNames = getNanopublicationGraphNames(nanopublicationIndex.get(), uri);
+        if (!nanopublicationGraphNames.isPresent()) {
+            return result;
+        }
+        for (final Uri nanopublicationGraphName : nanopublicationGraphNames.get().asSet()) {
+            result.addNamedModel(nanopublicationGraphName.toString(), copyNamedGraph(nanopublicationGraphName));
+        }
+        return result;
+    }
+
+    @Override
+    public final ImmutableList<Uri> getNanopublicationUris(final Optional<Uri> afterNanopublicationUri, final int limit) {
+        final Optional<NanopublicationIndex> nanopublicationIndex = getNanopublicationIndex();
+        if (!nanopublicationIndex.isPresent()) {
+            // A store written before the index existed, which hasn't been written to since
+            return super.getNanopublicationUris(afterNanopublicationUri, limit);
+        }
+        return nanopublicationIndex.get().getNanopublicationUris(afterNanopublicationUri, limit);
+    }
+
+    private Optional<NanopublicationGraphNames> getNanopublicationGraphNames(final NanopublicationIndex nanopublicationIndex, final Uri nanopublicationUri) {
         try (final Timer.Context timerContext = getMetrics().getNanopublicationGraphNamesTimer.time()) {
-            final ImmutableSet.Builder<Uri> resultBuilder = ImmutableSet.builder();
-            try (final QueryExecution queryExecution = quadStoreTransaction.query(QueryFactory.create(String.format(NanopublicationQueries.GET_NANOPUBLICATION_GRAPH_NAMES_QUERY_STRING_TEMPLATE, nanopublicationUri)))) {
-                for (final ResultSet resultSet = queryExecution.execSelect(); resultSet.hasNext(); ) {
-                    final QuerySolution querySolution = resultSet.nextSolution();
-                    final Resource g = querySolution.getResource("G");
-                    resultBuilder.add(Uri.parse(g.getURI()));
-                }
-            }
-            return resultBuilder.build();
+            return nanopublicationIndex.get(nanopublicationUri);
+        }
+    }
+
+    /**
+     * Get the nanopublication index if it's in the store.
+     */
+    private Optional<NanopublicationIndex> getNanopublicationIndex() {
+        if (nanopublicationIndex == null) {
+            nanopublicationIndex = NanopublicationIndex.get(quadStoreTransaction).orElse(null);
+        }
+        return Optional.ofNullable(nanopublicationIndex);
+    }
+
+    /**
+     * Get the nanopublication index, building it from the nanopublications in the store if it's not there.
+     * <p>
+     * Writes always go through here, so a store written before the index existed is migrated on its first write.
+     */
+    private NanopublicationIndex getOrBuildNanopublicationIndex() {
+        final Optional<NanopublicationIndex> extantNanopublicationIndex = getNanopublicationIndex();
+        if (extantNanopublicationIndex.isPresent()) {
+            return extantNanopublicationIndex.get();
         }
+        nanopublicationIndex = NanopublicationIndex.build(quadStoreTransaction);
+        return nanopublicationIndex;
     }
 
     private NanopublicationPart getNanopublicationPart(final String nanopublicationPartName) {
@@ -157,19 +211,10 @@ public abstract class QuadStoreTwksTransaction<TwksT extends AbstractTwks<TwksCo
 
     @Override
     public final Model getOntologyAssertions(final ImmutableSet<Uri> ontologyUris) {
-        final Model result = ModelFactory.createDefaultModel();
         if (ontologyUris.isEmpty()) {
-            return result;
-        }
-        Vocabularies.setNsPrefixes(result);
-        final OntologyAssertionsUnionGraphs ontologyAssertionsUnionGraphs = new OntologyAssertionsUnionGraphs(quadStoreTransaction);
-        for (final Uri ontologyUri : ontologyUris) {
-            try {
-                result.add(ontologyAssertionsUnionGraphs.get(ontologyUri));
-            } catch (final NoSuchNamedGraphException e) {
-            }
+            return ModelFactory.createDefaultModel();
         }
-        return result;
+        return new OntologyAssertionsUnionGraphs(quadStoreTransaction).getUnion(ontologyUris);
     }
 
     protected final QuadStoreTransaction getQuadStoreTransaction() {
@@ -197,40 +242,451 @@ public abstract class QuadStoreTwksTransaction<TwksT extends AbstractTwks<TwksCo
                 quadStoreTransaction.addNamedGraph(nanopublicationPart.getName(), nanopublicationPart.getModel());
             }
         }
+        getOrBuildNanopublicationIndex().putNanopublication(nanopublication);
+
+        addAssertions(ImmutableList.of(nanopublication));
+
+        return deleteResult == DeleteNanopublicationResult.DELETED ? PutNanopublicationResult.OVERWROTE : PutNanopublicationResult.CREATED;
+    }
+
+    /**
+     * Bulk put. Resolves which nanopublications already exist from the nanopublication index, deletes those, adds all parts, and updates the assertion union graphs once for the whole batch.
+     */
+    @Override
+    public final ImmutableList<PutNanopublicationResult> postNanopublications(final ImmutableList<Nanopublication> nanopublications) {
+        final ImmutableSet<Uri> nanopublicationUris = nanopublications.stream().map(Nanopublication::getUri).collect(ImmutableSet.toImmutableSet());
+        if (nanopublications.size() <= 1 || nanopublicationUris.size() != nanopublications.size()) {
+            // The same nanopublication is put more than once, so it's sequential put semantics
+            return super.postNanopublications(nanopublications);
+        }
+
+        final NanopublicationIndex nanopublicationIndex = getOrBuildNanopublicationIndex();
+
+        // Delete the extant nanopublications in the batch
+        final Map<Uri, Model> deletedAssertionsByNanopublicationUri = new HashMap<>();
+        for (final Uri nanopublicationUri : nanopublicationUris) {
+            final Optional<NanopublicationGraphNames> nanopublicationGraphNames = getNanopublicationGraphNames(nanopublicationIndex, nanopublicationUri);
+            if (!nanopublicationGraphNames.isPresent()) {
+                continue;
+            }
+            deletedAssertionsByNanopublicationUri.put(nanopublicationUri, copyNamedGraph(nanopublicationGraphNames.get().getAssertionGraphName()));
+            for (final Uri nanopublicationGraphName : nanopublicationGraphNames.get().asSet()) {
+                quadStoreTransaction.removeNamedGraph(nanopublicationGraphName);
+            }
+            nanopublicationIndex.deleteNanopublication(nanopublicationUri);
+        }
+        if (!deletedAssertionsByNanopublicationUri.isEmpty()) {
+            retractAssertions(nanopublicationIndex, deletedAssertionsByNanopublicationUri);
+        }
+
+        try (final Timer.Context timerContext = getMetrics().putNanopublicationAddNamedGraphsTimer.time()) {
+            final Set<Uri> nanopublicationPartNames = new HashSet<>();
+            for (final Nanopublication nanopublication : nanopublications) {
+                for (final NanopublicationPart nanopublicationPart : new NanopublicationPart[]{nanopublication.getAssertion(), nanopublication.getHead(), nanopublication.getProvenance(), nanopublication.getPublicationInfo()}) {
+                    if (!nanopublicationPartNames.add(nanopublicationPart.getName())) {
+                        throw new DuplicateNanopublicationPartName(nanopublicationPart.getName().toString());
+                    }
+                }
+            }
+
+            try (final QueryExecution queryExecution = quadStoreTransaction.query(NanopublicationQueries.GET_EXTANT_GRAPH_NAMES_QUERY.bindValues("G", nanopublicationPartNames))) {
+                final ResultSet resultSet = queryExecution.execSelect();
+                if (resultSet.hasNext()) {
+                    throw new DuplicateNanopublicationPartName(resultSet.nextSolution().getResource("G").getURI());
+                }
+            }
+
+            for (final Nanopublication nanopublication : nanopublications) {
+                for (final NanopublicationPart nanopublicationPart : new NanopublicationPart[]{nanopublication.getAssertion(), nanopublication.getHead(), nanopublication.getProvenance(), nanopublication.getPublicationInfo()}) {
+                    quadStoreTransaction.addNamedGraph(nanopublicationPart.getName(), nanopublicationPart.getModel());
+                }
+                nanopublicationIndex.putNanopublication(nanopublication);
+            }
+        }
+
+        addAssertions(nanopublications);
+
+        return nanopublications.stream().map(nanopublication -> deletedAssertionsByNanopublicationUri.containsKey(nanopublication.getUri()) ? PutNanopublicationResult.OVERWROTE : PutNanopublicationResult.CREATED).collect(ImmutableList.toImmutableList());
+    }
 
+    /**
+     * Add the nanopublications' assertions to the assertion union graphs.
+     */
+    private void addAssertions(final ImmutableList<Nanopublication> nanopublications) {
         try (final Timer.Context timerContext = getMetrics().putNanopublicationUpdateAllAssertionsUnionGraphTimer.time()) {
-            new AllAssertionsUnionGraph(quadStoreTransaction).putNanopublication(nanopublication);
+            newAllAssertionsUnionGraph().putNanopublications(getOrBuildNanopublicationIndex(), nanopublications);
         }
+        addOntologyAssertions(nanopublications);
+    }
+
+    /**
+     * Add the nanopublications' assertions to the ontology assertion union graphs.
+     */
+    private void addOntologyAssertions(final ImmutableList<Nanopublication> nanopublications) {
         try (final Timer.Context timerContext = getMetrics().putNanopublicationUpdateOntologyAssertionsUnionGraphTimer.time()) {
-            new OntologyAssertionsUnionGraphs(quadStoreTransaction).putNanopublication(nanopublication);
+            final OntologyAssertionsUnionGraphs ontologyAssertionsUnionGraphs = new OntologyAssertionsUnionGraphs(quadStoreTransaction);
+            for (final Nanopublication nanopublication : nanopublications) {
+                ontologyAssertionsUnionGraphs.putNanopublication(nanopublication);
+            }
         }
-
-        return deleteResult == DeleteNanopublicationResult.DELETED ? PutNanopublicationResult.OVERWROTE : PutNanopublicationResult.CREATED;
     }
 
     @Override
     public final QueryExecution queryAssertions(final Query query) {
-        return new AllAssertionsUnionGraph(quadStoreTransaction).query(query);
+        return newAllAssertionsUnionGraph().query(query);
     }
 
     @Override
     public final QueryExecution queryNanopublications(final Query query) {
-        return quadStoreTransaction.query(query);
+        return quadStoreTransaction.query(InternalGraphsHidingTransform.apply(query));
     }
 
-    private final static class AllAssertionsUnionGraph {
-        private final static Uri NAME = Uri.parse("urn:twks:assertions:all");
+    /**
+     * Retract deleted nanopublications' assertions from the assertion union graphs.
+     * <p>
+     * Only retracts statements that no other nanopublication still asserts, so the cost is proportional to the size of the deleted assertions rather than the size of the store.
+     * The nanopublications' graphs must already have been removed.
+     */
+    private void retractAssertions(final NanopublicationIndex nanopublicationIndex, final Map<Uri, Model> deletedAssertionsByNanopublicationUri) {
+        final AssertionStatementReferences assertionStatementReferences = new AssertionStatementReferences(nanopublicationIndex, quadStoreTransaction);
+        try (final Timer.Context timerContext = getMetrics().deleteNanopublicationUpdateAllAssertionsUnionGraphTimer.time()) {
+            final Model deletedAssertions;
+            if (deletedAssertionsByNanopublicationUri.size() == 1) {
+                deletedAssertions = deletedAssertionsByNanopublicationUri.values().iterator().next();
+            } else {
+                deletedAssertions = ModelFactory.createDefaultModel();
+                deletedAssertionsByNanopublicationUri.values().forEach(deletedAssertions::add);
+            }
+            newAllAssertionsUnionGraph().deleteNanopublication(deletedAssertions, assertionStatementReferences);
+        }
+        try (final Timer.Context timerContext = getMetrics().deleteNanopublicationUpdateOntologyAssertionsUnionGraphTimer.time()) {
+            final OntologyAssertionsUnionGraphs ontologyAssertionsUnionGraphs = new OntologyAssertionsUnionGraphs(quadStoreTransaction);
+            for (final Map.Entry<Uri, Model> entry : deletedAssertionsByNanopublicationUri.entrySet()) {
+                ontologyAssertionsUnionGraphs.deleteNanopublication(entry.getKey(), entry.getValue(), assertionStatementReferences);
+            }
+        }
+    }
+
+    /**
+     * Rebuild the nanopublication index and the assertion union graphs from the nanopublications in the store.
+     * <p>
+     * Used after nanopublication graphs have been loaded into the quad store directly, bypassing putNanopublication.
+     */
+    public final void rebuildDerivedGraphs() {
+        quadStoreTransaction.removeNamedGraph(NanopublicationIndex.NAME);
+        nanopublicationIndex = NanopublicationIndex.build(quadStoreTransaction);
+
+        newAllAssertionsUnionGraph().rebuild(nanopublicationIndex);
+        new OntologyAssertionsUnionGraphs(quadStoreTransaction).deleteAll();
+
+        final List<Nanopublication> nanopublicationsBuffer = new ArrayList<>();
+        getNanopublications(new NanopublicationConsumer() {
+            @Override
+            public void accept(final Nanopublication nanopublication) {
+                nanopublicationsBuffer.add(nanopublication);
+                if (nanopublicationsBuffer.size() >= REBUILD_ASSERTIONS_UNION_GRAPHS_BATCH_SIZE) {
+                    addOntologyAssertions(ImmutableList.copyOf(nanopublicationsBuffer));
+                    nanopublicationsBuffer.clear();
+                }
+            }
+
+            @Override
+            public void onMalformedNanopublicationException(final MalformedNanopublicationException exception) {
+                logger.error("malformed nanopublication when rebuilding assertions union graphs: {}", exception.getMessage());
+            }
+        });
+        if (!nanopublicationsBuffer.isEmpty()) {
+            addOntologyAssertions(ImmutableList.copyOf(nanopublicationsBuffer));
+        }
+    }
+
+    /**
+     * Per-statement reference counts for the assertion union graphs.
+     * <p>
+     * Rather than storing counts separately, a statement's references are derived from the quad store's indices: they are the
+     * nanopublications whose assertion graphs still contain the statement.
+     */
+    private final static class AssertionStatementReferences {
+        private final NanopublicationIndex nanopublicationIndex;
         private final QuadStoreTransaction quadStoreTransaction;
 
-        public AllAssertionsUnionGraph(final QuadStoreTransaction quadStoreTransaction) {
+        public AssertionStatementReferences(final NanopublicationIndex nanopublicationIndex, final QuadStoreTransaction quadStoreTransaction) {
+            this.nanopublicationIndex = checkNotNull(nanopublicationIndex);
             this.quadStoreTransaction = checkNotNull(quadStoreTransaction);
         }
 
+        /**
+         * Check whether any nanopublication accepted by a filter still refers to the statement. Stops at the first one found.
+         */
+        public final boolean anyReferringNanopublication(final Statement statement, final Predicate<Uri> nanopublicationUriFilter) {
+            return quadStoreTransaction.containsStatement(statement, graphName -> nanopublicationIndex.anyAssertionGraphNanopublication(graphName, nanopublicationUriFilter));
+        }
+
+        public final boolean hasReferringNanopublication(final Statement statement) {
+            return anyReferringNanopublication(statement, nanopublicationUri -> true);
+        }
+    }
+
+    private final static class NanopublicationGraphNames {
+        private final Uri assertionGraphName;
+        private final Uri headGraphName;
+        private final Uri provenanceGraphName;
+        private final Uri publicationInfoGraphName;
+
+        public NanopublicationGraphNames(final Uri assertionGraphName, final Uri headGraphName, final Uri provenanceGraphName, final Uri publicationInfoGraphName) {
+            this.assertionGraphName = checkNotNull(assertionGraphName);
+            this.headGraphName = checkNotNull(headGraphName);
+            this.provenanceGraphName = checkNotNull(provenanceGraphName);
+            this.publicationInfoGraphName = checkNotNull(publicationInfoGraphName);
+        }
+
+        public final ImmutableSet<Uri> asSet() {
+            return ImmutableSet.of(assertionGraphName, headGraphName, provenanceGraphName, publicationInfoGraphName);
+        }
+
+        public final Uri getAssertionGraphName() {
+            return assertionGraphName;
+        }
+    }
+
+    /**
+     * Direct index from nanopublication URI to the names of the nanopublication's part graphs, kept in a named graph of its own.
+     * <p>
+     * Lookups are single-subject or single-object pattern matches on the index graph instead of joins over every head graph in the store.
+     * The index uses its own properties rather than the nanopub vocabulary, so queries over the nanopublications don't see it as a head graph.
+     * <p>
+     * Each nanopublication is also assigned to one of a fixed number of buckets by a hash of its URI.
+     * Paging through the nanopublications goes bucket by bucket and by URI within a bucket, so a page only reads and sorts the buckets it spans instead of the whole index.
+     */
+    private final static class NanopublicationIndex {
+        private final static int BUCKETS_COUNT = 4096;
+        private final static Property BUCKET = ResourceFactory.createProperty("urn:twks:nanopublications:bucket");
+        private final static Property HAS_ASSERTION_GRAPH = ResourceFactory.createProperty("urn:twks:nanopublications:hasAssertionGraph");
+        private final static Property HAS_HEAD_GRAPH = ResourceFactory.createProperty("urn:twks:nanopublications:hasHeadGraph");
+        private final static Property HAS_PROVENANCE_GRAPH = ResourceFactory.createProperty("urn:twks:nanopublications:hasProvenanceGraph");
+        private final static Property HAS_PUBLICATION_INFO_GRAPH = ResourceFactory.createProperty("urn:twks:nanopublications:hasPublicationInfoGraph");
+        private final static Uri NAME = Uri.parse("urn:twks:nanopublications");
+        private final Model model;
+
+        private NanopublicationIndex(final Model model) {
+            this.model = checkNotNull(model);
+        }
+
+        public static NanopublicationIndex build(final QuadStoreTransaction quadStoreTransaction) {
+            final NanopublicationIndex result = new NanopublicationIndex(quadStoreTransaction.getOrCreateNamedGraph(NAME));
+            long nanopublicationsCount = 0;
+            try (final QueryExecution queryExecution = quadStoreTransaction.query(NanopublicationQueries.ITERATE_NANOPUBLICATIONS_QUERY)) {
+                for (final ResultSet resultSet = queryExecution.execSelect(); resultSet.hasNext(); ) {
+                    final QuerySolution querySolution = resultSet.nextSolution();
+                    final Resource nanopublicationResource = querySolution.getResource("np");
+                    // A nanopublication URI with more than one set of part graphs, for example from a bulk load with the URI in two inputs.
+                    // Identical copies have the same part graphs, so they're only listed once.
+                    @Nullable final Statement existingHeadGraphStatement = result.model.getProperty(nanopublicationResource, HAS_HEAD_GRAPH);
+                    if (existingHeadGraphStatement != null) {
+                        throw new IllegalStateException(String.format("nanopublication %s has more than one set of part graphs in the store, in head graphs %s and %s", nanopublicationResource.getURI(), existingHeadGraphStatement.getResource().getURI(), querySolution.getResource("H").getURI()));
+                    }
+                    result.put(
+                            nanopublicationResource,
+                            new NanopublicationGraphNames(
+                                    Uri.parse(querySolution.getResource("A").getURI()),
+                                    Uri.parse(querySolution.getResource("H").getURI()),
+                                    Uri.parse(querySolution.getResource("P").getURI()),
+                                    Uri.parse(querySolution.getResource("I").getURI())
+                            )
+                    );
+                    nanopublicationsCount++;
+                }
+            }
+            if (nanopublicationsCount > 0) {
+                logger.info("built nanopublication index of {} nanopublication(s)", nanopublicationsCount);
+            }
+            return result;
+        }
+
+        /**
+         * Get the index if it's in the store.
+         */
+        public static Optional<NanopublicationIndex> get(final QuadStoreTransaction quadStoreTransaction) {
+            if (!containsNamedGraph(quadStoreTransaction, NAME)) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(new NanopublicationIndex(quadStoreTransaction.getNamedGraph(NAME)));
+            } catch (final NoSuchNamedGraphException e) {
+                return Optional.empty();
+            }
+        }
+
+        private static int getBucket(final String nanopublicationUri) {
+            return Math.floorMod(Hashing.murmur3_32().hashString(nanopublicationUri, Charsets.UTF_8).asInt(), BUCKETS_COUNT);
+        }
+
         public final void deleteNanopublication(final Uri nanopublicationUri) {
-            quadStoreTransaction.removeNamedGraph(NAME);
+            model.removeAll(ResourceFactory.createResource(nanopublicationUri.toString()), null, null);
+        }
+
+        public final Optional<NanopublicationGraphNames> get(final Uri nanopublicationUri) {
+            final Resource nanopublicationResource = ResourceFactory.createResource(nanopublicationUri.toString());
+            final Optional<Uri> assertionGraphName = getGraphName(nanopublicationResource, HAS_ASSERTION_GRAPH);
+            if (!assertionGraphName.isPresent()) {
+                return Optional.empty();
+            }
+            return Optional.of(new NanopublicationGraphNames(
+                    assertionGraphName.get(),
+                    getGraphName(nanopublicationResource, HAS_HEAD_GRAPH).orElseThrow(IllegalStateException::new),
+                    getGraphName(nanopublicationResource, HAS_PROVENANCE_GRAPH).orElseThrow(IllegalStateException::new),
+                    getGraphName(nanopublicationResource, HAS_PUBLICATION_INFO_GRAPH).orElseThrow(IllegalStateException::new)
+            ));
         }
 
+        public final ImmutableList<Uri> getAssertionGraphNames() {
+            final ImmutableList.Builder<Uri> resultBuilder = ImmutableList.builder();
+            model.listObjectsOfProperty(HAS_ASSERTION_GRAPH).forEachRemaining(object -> resultBuilder.add(Uri.parse(object.asResource().getURI())));
+            return resultBuilder.build();
+        }
+
+        /**
+         * Iterate over the distinct assertion graph names as they're read from the index, without collecting them first.
+         */
+        public final Iterable<Uri> iterateAssertionGraphNames() {
+            return () -> model.listStatements(null, HAS_ASSERTION_GRAPH, (RDFNode) null)
+                    // A graph shared by several nanopublications is only listed for the first of them
+                    .filterKeep(statement -> getAssertionGraphNanopublicationUri(Uri.parse(statement.getResource().getURI())).get().toString().equals(statement.getSubject().getURI()))
+                    .mapWith(statement -> Uri.parse(statement.getResource().getURI()));
+        }
+
+        /**
+         * Check whether any nanopublication with the given assertion graph is accepted by a filter.
+         */
+        public final boolean anyAssertionGraphNanopublication(final Uri assertionGraphName, final Predicate<Uri> nanopublicationUriFilter) {
+            final ResIterator subjects = model.listSubjectsWithProperty(HAS_ASSERTION_GRAPH, ResourceFactory.createResource(assertionGraphName.toString()));
+            try {
+                while (subjects.hasNext()) {
+                    if (nanopublicationUriFilter.test(Uri.parse(subjects.next().getURI()))) {
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                subjects.close();
+            }
+        }
+
+        public final Optional<Uri> getAssertionGraphNanopublicationUri(final Uri assertionGraphName) {
+            final ResIterator subjects = model.listSubjectsWithProperty(HAS_ASSERTION_GRAPH, ResourceFactory.createResource(assertionGraphName.toString()));
+            try {
+                return subjects.hasNext() ? Optional.of(Uri.parse(subjects.next().getURI())) : Optional.empty();
+            } finally {
+                subjects.close();
+            }
+        }
+
+        public final ImmutableList<Uri> getNanopublicationUris(final Optional<Uri> afterNanopublicationUri, final int limit) {
+            final ImmutableList.Builder<Uri> resultBuilder = ImmutableList.builder();
+            if (limit <= 0) {
+                return resultBuilder.build();
+            }
+            @Nullable final String afterNanopublicationUriString = afterNanopublicationUri.map(Uri::toString).orElse(null);
+            final int firstBucket = afterNanopublicationUriString != null ? getBucket(afterNanopublicationUriString) : 0;
+            int resultCount = 0;
+            for (int bucket = firstBucket; bucket < BUCKETS_COUNT; bucket++) {
+                final List<String> bucketNanopublicationUris = new ArrayList<>();
+                model.listSubjectsWithProperty(BUCKET, model.createTypedLiteral(bucket)).forEachRemaining(subject -> bucketNanopublicationUris.add(subject.getURI()));
+                Collections.sort(bucketNanopublicationUris);
+                for (final String nanopublicationUri : bucketNanopublicationUris) {
+                    if (bucket == firstBucket && afterNanopublicationUriString != null && nanopublicationUri.compareTo(afterNanopublicationUriString) <= 0) {
+                        continue;
+                    }
+                    resultBuilder.add(Uri.parse(nanopublicationUri));
+                    if (++resultCount == limit) {
+                        return resultBuilder.build();
+                    }
+                }
+            }
+            return resultBuilder.build();
+        }
+
+        private Optional<Uri> getGraphName(final Resource nanopublicationResource, final Property property) {
+            @Nullable final Statement statement = model.getProperty(nanopublicationResource, property);
+            return statement != null ? Optional.of(Uri.parse(statement.getResource().getURI())) : Optional.empty();
+        }
+
+        private void put(final Resource nanopublicationResource, final NanopublicationGraphNames nanopublicationGraphNames) {
+            model.add(nanopublicationResource, BUCKET, model.createTypedLiteral(getBucket(nanopublicationResource.getURI())));
+            model.add(nanopublicationResource, HAS_ASSERTION_GRAPH, ResourceFactory.createResource(nanopublicationGraphNames.assertionGraphName.toString()));
+            model.add(nanopublicationResource, HAS_HEAD_GRAPH, ResourceFactory.createResource(nanopublicationGraphNames.headGraphName.toString()));
+            model.add(nanopublicationResource, HAS_PROVENANCE_GRAPH, ResourceFactory.createResource(nanopublicationGraphNames.provenanceGraphName.toString()));
+            model.add(nanopublicationResource, HAS_PUBLICATION_INFO_GRAPH, ResourceFactory.createResource(nanopublicationGraphNames.publicationInfoGraphName.toString()));
+        }
+
+        public final void putNanopublication(final Nanopublication nanopublication) {
+            put(
+                    ResourceFactory.createResource(nanopublication.getUri().toString()),
+                    new NanopublicationGraphNames(
+                            nanopublication.getAssertion().getName(),
+                            nanopublication.getHead().getName(),
+                            nanopublication.getProvenance().getName(),
+                            nanopublication.getPublicationInfo().getName()
+                    )
+            );
+        }
+    }
+
+    private interface AllAssertionsUnionGraph {
+        void deleteNanopublication(Model nanopublicationAssertions, AssertionStatementReferences assertionStatementReferences);
+
+        Model get();
+
+        void putNanopublications(NanopublicationIndex nanopublicationIndex, ImmutableList<Nanopublication> nanopublications);
+
+        QueryExecution query(Query query);
+
+        void rebuild(NanopublicationIndex nanopublicationIndex);
+    }
+
+    private final static class MaterializedAllAssertionsUnionGraph implements AllAssertionsUnionGraph {
+        private final static Uri NAME = Uri.parse("urn:twks:assertions:all");
+        private final QuadStoreTransaction quadStoreTransaction;
+
+        public MaterializedAllAssertionsUnionGraph(final QuadStoreTransaction quadStoreTransaction) {
+            this.quadStoreTransaction = checkNotNull(quadStoreTransaction);
+        }
+
+        /**
+         * A store written with virtualAssertionsUnion has assertions but no union graph. Fail rather than answer from an empty union.
+         */
+        private void checkExists() {
+            if (containsNamedGraph(quadStoreTransaction, NAME)) {
+                return;
+            }
+            try (final QueryExecution queryExecution = quadStoreTransaction.query(NanopublicationQueries.HAS_ASSERTIONS_QUERY)) {
+                if (queryExecution.execAsk()) {
+                    throw new IllegalStateException("the store has assertions but no materialized all assertions union graph: it was written with virtualAssertionsUnion. Enable virtualAssertionsUnion, or write to the store once to rebuild the union graph.");
+                }
+            }
+        }
+
+        @Override
+        public final void deleteNanopublication(final Model nanopublicationAssertions, final AssertionStatementReferences assertionStatementReferences) {
+            final Model unionGraph;
+            try {
+                unionGraph = quadStoreTransaction.getNamedGraph(NAME);
+            } catch (final NoSuchNamedGraphException e) {
+                return;
+            }
+
+            final List<Statement> retractedStatements = new ArrayList<>();
+            nanopublicationAssertions.listStatements().forEachRemaining(statement -> {
+                if (!assertionStatementReferences.hasReferringNanopublication(statement)) {
+                    retractedStatements.add(statement);
+                }
+            });
+            unionGraph.remove(retractedStatements);
+        }
+
+        @Override
         public final Model get() {
+            checkExists();
             try {
                 return quadStoreTransaction.getNamedGraph(NAME);
             } catch (final NoSuchNamedGraphException e) {
@@ -239,13 +695,118 @@ public abstract class QuadStoreTwksTransaction<TwksT extends AbstractTwks<TwksCo
             }
         }
 
-        public final void putNanopublication(final Nanopublication nanopublication) {
-            quadStoreTransaction.getOrCreateNamedGraph(NAME).add(nanopublication.getAssertion().getModel());
+        @Override
+        public final void putNanopublications(final NanopublicationIndex nanopublicationIndex, final ImmutableList<Nanopublication> nanopublications) {
+            if (!containsNamedGraph(quadStoreTransaction, NAME)) {
+                // The union graph is missing or empty. Rebuild it in case the store was written with virtualAssertionsUnion.
+                // The nanopublications are already in the index, so they're included.
+                rebuild(nanopublicationIndex);
+                return;
+            }
+
+            final Model unionGraph = quadStoreTransaction.getOrCreateNamedGraph(NAME);
+            if (nanopublications.size() == 1) {
+                unionGraph.add(nanopublications.get(0).getAssertion().getModel());
+                return;
+            }
+            final Model assertions = ModelFactory.createDefaultModel();
+            for (final Nanopublication nanopublication : nanopublications) {
+                assertions.add(nanopublication.getAssertion().getModel());
+            }
+            unionGraph.add(assertions);
+        }
+
+        @Override
+        public final QueryExecution query(final Query query) {
+            checkExists();
+            final Query unionGraphQuery = query.cloneQuery();
+            unionGraphQuery.addGraphURI(NAME.toString());
+            return quadStoreTransaction.query(unionGraphQuery);
+        }
+
+        @Override
+        public final void rebuild(final NanopublicationIndex nanopublicationIndex) {
+            quadStoreTransaction.removeNamedGraph(NAME);
+            final Model unionGraph = quadStoreTransaction.getOrCreateNamedGraph(NAME);
+            long assertionGraphsCount = 0;
+            for (final Uri assertionGraphName : nanopublicationIndex.getAssertionGraphNames()) {
+                try {
+                    unionGraph.add(quadStoreTransaction.getNamedGraph(assertionGraphName));
+                } catch (final NoSuchNamedGraphException e) {
+                    // An empty assertion graph
+                    continue;
+                }
+                assertionGraphsCount++;
+            }
+            if (assertionGraphsCount > 0) {
+                logger.info("built materialized all assertions union graph from {} assertion graph(s)", assertionGraphsCount);
+            }
+        }
+    }
+
+    /**
+     * Union of all assertion graphs, evaluated at query time rather than stored as a separate copy.
+     * <p>
+     * The union is a view over the quad store's named graphs restricted to the assertion graphs in the nanopublication index,
+     * so a query only touches the statements it matches.
+     */
+    private final static class VirtualAllAssertionsUnionGraph implements AllAssertionsUnionGraph {
+        private final Optional<NanopublicationIndex> nanopublicationIndex;
+        private final QuadStoreTransaction quadStoreTransaction;
+
+        public VirtualAllAssertionsUnionGraph(final Optional<NanopublicationIndex> nanopublicationIndex, final QuadStoreTransaction quadStoreTransaction) {
+            this.nanopublicationIndex = checkNotNull(nanopublicationIndex);
+            this.quadStoreTransaction = checkNotNull(quadStoreTransaction);
+        }
+
+        @Override
+        public final void deleteNanopublication(final Model nanopublicationAssertions, final AssertionStatementReferences assertionStatementReferences) {
+            removeMaterializedUnionGraph();
+        }
+
+        @Override
+        public final Model get() {
+            return quadStoreTransaction.getUnionGraph(newAssertionGraphNameFilter(), getAssertionGraphNames());
+        }
+
+        private Optional<Iterable<Uri>> getAssertionGraphNames() {
+            return nanopublicationIndex.map(NanopublicationIndex::iterateAssertionGraphNames);
+        }
+
+        private Predicate<Uri> newAssertionGraphNameFilter() {
+            if (nanopublicationIndex.isPresent()) {
+                // The store's internal graphs are never assertion graphs, so skip the index lookup for them.
+                return graphName -> !graphName.toString().startsWith(InternalGraphsHidingTransform.INTERNAL_GRAPH_NAME_PREFIX) && nanopublicationIndex.get().getAssertionGraphNanopublicationUri(graphName).isPresent();
+            }
+            // A store written before the index existed, which hasn't been written to since
+            return graphName -> {
+                try (final QueryExecution queryExecution = quadStoreTransaction.query(NanopublicationQueries.IS_ASSERTION_GRAPH_QUERY.bind("A", graphName))) {
+                    return queryExecution.execAsk();
+                }
+            };
+        }
+
+        @Override
+        public final void putNanopublications(final NanopublicationIndex nanopublicationIndex, final ImmutableList<Nanopublication> nanopublications) {
+            removeMaterializedUnionGraph();
         }
 
+        @Override
         public final QueryExecution query(final Query query) {
-            query.addGraphURI(NAME.toString());
-            return quadStoreTransaction.query(query);
+            return quadStoreTransaction.queryUnionGraph(query, newAssertionGraphNameFilter(), getAssertionGraphNames());
+        }
+
+        @Override
+        public final void rebuild(final NanopublicationIndex nanopublicationIndex) {
+            removeMaterializedUnionGraph();
+        }
+
+        private void removeMaterializedUnionGraph() {
+            // Migrate a store that was written with the materialized union graph on the first write in virtual mode.
+            if (quadStoreTransaction.containsNamedGraph(MaterializedAllAssertionsUnionGraph.NAME)) {
+                logger.info("removing materialized all assertions union graph {}", MaterializedAllAssertionsUnionGraph.NAME);
+                quadStoreTransaction.removeNamedGraph(MaterializedAllAssertionsUnionGraph.NAME);
+            }
         }
     }
 
@@ -266,7 +827,7 @@ public abstract class QuadStoreTwksTransaction<TwksT extends AbstractTwks<TwksCo
             }
         }
 
-        public final void deleteNanopublication(final Uri nanopublicationUri) {
+        public final void deleteNanopublication(final Uri nanopublicationUri, final Model nanopublicationAssertions, final AssertionStatementReferences assertionStatementReferences) {
             final Model index;
             try {
                 index = checkNotNull(quadStoreTransaction.getNamedGraph(INDEX_GRAPH_NAME));
@@ -276,7 +837,7 @@ public abstract class QuadStoreTwksTransaction<TwksT extends AbstractTwks<TwksCo
 
             final Resource nanopublicationResource = ResourceFactory.createResource(nanopublicationUri.toString());
 
-            final List<Uri> unionGraphNames = new ArrayList<>();
+            final List<Resource> unionGraphResources = new ArrayList<>();
             index.listObjectsOfProperty(nanopublicationResource, SIO.isAbout).forEachRemaining(object -> {
                 if (!object.isURIResource()) {
                     return;
@@ -285,20 +846,85 @@ public abstract class QuadStoreTwksTransaction<TwksT extends AbstractTwks<TwksCo
                 if (!resource.getURI().startsWith(UNION_GRAPH_NAME_PREFIX)) {
                     return;
                 }
-                unionGraphNames.add(Uri.parse(resource.getURI()));
+                unionGraphResources.add(resource);
             });
 
             index.removeAll(nanopublicationResource, SIO.isAbout, null);
 
+            for (final Resource unionGraphResource : unionGraphResources) {
+                final Uri unionGraphName = Uri.parse(unionGraphResource.getURI());
+                if (!index.listSubjectsWithProperty(SIO.isAbout, unionGraphResource).hasNext()) {
+                    // No other nanopublication is about this ontology
+                    quadStoreTransaction.removeNamedGraph(unionGraphName);
+                    continue;
+                }
+
+                final Model unionGraph;
+                try {
+                    unionGraph = quadStoreTransaction.getNamedGraph(unionGraphName);
+                } catch (final NoSuchNamedGraphException e) {
+                    continue;
+                }
+
+                // Retract a statement if none of the nanopublications that still refer to it are about this ontology.
+                final List<Statement> retractedStatements = new ArrayList<>();
+                nanopublicationAssertions.listStatements().forEachRemaining(statement -> {
+                    if (!assertionStatementReferences.anyReferringNanopublication(statement, referringNanopublicationUri -> index.contains(ResourceFactory.createResource(referringNanopublicationUri.toString()), SIO.isAbout, unionGraphResource))) {
+                        retractedStatements.add(statement);
+                    }
+                });
+                unionGraph.remove(retractedStatements);
+            }
+        }
+
+        public final void deleteAll() {
+            final Model index;
+            try {
+                index = quadStoreTransaction.getNamedGraph(INDEX_GRAPH_NAME);
+            } catch (final NoSuchNamedGraphException e) {
+                return;
+            }
+
+            final Set<Uri> unionGraphNames = new HashSet<>();
+            index.listObjectsOfProperty(SIO.isAbout).forEachRemaining(object -> {
+                if (object.isURIResource() && object.asResource().getURI().startsWith(UNION_GRAPH_NAME_PREFIX)) {
+                    unionGraphNames.add(Uri.parse(object.asResource().getURI()));
+                }
+            });
             for (final Uri unionGraphName : unionGraphNames) {
                 quadStoreTransaction.removeNamedGraph(unionGraphName);
             }
+            quadStoreTransaction.removeNamedGraph(INDEX_GRAPH_NAME);
         }
 
         public final Model get(final Uri ontologyUri) throws NoSuchNamedGraphException {
             return quadStoreTransaction.getNamedGraph(buildUnionGraphName(ontologyUri));
         }
 
+        /**
+         * Get the union of several ontologies' union graphs.
+         * <p>
+         * A single ontology's union graph is returned as stored. Several are combined into a read-only view over their stored union graphs, so only the requested graphs are read.
+         */
+        public final Model getUnion(final ImmutableSet<Uri> ontologyUris) {
+            final ImmutableList.Builder<Graph> unionGraphsBuilder = ImmutableList.builder();
+            for (final Uri ontologyUri : ontologyUris) {
+                try {
+                    unionGraphsBuilder.add(get(ontologyUri).getGraph());
+                } catch (final NoSuchNamedGraphException e) {
+                    continue;
+                }
+            }
+            final ImmutableList<Graph> unionGraphs = unionGraphsBuilder.build();
+            if (unionGraphs.size() == 1) {
+                // A reference to the stored union graph rather than a copy, so it can be streamed from the transaction
+                return ModelFactory.createModelForGraph(unionGraphs.get(0));
+            }
+            final Model result = unionGraphs.isEmpty() ? ModelFactory.createDefaultModel() : ModelFactory.createModelForGraph(new OrderedUnionGraph(unionGraphs));
+            Vocabularies.setNsPrefixes(result);
+            return result;
+        }
+
         public final void putNanopublication(final Nanopublication nanopublication) {
             // For each ontology the nanopublication "is about", add the nanopublication's assertions to that ontology's assertions union
             // We keep track of these per-ontology assertions union graphs with a separate "index" graph with statements of the form
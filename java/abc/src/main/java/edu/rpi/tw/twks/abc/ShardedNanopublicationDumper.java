@@ -0,0 +1,221 @@
+package edu.rpi.tw.twks.abc;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import edu.rpi.tw.twks.nanopub.MalformedNanopublicationException;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.nanopub.NanopublicationConsumer;
+import edu.rpi.tw.twks.nanopub.NanopublicationPart;
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonArray;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.core.Quad;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Dump nanopublications to a fixed number of gzipped N-Quads shard files, plus a manifest.json with per-shard counts and SHA-256 checksums.
+ * <p>
+ * Nanopublications are read on the calling thread, which must be the transaction's thread, and copied to quads. Each shard is serialized, compressed and digested on a worker thread of its own.
+ * A nanopublication is assigned to a shard by its URI, so the same store dumps to the same shards.
+ * The shard files aren't named after nanopublication URIs, so unlike the one-file-per-nanopublication dump there are no file name collisions to track.
+ * <p>
+ * Shard files are overwritten in place. The previous manifest is deleted before any of them are, and shard files left over from a previous dump with more shards are deleted before the new manifest is written,
+ * so the directory only has a manifest when it's complete and matches it.
+ */
+final class ShardedNanopublicationDumper {
+    final static String MANIFEST_FILE_NAME = "manifest.json";
+    private final static int QUEUE_CAPACITY = 1000;
+    private final static Pattern SHARD_FILE_NAME_PATTERN = Pattern.compile("nanopublications-(\\d{1,18})\\.nq\\.gz");
+    private final static Logger logger = LoggerFactory.getLogger(ShardedNanopublicationDumper.class);
+    private final Path dumpDirectoryPath;
+    private final int shardsCount;
+
+    ShardedNanopublicationDumper(final Path dumpDirectoryPath, final int shardsCount) {
+        checkArgument(shardsCount > 0);
+        this.dumpDirectoryPath = checkNotNull(dumpDirectoryPath);
+        this.shardsCount = shardsCount;
+    }
+
+    static String getShardFileName(final int shardIndex) {
+        return String.format("nanopublications-%05d.nq.gz", shardIndex);
+    }
+
+    /**
+     * Delete shard files beyond this dump's shards, left over from a previous dump with more shards.
+     */
+    private void deleteStaleShardFiles() throws IOException {
+        final List<Path> staleShardFilePaths = new ArrayList<>();
+        try (final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dumpDirectoryPath)) {
+            for (final Path filePath : directoryStream) {
+                final Matcher matcher = SHARD_FILE_NAME_PATTERN.matcher(filePath.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(1)) >= shardsCount) {
+                    staleShardFilePaths.add(filePath);
+                }
+            }
+        }
+        for (final Path staleShardFilePath : staleShardFilePaths) {
+            logger.info("deleting stale shard file {}", staleShardFilePath);
+            Files.delete(staleShardFilePath);
+        }
+    }
+
+    /**
+     * @param getNanopublications called once on the current thread to feed every nanopublication to the dump
+     */
+    final void dump(final Consumer<NanopublicationConsumer> getNanopublications) throws IOException {
+        // Until the new manifest is written, the shards don't match the old one
+        Files.deleteIfExists(dumpDirectoryPath.resolve(MANIFEST_FILE_NAME));
+
+        final List<BlockingQueue<ImmutableList<Quad>>> shardQueues = new ArrayList<>(shardsCount);
+        final List<Future<JsonObject>> shardFutures = new ArrayList<>(shardsCount);
+        final ExecutorService executor = Executors.newFixedThreadPool(shardsCount, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("twks-dump-shard-%d").build());
+        try {
+            for (int shardIndex = 0; shardIndex < shardsCount; shardIndex++) {
+                final BlockingQueue<ImmutableList<Quad>> shardQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+                shardQueues.add(shardQueue);
+                final Path shardFilePath = dumpDirectoryPath.resolve(getShardFileName(shardIndex));
+                shardFutures.add(executor.submit(() -> writeShard(shardFilePath, shardQueue)));
+            }
+
+            getNanopublications.accept(new NanopublicationConsumer() {
+                @Override
+                public void accept(final Nanopublication nanopublication) {
+                    // Copy the nanopublication out of the store on this thread, since the parts may be views on the transaction
+                    final ImmutableList.Builder<Quad> quadsBuilder = ImmutableList.builder();
+                    for (final NanopublicationPart nanopublicationPart : new NanopublicationPart[]{nanopublication.getHead(), nanopublication.getAssertion(), nanopublication.getProvenance(), nanopublication.getPublicationInfo()}) {
+                        final Node graphNode = NodeFactory.createURI(nanopublicationPart.getName().toString());
+                        nanopublicationPart.getModel().getGraph().find().forEachRemaining(triple -> quadsBuilder.add(new Quad(graphNode, triple)));
+                    }
+                    final int shardIndex = Math.floorMod(nanopublication.getUri().toString().hashCode(), shardsCount);
+                    put(shardQueues.get(shardIndex), shardFutures.get(shardIndex), quadsBuilder.build());
+                }
+
+                @Override
+                public void onMalformedNanopublicationException(final MalformedNanopublicationException exception) {
+                    logger.error("malformed nanopublication: ", exception);
+                }
+            });
+
+            for (int shardIndex = 0; shardIndex < shardsCount; shardIndex++) {
+                // An empty list marks the end of the shard
+                put(shardQueues.get(shardIndex), shardFutures.get(shardIndex), ImmutableList.of());
+            }
+
+            final JsonArray shardsJson = new JsonArray();
+            long nanopublicationsCount = 0;
+            for (final Future<JsonObject> shardFuture : shardFutures) {
+                final JsonObject shardJson = getShardResult(shardFuture);
+                nanopublicationsCount += shardJson.get("nanopublications").getAsNumber().value().longValue();
+                shardsJson.add(shardJson);
+            }
+
+            deleteStaleShardFiles();
+
+            final JsonObject manifestJson = new JsonObject();
+            manifestJson.put("compression", "gzip");
+            manifestJson.put("contentType", Lang.NQUADS.getContentType().getContentType());
+            manifestJson.put("nanopublications", nanopublicationsCount);
+            manifestJson.put("shards", shardsJson);
+            try (final OutputStream manifestOutputStream = new BufferedOutputStream(Files.newOutputStream(dumpDirectoryPath.resolve(MANIFEST_FILE_NAME)))) {
+                JSON.write(manifestOutputStream, manifestJson);
+            }
+            logger.info("dumped {} nanopublication(s) to {} shard(s) in {}", nanopublicationsCount, shardsCount, dumpDirectoryPath);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static JsonObject getShardResult(final Future<JsonObject> shardFuture) throws IOException {
+        try {
+            return shardFuture.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Put on a shard queue, blocking while it's full, unless the shard's worker has failed.
+     */
+    private static void put(final BlockingQueue<ImmutableList<Quad>> shardQueue, final Future<JsonObject> shardFuture, final ImmutableList<Quad> item) {
+        try {
+            while (!shardQueue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                if (shardFuture.isDone()) {
+                    // The worker stopped consuming, which can only be because it failed. Surface its exception.
+                    try {
+                        getShardResult(shardFuture);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    throw new IllegalStateException();
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JsonObject writeShard(final Path shardFilePath, final BlockingQueue<ImmutableList<Quad>> shardQueue) throws IOException, InterruptedException {
+        final CountingOutputStream countingOutputStream;
+        final HashingOutputStream hashingOutputStream;
+        long nanopublicationsCount = 0;
+        long quadsCount = 0;
+        // The digest and byte count are of the compressed file, so the shard can be checked with standard tools.
+        try (final OutputStream fileOutputStream = Files.newOutputStream(shardFilePath)) {
+            countingOutputStream = new CountingOutputStream(new BufferedOutputStream(fileOutputStream));
+            hashingOutputStream = new HashingOutputStream(Hashing.sha256(), countingOutputStream);
+            try (final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(hashingOutputStream)) {
+                final StreamRDF stream = StreamRDFWriter.getWriterStream(gzipOutputStream, Lang.NQUADS);
+                stream.start();
+                while (true) {
+                    final ImmutableList<Quad> nanopublicationQuads = shardQueue.take();
+                    if (nanopublicationQuads.isEmpty()) {
+                        break;
+                    }
+                    nanopublicationQuads.forEach(stream::quad);
+                    nanopublicationsCount++;
+                    quadsCount += nanopublicationQuads.size();
+                }
+                stream.finish();
+            }
+        }
+
+        final JsonObject result = new JsonObject();
+        result.put("bytes", countingOutputStream.getCount());
+        result.put("file", shardFilePath.getFileName().toString());
+        result.put("nanopublications", nanopublicationsCount);
+        result.put("quads", quadsCount);
+        result.put("sha256", hashingOutputStream.hash().toString());
+        return result;
+    }
+}
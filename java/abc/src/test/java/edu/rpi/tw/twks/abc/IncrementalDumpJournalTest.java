@@ -0,0 +1,109 @@
+package edu.rpi.tw.twks.abc;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import edu.rpi.tw.twks.api.TwksTransaction;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.nanopub.NanopublicationParser;
+import edu.rpi.tw.twks.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public final class IncrementalDumpJournalTest {
+    private final TestData testData;
+    private Path dumpDirectoryPath;
+    private ExecutorService executor;
+
+    public IncrementalDumpJournalTest() throws Exception {
+        testData = new TestData();
+    }
+
+    private List<Path> listDumpFiles(final String prefix) throws Exception {
+        try (final Stream<Path> filePaths = Files.list(dumpDirectoryPath)) {
+            return filePaths.filter(filePath -> filePath.getFileName().toString().startsWith(prefix)).collect(Collectors.toList());
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        dumpDirectoryPath = Files.createTempDirectory(getClass().getSimpleName());
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        MoreFiles.deleteRecursively(dumpDirectoryPath, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test(timeout = 10000)
+    public void testDumpDuringCommit() throws Exception {
+        final IncrementalDumpJournal journal = new IncrementalDumpJournal(dumpDirectoryPath);
+        final Nanopublication nanopublication = testData.specNanopublication;
+        final AtomicBoolean committed = new AtomicBoolean();
+
+        // Full dump for the base
+        journal.dump(() -> mock(TwksTransaction.class));
+
+        // A commit that has appended to the journal but not yet committed to the store
+        final CountDownLatch appended = new CountDownLatch(1);
+        final CountDownLatch releaseCommit = new CountDownLatch(1);
+        final Future<?> commitFuture = executor.submit(() -> journal.commit(ImmutableList.of(IncrementalDumpJournal.newEntry(nanopublication.getUri())), () -> {
+            appended.countDown();
+            try {
+                releaseCommit.await();
+            } catch (final InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            committed.set(true);
+        }));
+        appended.await();
+
+        // The snapshot sees the nanopublication iff the commit finished before the transaction began
+        final Future<?> dumpFuture = executor.submit(() -> {
+            journal.dump(() -> {
+                final TwksTransaction transaction = mock(TwksTransaction.class);
+                when(transaction.getNanopublication(nanopublication.getUri())).thenReturn(committed.get() ? Optional.of(nanopublication) : Optional.empty());
+                return transaction;
+            });
+            return null;
+        });
+        Thread.sleep(200);
+        assertFalse(dumpFuture.isDone());
+        releaseCommit.countDown();
+        commitFuture.get();
+        dumpFuture.get();
+
+        final List<Path> deltaFilePaths = listDumpFiles("delta-");
+        assertEquals(1, deltaFilePaths.size());
+        final ImmutableList<Nanopublication> delta = NanopublicationParser.builder().build().parseFile(deltaFilePaths.get(0));
+        assertEquals(1, delta.size());
+        assertTrue(delta.get(0).isIsomorphicWith(nanopublication));
+
+        final List<Path> tombstonesFilePaths = listDumpFiles("tombstones-");
+        assertEquals(1, tombstonesFilePaths.size());
+        assertTrue(Files.readAllLines(tombstonesFilePaths.get(0), Charsets.UTF_8).isEmpty());
+    }
+}
@@ -0,0 +1,39 @@
+package edu.rpi.tw.twks.abc;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class OrderedUnionGraphTest {
+    private static Statement newStatement(final String comment) {
+        return ResourceFactory.createStatement(ResourceFactory.createResource("http://example.com/subject"), RDFS.comment, ResourceFactory.createPlainLiteral(comment));
+    }
+
+    @Test
+    public void testFindDistinct() {
+        final Model first = ModelFactory.createDefaultModel().add(newStatement("first")).add(newStatement("shared"));
+        final Model second = ModelFactory.createDefaultModel().add(newStatement("shared")).add(newStatement("second"));
+        final Model third = ModelFactory.createDefaultModel().add(newStatement("shared")).add(newStatement("second"));
+
+        final OrderedUnionGraph sut = new OrderedUnionGraph(ImmutableList.of(first.getGraph(), second.getGraph(), third.getGraph()));
+
+        assertEquals(3, sut.find(Node.ANY, Node.ANY, Node.ANY).toList().size());
+        assertEquals(1, sut.find(Node.ANY, Node.ANY, NodeFactory.createLiteral("shared")).toList().size());
+        assertTrue(sut.contains(Triple.create(Node.ANY, Node.ANY, NodeFactory.createLiteral("second"))));
+    }
+
+    @Test
+    public void testFindEmpty() {
+        assertTrue(new OrderedUnionGraph(ImmutableList.of()).isEmpty());
+    }
+}
@@ -0,0 +1,101 @@
+package edu.rpi.tw.twks.abc;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.nanopub.NanopublicationParser;
+import edu.rpi.tw.twks.test.TestData;
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.atlas.json.JsonValue;
+import org.apache.jena.riot.Lang;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class ShardedNanopublicationDumperTest {
+    private final TestData testData;
+    private Path tempDirPath;
+
+    public ShardedNanopublicationDumperTest() throws Exception {
+        testData = new TestData();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        tempDirPath = Files.createTempDirectory(getClass().getSimpleName());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MoreFiles.deleteRecursively(tempDirPath, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testDump() throws Exception {
+        final ImmutableList<Nanopublication> expected = ImmutableList.of(testData.specNanopublication, testData.secondNanopublication, testData.ontologyNanopublication);
+
+        new ShardedNanopublicationDumper(tempDirPath, 2).dump(consumer -> expected.forEach(consumer::accept));
+
+        final JsonObject manifest = JSON.read(tempDirPath.resolve(ShardedNanopublicationDumper.MANIFEST_FILE_NAME).toString());
+        assertEquals(expected.size(), manifest.get("nanopublications").getAsNumber().value().intValue());
+        assertEquals(2, manifest.get("shards").getAsArray().size());
+
+        final List<Nanopublication> actual = new ArrayList<>();
+        for (final JsonValue shardJson : manifest.get("shards").getAsArray()) {
+            final JsonObject shard = shardJson.getAsObject();
+            final Path shardFilePath = tempDirPath.resolve(shard.get("file").getAsString().value());
+            assertEquals(Files.size(shardFilePath), shard.get("bytes").getAsNumber().value().longValue());
+            assertEquals(MoreFiles.asByteSource(shardFilePath).hash(Hashing.sha256()).toString(), shard.get("sha256").getAsString().value());
+
+            final String shardString;
+            try (final InputStream inputStream = new GZIPInputStream(Files.newInputStream(shardFilePath))) {
+                shardString = new String(ByteStreams.toByteArray(inputStream), StandardCharsets.UTF_8);
+            }
+            final int shardNanopublicationsCount = shard.get("nanopublications").getAsNumber().value().intValue();
+            if (shardNanopublicationsCount > 0) {
+                final ImmutableList<Nanopublication> shardNanopublications = NanopublicationParser.builder().setLang(Lang.NQUADS).build().parseString(shardString);
+                assertEquals(shardNanopublicationsCount, shardNanopublications.size());
+                actual.addAll(shardNanopublications);
+            }
+        }
+
+        assertEquals(expected.size(), actual.size());
+        for (final Nanopublication expectedNanopublication : expected) {
+            assertTrue(actual.stream().anyMatch(actualNanopublication -> actualNanopublication.isIsomorphicWith(expectedNanopublication)));
+        }
+    }
+
+    @Test
+    public void testDumpFewerShards() throws Exception {
+        final ImmutableList<Nanopublication> expected = ImmutableList.of(testData.specNanopublication, testData.secondNanopublication, testData.ontologyNanopublication);
+        final Path otherFilePath = tempDirPath.resolve("other.nq.gz");
+        Files.createFile(otherFilePath);
+
+        new ShardedNanopublicationDumper(tempDirPath, 4).dump(consumer -> expected.forEach(consumer::accept));
+        new ShardedNanopublicationDumper(tempDirPath, 2).dump(consumer -> expected.forEach(consumer::accept));
+
+        // Only the second dump's shards are left, and unrelated files are untouched
+        try (final Stream<Path> filePaths = Files.list(tempDirPath)) {
+            assertEquals(ImmutableSet.of(ShardedNanopublicationDumper.getShardFileName(0), ShardedNanopublicationDumper.getShardFileName(1), ShardedNanopublicationDumper.MANIFEST_FILE_NAME, otherFilePath.getFileName().toString()), filePaths.map(filePath -> filePath.getFileName().toString()).collect(ImmutableSet.toImmutableSet()));
+        }
+        final JsonObject manifest = JSON.read(tempDirPath.resolve(ShardedNanopublicationDumper.MANIFEST_FILE_NAME).toString());
+        assertEquals(expected.size(), manifest.get("nanopublications").getAsNumber().value().intValue());
+    }
+}
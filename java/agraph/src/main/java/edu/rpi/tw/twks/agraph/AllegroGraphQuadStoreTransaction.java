@@ -2,17 +2,27 @@ package edu.rpi.tw.twks.agraph;
 
 import com.franz.agraph.jena.*;
 import com.franz.agraph.repository.AGRepositoryConnection;
+import com.franz.agraph.repository.AGValueFactory;
+import com.google.common.collect.ImmutableSet;
 import edu.rpi.tw.twks.abc.NoSuchNamedGraphException;
 import edu.rpi.tw.twks.abc.QuadStoreTransaction;
 import edu.rpi.tw.twks.uri.Uri;
-import org.apache.jena.query.Query;
-import org.apache.jena.query.QueryExecution;
-import org.apache.jena.query.Syntax;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.shared.DoesNotExistException;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.repository.RepositoryResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Optional;
+import java.util.function.Predicate;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 final class AllegroGraphQuadStoreTransaction implements QuadStoreTransaction {
@@ -55,6 +65,23 @@ final class AllegroGraphQuadStoreTransaction implements QuadStoreTransaction {
         return graphMaker.hasGraph(graphName.toString());
     }
 
+    @Override
+    public final boolean containsStatement(final Statement statement, final Predicate<Uri> graphNameFilter) {
+        // Match the statement through the repository API rather than SPARQL, which can't name a blank node.
+        // The nodes are converted the same way the Jena adapter converts them when statements are added, so blank nodes read back from the store match exactly.
+        final Triple triple = statement.asTriple();
+        final AGValueFactory valueFactory = repositoryConnection.getValueFactory();
+        try (final RepositoryResult<org.eclipse.rdf4j.model.Statement> statements = repositoryConnection.getStatements(valueFactory.asResource(triple.getSubject()), valueFactory.asURI(triple.getPredicate()), valueFactory.asValue(triple.getObject()), false)) {
+            while (statements.hasNext()) {
+                final Resource context = statements.next().getContext();
+                if (context instanceof IRI && graphNameFilter.test(Uri.parse(context.stringValue()))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @Override
     public final Model getNamedGraph(final Uri graphName) throws NoSuchNamedGraphException {
         // The last parameter, strict:
@@ -76,11 +103,48 @@ final class AllegroGraphQuadStoreTransaction implements QuadStoreTransaction {
         return new AGModel(graph);
     }
 
+    private ImmutableSet<Uri> getNamedGraphNames(final Predicate<Uri> graphNameFilter) {
+        final ImmutableSet.Builder<Uri> resultBuilder = ImmutableSet.builder();
+        try (final QueryExecution queryExecution = query(QueryFactory.create("select distinct ?G where { graph ?G { } }"))) {
+            for (final ResultSet resultSet = queryExecution.execSelect(); resultSet.hasNext(); ) {
+                final RDFNode g = resultSet.nextSolution().get("G");
+                if (g.isURIResource()) {
+                    final Uri graphName = Uri.parse(g.asResource().getURI());
+                    if (graphNameFilter.test(graphName)) {
+                        resultBuilder.add(graphName);
+                    }
+                }
+            }
+        }
+        return resultBuilder.build();
+    }
+
+    @Override
+    public final Model getUnionGraph(final Predicate<Uri> graphNameFilter, final Optional<Iterable<Uri>> graphNames) {
+        // AllegroGraph graphs can't be combined into a view on the client, so the union is copied.
+        // That's why AllegroGraphTwksConfiguration rejects virtualAssertionsUnion, which would copy all assertions on every request.
+        final Model result = ModelFactory.createDefaultModel();
+        for (final Uri graphName : getNamedGraphNames(graphNameFilter)) {
+            result.add(getOrCreateNamedGraph(graphName));
+        }
+        return result;
+    }
+
     @Override
     public final QueryExecution query(final Query query) {
         return AGQueryExecutionFactory.create(AGQueryFactory.create(query.toString(Syntax.syntaxSPARQL_11)), new AGModel(graphMaker.createGraph()));
     }
 
+    @Override
+    public final QueryExecution queryUnionGraph(final Query query, final Predicate<Uri> graphNameFilter, final Optional<Iterable<Uri>> graphNames) {
+        // The union is evaluated by the server, with a FROM clause per graph, on a copy so the caller's query isn't changed.
+        final Query unionGraphQuery = query.cloneQuery();
+        for (final Uri graphName : getNamedGraphNames(graphNameFilter)) {
+            unionGraphQuery.addGraphURI(graphName.toString());
+        }
+        return query(unionGraphQuery);
+    }
+
     @Override
     public final void removeAllGraphs() {
         repositoryConnection.clear();
@@ -4,6 +4,7 @@ import com.google.common.base.MoreObjects;
 import edu.rpi.tw.twks.configuration.TwksConfiguration;
 import edu.umd.cs.findbugs.annotations.Nullable;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public final class AllegroGraphTwksConfiguration extends TwksConfiguration {
@@ -61,6 +62,8 @@ public final class AllegroGraphTwksConfiguration extends TwksConfiguration {
         @Override
         public final AllegroGraphTwksConfiguration build() {
             checkNotNull(serverUrl, "must set server URL");
+            // AllegroGraph graphs can't be combined into a view on the client, so a virtual union would be copied on every request.
+            checkArgument(!getVirtualAssertionsUnion(), "virtualAssertionsUnion isn't supported on AllegroGraph");
             return new AllegroGraphTwksConfiguration(this);
         }
 
@@ -0,0 +1,120 @@
+package edu.rpi.tw.twks.api;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.uri.Uri;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.rdf.model.Model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Asynchronous client that runs the operations of a synchronous TwksClient on an executor.
+ * <p>
+ * The operations still block the executor's threads while they run, so the executor bounds the number of operations that run at a time.
+ * Futures for operations beyond that wait in the executor's queue, without a thread of their own.
+ */
+public abstract class AbstractAsyncTwksClient<TwksClientT extends TwksClient> implements AsyncTwksClient {
+    private final TwksClientT client;
+    private final Executor executor;
+
+    protected AbstractAsyncTwksClient(final TwksClientT client, final Executor executor) {
+        this.client = checkNotNull(client);
+        this.executor = checkNotNull(executor);
+    }
+
+    @Override
+    public final CompletableFuture<NanopublicationCrudApi.DeleteNanopublicationResult> deleteNanopublication(final Uri uri) {
+        return CompletableFuture.supplyAsync(() -> client.deleteNanopublication(uri), executor);
+    }
+
+    @Override
+    public final CompletableFuture<ImmutableList<NanopublicationCrudApi.DeleteNanopublicationResult>> deleteNanopublications(final ImmutableList<Uri> uris) {
+        return CompletableFuture.supplyAsync(() -> client.deleteNanopublications(uris), executor);
+    }
+
+    @Override
+    public final CompletableFuture<Void> deleteNanopublications() {
+        return CompletableFuture.runAsync(client::deleteNanopublications, executor);
+    }
+
+    @Override
+    public final CompletableFuture<Void> dump() {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                client.dump();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public final CompletableFuture<Model> getAssertions() {
+        return CompletableFuture.supplyAsync(client::getAssertions, executor);
+    }
+
+    /**
+     * The synchronous client the operations are delegated to.
+     */
+    protected final TwksClientT getClient() {
+        return client;
+    }
+
+    @Override
+    public final TwksVersion getClientVersion() {
+        return client.getClientVersion();
+    }
+
+    @Override
+    public final CompletableFuture<Optional<Nanopublication>> getNanopublication(final Uri uri) {
+        return CompletableFuture.supplyAsync(() -> client.getNanopublication(uri), executor);
+    }
+
+    @Override
+    public final CompletableFuture<Model> getOntologyAssertions(final ImmutableSet<Uri> ontologyUris) {
+        return CompletableFuture.supplyAsync(() -> client.getOntologyAssertions(ontologyUris), executor);
+    }
+
+    @Override
+    public final CompletableFuture<TwksVersion> getServerVersion() {
+        return CompletableFuture.supplyAsync(client::getServerVersion, executor);
+    }
+
+    @Override
+    public final CompletableFuture<ImmutableList<NanopublicationCrudApi.PutNanopublicationResult>> postNanopublications(final ImmutableList<Nanopublication> nanopublications) {
+        return CompletableFuture.supplyAsync(() -> client.postNanopublications(nanopublications), executor);
+    }
+
+    @Override
+    public final CompletableFuture<NanopublicationCrudApi.PutNanopublicationResult> putNanopublication(final Nanopublication nanopublication) {
+        return CompletableFuture.supplyAsync(() -> client.putNanopublication(nanopublication), executor);
+    }
+
+    @Override
+    public final <T> CompletableFuture<T> queryAssertions(final Query query, final Function<QueryExecution, T> resultFunction) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (final QueryExecution queryExecution = client.queryAssertions(query)) {
+                return resultFunction.apply(queryExecution);
+            }
+        }, executor);
+    }
+
+    @Override
+    public final <T> CompletableFuture<T> queryNanopublications(final Query query, final Function<QueryExecution, T> resultFunction) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (final QueryExecution queryExecution = client.queryNanopublications(query)) {
+                return resultFunction.apply(queryExecution);
+            }
+        }, executor);
+    }
+}
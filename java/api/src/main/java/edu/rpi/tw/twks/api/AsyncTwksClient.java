@@ -0,0 +1,68 @@
+package edu.rpi.tw.twks.api;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.uri.Uri;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.rdf.model.Model;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Asynchronous client for a TWKS server.
+ * <p>
+ * Each method starts the operation and returns a future that completes with its result, or exceptionally with the exception the corresponding TwksClient method would throw.
+ * See TwksClient for the semantics of the operations.
+ * <p>
+ * The implementations are bounded-executor wrappers over a blocking TwksClient, not non-blocking I/O: each operation in progress holds a thread of the client's pool,
+ * and operations beyond the pool's size wait in a queue. The futures only keep the caller's thread free.
+ */
+public interface AsyncTwksClient extends AutoCloseable {
+    /**
+     * Wait for operations in progress to complete and release the client's resources.
+     */
+    @Override
+    void close();
+
+    CompletableFuture<NanopublicationCrudApi.DeleteNanopublicationResult> deleteNanopublication(Uri uri);
+
+    CompletableFuture<ImmutableList<NanopublicationCrudApi.DeleteNanopublicationResult>> deleteNanopublications(ImmutableList<Uri> uris);
+
+    CompletableFuture<Void> deleteNanopublications();
+
+    CompletableFuture<Void> dump();
+
+    CompletableFuture<Model> getAssertions();
+
+    TwksVersion getClientVersion();
+
+    CompletableFuture<Optional<Nanopublication>> getNanopublication(Uri uri);
+
+    CompletableFuture<Model> getOntologyAssertions(ImmutableSet<Uri> ontologyUris);
+
+    CompletableFuture<TwksVersion> getServerVersion();
+
+    CompletableFuture<ImmutableList<NanopublicationCrudApi.PutNanopublicationResult>> postNanopublications(ImmutableList<Nanopublication> nanopublications);
+
+    CompletableFuture<NanopublicationCrudApi.PutNanopublicationResult> putNanopublication(Nanopublication nanopublication);
+
+    /**
+     * Query assertion parts of stored nanopublications.
+     *
+     * @param query          query to execute
+     * @param resultFunction function that executes the query and returns its results. The QueryExecution is closed when the function returns, so the function should copy results it keeps, e.g. with ResultSetFactory.copyResults.
+     * @return future that completes with the value returned by resultFunction
+     */
+    <T> CompletableFuture<T> queryAssertions(Query query, Function<QueryExecution, T> resultFunction);
+
+    /**
+     * Query all parts of stored nanopublications.
+     *
+     * @see #queryAssertions(Query, Function)
+     */
+    <T> CompletableFuture<T> queryNanopublications(Query query, Function<QueryExecution, T> resultFunction);
+}
@@ -2,6 +2,8 @@ package edu.rpi.tw.twks.api;
 
 /**
  * Client for a TWKS server.
+ * <p>
+ * postNanopublications puts the whole list in one server transaction, unless the implementation is explicitly configured to split large lists into batches.
  */
 public interface TwksClient extends AdministrationApi, AutoCloseable, AssertionQueryApi, GetAssertionsApi, NanopublicationCrudApi, NanopublicationQueryApi {
     @Override
@@ -1,5 +1,10 @@
 package edu.rpi.tw.twks.api;
 
+import com.google.common.collect.ImmutableList;
+import edu.rpi.tw.twks.uri.Uri;
+
+import java.util.Optional;
+
 /**
  * High-level interface to Twks transactions.
  * <p>
@@ -35,6 +40,16 @@ public interface TwksTransaction extends AdministrationApi, AssertionQueryApi, A
      */
     void commit();
 
+    /**
+     * Get a page of the URIs of the nanopublications in the store, for iterating over all of them.
+     * <p>
+     * The order is stable and determined by the URIs alone, but otherwise up to the implementation.
+     *
+     * @param afterNanopublicationUri if present, start after this nanopublication URI, which doesn't have to be in the store. Usually the last URI of the previous page.
+     * @param limit                   maximum number of URIs to return
+     */
+    ImmutableList<Uri> getNanopublicationUris(Optional<Uri> afterNanopublicationUri, int limit);
+
     /**
      * Get the store this transaction is on.
      */
@@ -27,6 +27,7 @@ import java.util.concurrent.TimeUnit;
 
 public final class CliMain {
     private final static Command[] commands = {
+            new BulkLoadCommand(),
             new DeleteNanopublicationsCommand(),
             new DumpCommand(),
             new PostNanopublicationsCommand(),
@@ -90,18 +91,22 @@ public final class CliMain {
 
         final MetricRegistry metricRegistry = new MetricRegistry();
 
-        try (final TwksClient client = newTwksClient(configurationProperties, metricRegistry)) {
-            @Nullable ConsoleReporter reporter = null;
-            if (reportMetrics) {
-                reporter = ConsoleReporter.forRegistry(metricRegistry).convertRatesTo(TimeUnit.SECONDS).convertDurationsTo(TimeUnit.MILLISECONDS).build();
-                reporter.start(30, TimeUnit.SECONDS);
-            }
-
-            command.run(client, metricRegistry);
+        @Nullable ConsoleReporter reporter = null;
+        if (reportMetrics) {
+            reporter = ConsoleReporter.forRegistry(metricRegistry).convertRatesTo(TimeUnit.SECONDS).convertDurationsTo(TimeUnit.MILLISECONDS).build();
+            reporter.start(30, TimeUnit.SECONDS);
+        }
 
-            if (reporter != null) {
-                reporter.report();
+        if (command.requiresClient()) {
+            try (final TwksClient client = newTwksClient(configurationProperties, metricRegistry)) {
+                command.run(client, metricRegistry);
             }
+        } else {
+            command.run(configurationProperties, metricRegistry);
+        }
+
+        if (reporter != null) {
+            reporter.report();
         }
     }
 
@@ -122,7 +127,7 @@ public final class CliMain {
             clientConfigurationBuilder.set(configurationProperties.subset("twks"));
             final RestTwksClientConfiguration clientConfiguration = clientConfigurationBuilder.build();
             logger.debug("using client with configuration {}", clientConfiguration);
-            return new RestTwksClient(clientConfiguration);
+            return new RestTwksClient(clientConfiguration, metricRegistry);
         }
     }
 }
@@ -21,7 +21,8 @@ public final class CliNanopublicationParser extends NanopublicationParser {
                 args.concurrencyLevel,
                 args.dialect != null ? NanopublicationDialect.valueOf(args.dialect.toUpperCase()) : NanopublicationDialect.SPECIFICATION,
                 args.lang != null ? Optional.ofNullable(RDFLanguages.shortnameToLang(args.lang)) : Optional.empty(),
-                metricRegistry
+                metricRegistry,
+                args.streaming
         );
         this.retry = args.retry >= 0 ? args.retry : 0;
         this.retryDelayS = args.retrayDelayS > 0 ? args.retrayDelayS : 1;
@@ -94,6 +95,8 @@ public final class CliNanopublicationParser extends NanopublicationParser {
         public int retrayDelayS = 1;
         @Parameter(names = {"--retry"}, description = "retry parsing a file n times after a short delay, defaults to no retries")
         public int retry = 0;
+        @Parameter(names = {"--streaming"}, description = "parse nanopublications as they are read instead of reading each file into memory first, for large files in which each nanopublication's graphs are contiguous")
+        public boolean streaming = false;
     }
 
     private final static class BoxedBoolean {
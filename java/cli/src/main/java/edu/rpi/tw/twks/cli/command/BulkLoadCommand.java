@@ -0,0 +1,110 @@
+package edu.rpi.tw.twks.cli.command;
+
+import com.beust.jcommander.Parameter;
+import com.codahale.metrics.MetricRegistry;
+import edu.rpi.tw.twks.api.TwksClient;
+import edu.rpi.tw.twks.cli.CliNanopublicationParser;
+import edu.rpi.tw.twks.nanopub.MalformedNanopublicationException;
+import edu.rpi.tw.twks.nanopub.MalformedNanopublicationRuntimeException;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.nanopub.NanopublicationConsumer;
+import edu.rpi.tw.twks.tdb.Tdb2BulkLoader;
+import edu.rpi.tw.twks.tdb.Tdb2TwksConfiguration;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Build a fresh TDB2 location from nanopublication files with the TDB2 bulk loader.
+ * <p>
+ * Writes to the location directly rather than through the client, so the location must not be in use by a server.
+ */
+public final class BulkLoadCommand extends Command {
+    private final static String[] ALIASES = {"bulkload"};
+    private final static String NAME = "bulk-load";
+    private final static Logger logger = LoggerFactory.getLogger(BulkLoadCommand.class);
+    private final Args args = new Args();
+
+    @Override
+    public String[] getAliases() {
+        return ALIASES;
+    }
+
+    @Override
+    public Args getArgs() {
+        return args;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean requiresClient() {
+        return false;
+    }
+
+    @Override
+    public void run(final TwksClient client, final MetricRegistry metricRegistry) {
+        // The client isn't used: the location is written directly.
+        run(new PropertiesConfiguration(), metricRegistry);
+    }
+
+    @Override
+    public void run(final Configuration configuration, final MetricRegistry metricRegistry) {
+        // Apply the library configuration, such as virtualAssertionsUnion, as a server with the same configuration would.
+        // Support both -Dkey=value and -Dtwks.key=value
+        final Tdb2TwksConfiguration tdb2Configuration = Tdb2TwksConfiguration.builder().setFromEnvironment().set(configuration).set(configuration.subset("twks")).setLocation(Optional.of(args.tdbLocation)).build();
+        logger.info("bulk loading with configuration {}", tdb2Configuration);
+        final Tdb2BulkLoader loader = new Tdb2BulkLoader(tdb2Configuration, metricRegistry);
+
+        final CliNanopublicationParser parser = new CliNanopublicationParser(args, metricRegistry);
+        final NanopublicationConsumer consumer = new NanopublicationConsumer() {
+            @Override
+            public void accept(final Nanopublication nanopublication) {
+                loader.accept(nanopublication);
+            }
+
+            @Override
+            public void onMalformedNanopublicationException(final MalformedNanopublicationException exception) {
+                if (args.continueOnMalformedNanopublication) {
+                    loader.onMalformedNanopublicationException(exception);
+                } else {
+                    throw new MalformedNanopublicationRuntimeException(exception);
+                }
+            }
+        };
+
+        try {
+            for (final String source : args.sources) {
+                parser.parse(source, consumer);
+            }
+        } catch (final RuntimeException e) {
+            logger.error("error bulk loading into {}, discard the location", args.tdbLocation);
+            loader.abort(e);
+            throw e;
+        }
+
+        try {
+            loader.finish();
+        } catch (final RuntimeException e) {
+            logger.error("error indexing bulk loaded nanopublications in {}, discard the location", args.tdbLocation);
+            throw e;
+        }
+    }
+
+    public final static class Args extends CliNanopublicationParser.Args {
+        @Parameter(names = {"--continue-on-malformed-nanopublication"})
+        boolean continueOnMalformedNanopublication = false;
+        @Parameter(required = true, description = "1+ nanopublication file or directory path(s) or URI(s)")
+        List<String> sources = new ArrayList<>();
+        @Parameter(names = {"--tdb-location"}, required = true, description = "path to a new or empty directory for the TDB2 location")
+        String tdbLocation = null;
+    }
+}
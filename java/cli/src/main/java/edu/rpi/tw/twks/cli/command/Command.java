@@ -3,6 +3,7 @@ package edu.rpi.tw.twks.cli.command;
 import com.codahale.metrics.MetricRegistry;
 import edu.rpi.tw.twks.api.TwksClient;
 import edu.rpi.tw.twks.cli.GlobalArgs;
+import org.apache.commons.configuration2.Configuration;
 
 public abstract class Command {
     public String[] getAliases() {
@@ -13,5 +14,19 @@ public abstract class Command {
 
     public abstract String getName();
 
+    /**
+     * Whether the command goes through a TwksClient. Commands that open a store themselves are run with the library configuration instead, so the CLI doesn't open the store first.
+     */
+    public boolean requiresClient() {
+        return true;
+    }
+
     public abstract void run(TwksClient client, MetricRegistry metricRegistry);
+
+    /**
+     * Run a command that doesn't require a client with the library configuration from the command line.
+     */
+    public void run(final Configuration configuration, final MetricRegistry metricRegistry) {
+        throw new UnsupportedOperationException();
+    }
 }
@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -116,7 +117,7 @@ public final class PostNanopublicationsCommand extends Command {
         private final List<Nanopublication> nanopublicationsBuffer = new ArrayList<>();
         private final Timer postNanopublicationsTimer;
         private final Optional<ProgressBar> progressBar;
-        private int postedNanopublicationsCount = 0;
+        private final AtomicInteger postedNanopublicationsCount = new AtomicInteger();
 
         public BufferingNanopublicationConsumer(final MetricRegistry metricRegistry, final Optional<ProgressBar> progressBar) {
             postNanopublicationsTimer = metricRegistry.timer(MetricRegistry.name(PostNanopublicationsCommand.class, "postNanopublicationsTimer"));
@@ -164,7 +165,8 @@ public final class PostNanopublicationsCommand extends Command {
             try (final Timer.Context timerContext = postNanopublicationsTimer.time()) {
                 postNanopublicationsImpl(nanopublicationsToPost);
             }
-            postedNanopublicationsCount += nanopublicationsToPost.size();
+            // Posts run concurrently when the parser's concurrency level is > 1
+            final int postedNanopublicationsCount = this.postedNanopublicationsCount.addAndGet(nanopublicationsToPost.size());
             if (progressBar.isPresent()) {
                 progressBar.get().stepBy(nanopublicationsToPost.size());
             } else {
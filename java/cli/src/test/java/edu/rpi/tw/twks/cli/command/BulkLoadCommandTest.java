@@ -0,0 +1,69 @@
+package edu.rpi.tw.twks.cli.command;
+
+import com.codahale.metrics.MetricRegistry;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.tdb.Tdb2Twks;
+import edu.rpi.tw.twks.tdb.Tdb2TwksConfiguration;
+import edu.rpi.tw.twks.test.TestData;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class BulkLoadCommandTest extends AbstractCommandTest<BulkLoadCommand> {
+    @Override
+    protected BulkLoadCommand newCommand() {
+        return new BulkLoadCommand();
+    }
+
+    private Path setSourceAndLocation() throws IOException {
+        final Path sourceDirectoryPath = Files.createDirectory(getTempDirPath().resolve("source"));
+        try (final FileWriter fileWriter = new FileWriter(new File(sourceDirectoryPath.toFile(), "test.trig"))) {
+            fileWriter.write(TestData.SPEC_NANOPUBLICATION_TRIG);
+        }
+        final Path tdbLocationPath = getTempDirPath().resolve("tdb");
+        command.getArgs().sources.add(sourceDirectoryPath.toString());
+        command.getArgs().tdbLocation = tdbLocationPath.toString();
+        return tdbLocationPath;
+    }
+
+    @Test
+    public void testConfiguration() throws IOException {
+        final Path tdbLocationPath = setSourceAndLocation();
+        final PropertiesConfiguration configuration = new PropertiesConfiguration();
+        configuration.setProperty("twks.virtualAssertionsUnion", "true");
+        command.run(configuration, new MetricRegistry());
+
+        // Loaded without a materialized assertions union graph
+        try (final Tdb2Twks twks = new Tdb2Twks(Tdb2TwksConfiguration.builder().setLocation(Optional.of(tdbLocationPath.toString())).build(), new MetricRegistry())) {
+            try {
+                twks.getAssertions();
+                fail();
+            } catch (final IllegalStateException e) {
+            }
+        }
+        try (final Tdb2Twks twks = new Tdb2Twks(Tdb2TwksConfiguration.builder().setLocation(Optional.of(tdbLocationPath.toString())).setVirtualAssertionsUnion(true).build(), new MetricRegistry())) {
+            assertTrue(twks.getAssertions().isIsomorphicWith(getTestData().specNanopublication.getAssertion().getModel()));
+        }
+    }
+
+    @Test
+    public void testDirectory() throws IOException {
+        final Path tdbLocationPath = setSourceAndLocation();
+        runCommand();
+
+        try (final Tdb2Twks twks = new Tdb2Twks(Tdb2TwksConfiguration.builder().setLocation(Optional.of(tdbLocationPath.toString())).build(), new MetricRegistry())) {
+            final Optional<Nanopublication> actual = twks.getNanopublication(getTestData().specNanopublication.getUri());
+            assertTrue(getTestData().specNanopublication.isIsomorphicWith(actual.get()));
+            assertTrue(twks.getAssertions().isIsomorphicWith(getTestData().specNanopublication.getAssertion().getModel()));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package edu.rpi.tw.twks.client.direct;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import edu.rpi.tw.twks.api.AbstractAsyncTwksClient;
+import edu.rpi.tw.twks.api.Twks;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Asynchronous client that calls a Twks in the same process, at most concurrencyLevel operations at a time.
+ */
+public final class DirectAsyncTwksClient extends AbstractAsyncTwksClient<DirectTwksClient> {
+    private final ExecutorService executor;
+
+    public DirectAsyncTwksClient(final Twks twks) {
+        this(twks, Runtime.getRuntime().availableProcessors());
+    }
+
+    public DirectAsyncTwksClient(final Twks twks, final int concurrencyLevel) {
+        this(new DirectTwksClient(twks), newExecutor(concurrencyLevel));
+    }
+
+    private DirectAsyncTwksClient(final DirectTwksClient client, final ExecutorService executor) {
+        super(client, executor);
+        this.executor = executor;
+    }
+
+    private static ExecutorService newExecutor(final int concurrencyLevel) {
+        checkArgument(concurrencyLevel > 0);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrencyLevel, concurrencyLevel, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("twks-direct-async-client-%d").build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public final void close() {
+        MoreExecutors.shutdownAndAwaitTermination(executor, 1, TimeUnit.MINUTES);
+        getClient().close();
+    }
+
+    /**
+     * Expose the underlying TWKS so that client users (e.g., the CLI) can get at it for performance reasons.
+     */
+    public final Twks getTwks() {
+        return getClient().getTwks();
+    }
+}
@@ -0,0 +1,76 @@
+package edu.rpi.tw.twks.client.rest;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import edu.rpi.tw.twks.api.NanopublicationCrudApi;
+import edu.rpi.tw.twks.client.direct.DirectAsyncTwksClient;
+import edu.rpi.tw.twks.mem.MemTwks;
+import edu.rpi.tw.twks.mem.MemTwksConfiguration;
+import edu.rpi.tw.twks.test.TestData;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+public final class DirectAsyncTwksClientTest {
+    private DirectAsyncTwksClient sut;
+    private TestData testData;
+
+    @Before
+    public void setUp() throws Exception {
+        sut = new DirectAsyncTwksClient(new MemTwks(MemTwksConfiguration.builder().build(), new MetricRegistry()), 2);
+        testData = new TestData();
+    }
+
+    @After
+    public void tearDown() {
+        sut.close();
+    }
+
+    @Test
+    public void testManyInFlight() throws Exception {
+        // More futures than threads
+        final List<CompletableFuture<NanopublicationCrudApi.PutNanopublicationResult>> putFutures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            putFutures.add(sut.putNanopublication(i % 2 == 0 ? testData.specNanopublication : testData.secondNanopublication));
+        }
+        CompletableFuture.allOf(putFutures.toArray(new CompletableFuture[0])).get();
+
+        assertEquals(ImmutableList.of(NanopublicationCrudApi.DeleteNanopublicationResult.DELETED, NanopublicationCrudApi.DeleteNanopublicationResult.DELETED), sut.deleteNanopublications(ImmutableList.of(testData.specNanopublication.getUri(), testData.secondNanopublication.getUri())).get());
+    }
+
+    @Test
+    public void testPutGetDelete() throws Exception {
+        assertEquals(NanopublicationCrudApi.PutNanopublicationResult.CREATED, sut.putNanopublication(testData.specNanopublication).get());
+        assertTrue(sut.getNanopublication(testData.specNanopublication.getUri()).get().get().isIsomorphicWith(testData.specNanopublication));
+        assertEquals(NanopublicationCrudApi.DeleteNanopublicationResult.DELETED, sut.deleteNanopublication(testData.specNanopublication.getUri()).get());
+        assertFalse(sut.getNanopublication(testData.specNanopublication.getUri()).get().isPresent());
+    }
+
+    @Test
+    public void testQueryAssertions() throws Exception {
+        sut.postNanopublications(ImmutableList.of(testData.specNanopublication, testData.secondNanopublication)).get();
+        final boolean result = sut.queryAssertions(QueryFactory.create("ASK WHERE { <http://example.org/trastuzumab> ?p ?o }"), QueryExecution::execAsk).get();
+        assertTrue(result);
+    }
+
+    @Test
+    public void testQueryException() {
+        try {
+            sut.queryNanopublications(QueryFactory.create("SELECT * WHERE { ?s ?p ?o }"), queryExecution -> {
+                throw new IllegalStateException();
+            }).get();
+            fail();
+        } catch (final ExecutionException | InterruptedException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
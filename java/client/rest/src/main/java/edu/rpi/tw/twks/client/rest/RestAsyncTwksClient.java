@@ -0,0 +1,51 @@
+package edu.rpi.tw.twks.client.rest;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import edu.rpi.tw.twks.api.AbstractAsyncTwksClient;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous client for a TWKS server: a bounded executor that runs the blocking RestTwksClient's requests.
+ * <p>
+ * The I/O is still blocking. Each request that's being sent holds one of the executor's clientAsyncConcurrencyLevel threads until its response has been read.
+ * Requests beyond that wait in the executor's queue, which is unbounded and costs a queue entry rather than a thread each.
+ * Callers can queue many more requests than there are threads, but only clientAsyncConcurrencyLevel are on the wire at a time, so raising it raises the thread count too.
+ */
+public final class RestAsyncTwksClient extends AbstractAsyncTwksClient<RestTwksClient> {
+    private final ExecutorService executor;
+
+    public RestAsyncTwksClient() {
+        this(RestTwksClientConfiguration.builder().build());
+    }
+
+    public RestAsyncTwksClient(final RestTwksClientConfiguration configuration) {
+        this(new RestTwksClient(configuration), newExecutor(configuration.getClientAsyncConcurrencyLevel()));
+    }
+
+    public RestAsyncTwksClient(final RestTwksClientConfiguration configuration, final MetricRegistry metricRegistry) {
+        this(new RestTwksClient(configuration, metricRegistry), newExecutor(configuration.getClientAsyncConcurrencyLevel()));
+    }
+
+    private RestAsyncTwksClient(final RestTwksClient client, final ExecutorService executor) {
+        super(client, executor);
+        this.executor = executor;
+    }
+
+    private static ExecutorService newExecutor(final int concurrencyLevel) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrencyLevel, concurrencyLevel, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("twks-rest-async-client-%d").build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public final void close() {
+        MoreExecutors.shutdownAndAwaitTermination(executor, 1, TimeUnit.MINUTES);
+        getClient().close();
+    }
+}
@@ -1,42 +1,71 @@
 package edu.rpi.tw.twks.client.rest;
 
+import com.codahale.metrics.MetricRegistry;
+import com.github.luben.zstd.ZstdInputStream;
 import com.google.api.client.http.*;
 import com.google.api.client.http.apache.v2.ApacheHttpTransport;
 import com.google.api.client.json.GenericJson;
 import com.google.api.client.json.JsonObjectParser;
 import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.BackOff;
+import com.google.api.client.util.ExponentialBackOff;
 import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import edu.rpi.tw.twks.api.TwksClient;
 import edu.rpi.tw.twks.api.TwksLibraryVersion;
 import edu.rpi.tw.twks.api.TwksVersion;
 import edu.rpi.tw.twks.nanopub.MalformedNanopublicationRuntimeException;
 import edu.rpi.tw.twks.nanopub.Nanopublication;
 import edu.rpi.tw.twks.nanopub.NanopublicationDialect;
-import edu.rpi.tw.twks.nanopub.NanopublicationParser;
+import edu.rpi.tw.twks.nanopub.NanopublicationParserCache;
+import edu.rpi.tw.twks.nanopub.NanopublicationPart;
 import edu.rpi.tw.twks.uri.Uri;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.entity.DeflateInputStreamFactory;
+import org.apache.http.client.entity.GZIPInputStreamFactory;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.riot.Lang;
-import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.RDFLanguages;
 import org.apache.jena.riot.RDFParserBuilder;
+import org.apache.jena.riot.WebContent;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.engine.http.QueryEngineHTTP;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringWriter;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.net.URLEncoder;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static edu.rpi.tw.twks.vocabulary.Vocabularies.setNsPrefixes;
@@ -45,10 +74,22 @@ import static edu.rpi.tw.twks.vocabulary.Vocabularies.setNsPrefixes;
  * TWKS client implementation that communicates with the server via the latter's REST interface.
  */
 public final class RestTwksClient implements TwksClient {
+    private final static int ITERATE_NANOPUBLICATIONS_PAGE_SIZE_DEFAULT = 1000;
     private final static Logger logger = LoggerFactory.getLogger(RestTwksClient.class);
+    private final static AtomicInteger nextInstanceNumber = new AtomicInteger(1);
     private final HttpRequestFactory httpRequestFactory;
     private final ApacheHttpTransport httpTransport;
+    // Prefix of this client's metric names, so clients sharing a registry don't report each other's pools
+    private final String metricNamePrefix = name(RestTwksClient.class, Integer.toString(nextInstanceNumber.getAndIncrement()));
+    private final MetricRegistry metricRegistry;
+    private final NanopublicationParserCache nanopublicationParserCache = new NanopublicationParserCache();
+    private final Optional<Integer> postNanopublicationsBatchSize;
+    private final int postNanopublicationsConcurrencyLevel;
+    // Language to exchange datasets and graphs in
+    private final Lang rdfLang;
     private final String serverBaseUrl;
+    @Nullable
+    private ExecutorService postNanopublicationsExecutor = null;
 
     /**
      * Construct a new TWKS client with a default configuration.
@@ -61,9 +102,75 @@ public final class RestTwksClient implements TwksClient {
      * Construct a new TWKS client.
      */
     public RestTwksClient(final RestTwksClientConfiguration configuration) {
+        this(configuration, new MetricRegistry());
+    }
+
+    /**
+     * Construct a new TWKS client that reports its connection pool usage to the given registry.
+     * <p>
+     * The metrics are named RestTwksClient.n.*, where n numbers the clients created in this JVM from 1, and are removed from the registry when the client is closed.
+     */
+    public RestTwksClient(final RestTwksClientConfiguration configuration, final MetricRegistry metricRegistry) {
+        this.metricRegistry = checkNotNull(metricRegistry);
         this.serverBaseUrl = StringUtils.stripEnd(checkNotNull(configuration.getServerBaseUrl()), "/");
-        httpTransport = new ApacheHttpTransport();
+        this.postNanopublicationsBatchSize = configuration.getClientPostNanopublicationsBatchSize().toJavaUtil();
+        this.postNanopublicationsConcurrencyLevel = configuration.getClientPostNanopublicationsConcurrencyLevel();
+        this.rdfLang = configuration.getClientRdfThrift() ? Lang.RDFTHRIFT : Lang.TRIG;
+
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(configuration.getClientMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(configuration.getClientMaxConnectionsPerRoute());
+        // Same socket buffers as ApacheHttpTransport's default client
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom().setRcvBufSize(8192).setSndBufSize(8192).build());
+        // Requests waiting for a connection mean the pool, rather than the server, is limiting throughput
+        metricRegistry.gauge(name(metricNamePrefix, "availableConnections"), () -> () -> connectionManager.getTotalStats().getAvailable());
+        metricRegistry.gauge(name(metricNamePrefix, "leasedConnections"), () -> () -> connectionManager.getTotalStats().getLeased());
+        metricRegistry.gauge(name(metricNamePrefix, "maxConnections"), () -> () -> connectionManager.getTotalStats().getMax());
+        metricRegistry.gauge(name(metricNamePrefix, "pendingConnectionRequests"), () -> () -> connectionManager.getTotalStats().getPending());
+
+        final HttpClientBuilder httpClientBuilder = ApacheHttpTransport.newDefaultHttpClientBuilder().setConnectionManager(connectionManager);
+        if (configuration.getClientConnectionKeepAliveMs().isPresent()) {
+            final long keepAliveMs = configuration.getClientConnectionKeepAliveMs().get();
+            httpClientBuilder.setKeepAliveStrategy((response, context) -> {
+                final long serverKeepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return serverKeepAliveMs > 0 ? serverKeepAliveMs : keepAliveMs;
+            });
+        }
+        if (configuration.getClientConnectionIdleTimeoutMs().isPresent()) {
+            httpClientBuilder.evictExpiredConnections().evictIdleConnections(configuration.getClientConnectionIdleTimeoutMs().get(), TimeUnit.MILLISECONDS);
+        }
+        // Decode zstd as well as gzip and deflate responses. Apache HttpClient decodes the response before google-http-client sees it.
+        httpClientBuilder.setContentDecoderRegistry(ImmutableMap.of(
+                "deflate", DeflateInputStreamFactory.getInstance(),
+                "gzip", GZIPInputStreamFactory.getInstance(),
+                "x-gzip", GZIPInputStreamFactory.getInstance(),
+                "zstd", ZstdInputStream::new
+        ));
+        httpTransport = new ApacheHttpTransport(httpClientBuilder.build());
+
+        @Nullable final HttpEncoding requestEncoding;
+        final String acceptEncoding;
+        if (configuration.getClientContentEncoding().isPresent()) {
+            switch (configuration.getClientContentEncoding().get()) {
+                case "gzip":
+                    requestEncoding = new GZipEncoding();
+                    acceptEncoding = "gzip, zstd;q=0.5";
+                    break;
+                case "zstd":
+                    requestEncoding = new ZstdEncoding();
+                    acceptEncoding = "zstd, gzip;q=0.5";
+                    break;
+                default:
+                    throw new IllegalArgumentException(configuration.getClientContentEncoding().get());
+            }
+        } else {
+            requestEncoding = null;
+            acceptEncoding = "gzip";
+        }
         httpRequestFactory = httpTransport.createRequestFactory(request -> {
+            request.setEncoding(requestEncoding);
+            // Set the header just before the request is executed, since callers replace the headers
+            request.setInterceptor(executingRequest -> executingRequest.getHeaders().setAcceptEncoding(acceptEncoding));
             if (configuration.getClientConnectTimeoutMs().isPresent()) {
                 request.setConnectTimeout(configuration.getClientConnectTimeoutMs().get());
             }
@@ -73,29 +180,68 @@ public final class RestTwksClient implements TwksClient {
             if (configuration.getClientWriteTimeoutMs().isPresent()) {
                 request.setWriteTimeout(configuration.getClientWriteTimeoutMs().get());
             }
+            if (configuration.getClientRetries() > 0) {
+                // The back offs keep state, so each request gets its own
+                request.setNumberOfRetries(configuration.getClientRetries());
+                request.setIOExceptionHandler(new HttpBackOffIOExceptionHandler(newRetryBackOff(configuration)));
+                request.setUnsuccessfulResponseHandler(new HttpBackOffUnsuccessfulResponseHandler(newRetryBackOff(configuration)));
+            }
             request.setParser(new JsonObjectParser(new JacksonFactory()));
         });
     }
 
     @Override
     public final void close() {
+        synchronized (this) {
+            if (postNanopublicationsExecutor != null) {
+                postNanopublicationsExecutor.shutdownNow();
+                postNanopublicationsExecutor = null;
+            }
+        }
         try {
             httpTransport.shutdown();
         } catch (final IOException e) {
             logger.error("error shutting down HTTP transport: ", e);
         }
+        metricRegistry.removeMatching((metricName, metric) -> metricName.startsWith(metricNamePrefix + "."));
     }
 
-    private static HttpContent toContent(final Nanopublication... nanopublications) {
-        final StringWriter contentStringWriter = new StringWriter();
-        final Dataset dataset = DatasetFactory.create();
-        for (final Nanopublication nanopublication : nanopublications) {
-            nanopublication.toDataset(dataset);
+    /**
+     * Executor for posting batches of nanopublications concurrently, shared by all calls on this client.
+     * <p>
+     * The threads are daemons and time out when idle, so a client that's no longer used doesn't hold on to them.
+     */
+    private synchronized ExecutorService getPostNanopublicationsExecutor() {
+        if (postNanopublicationsExecutor == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(postNanopublicationsConcurrencyLevel, postNanopublicationsConcurrencyLevel, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("twks-rest-client-post-%d").build());
+            executor.allowCoreThreadTimeOut(true);
+            postNanopublicationsExecutor = executor;
         }
-        RDFDataMgr.write(contentStringWriter, dataset, Lang.TRIG);
-        final String contentString = contentStringWriter.toString();
-        final byte[] contentBytes = contentString.getBytes(Charsets.UTF_8);
-        return new ByteArrayContent("text/trig; charset=utf-8", contentBytes);
+        return postNanopublicationsExecutor;
+    }
+
+    private HttpContent toContent(final List<Nanopublication> nanopublications) {
+        // Write the quads of each nanopublication straight to the request stream, through the content encoding if any, instead of copying them into one Dataset first.
+        // The length is unknown, so the request body is chunked.
+        return new AbstractHttpContent(rdfLang == Lang.TRIG ? "text/trig; charset=utf-8" : rdfLang.getContentType().getContentType()) {
+            @Override
+            protected long computeLength() {
+                return -1;
+            }
+
+            @Override
+            public void writeTo(final OutputStream outputStream) {
+                final StreamRDF stream = StreamRDFWriter.getWriterStream(outputStream, rdfLang);
+                stream.start();
+                for (final Nanopublication nanopublication : nanopublications) {
+                    for (final NanopublicationPart nanopublicationPart : new NanopublicationPart[]{nanopublication.getHead(), nanopublication.getAssertion(), nanopublication.getProvenance(), nanopublication.getPublicationInfo()}) {
+                        final Node graphNode = NodeFactory.createURI(nanopublicationPart.getName().toString());
+                        nanopublicationPart.getModel().getGraph().find().forEachRemaining(triple -> stream.quad(new Quad(graphNode, triple)));
+                    }
+                }
+                stream.finish();
+            }
+        };
     }
 
     @Override
@@ -159,13 +305,13 @@ public final class RestTwksClient implements TwksClient {
     }
 
     private Model getAssertions(final HttpRequest request) {
-        request.setHeaders(new HttpHeaders().setAccept("text/trig"));
+        request.setHeaders(new HttpHeaders().setAccept(rdfLang.getContentType().getContentType()));
         try {
             final HttpResponse response = request.execute();
             try (final InputStream inputStream = response.getContent()) {
                 final Model model = ModelFactory.createDefaultModel();
                 setNsPrefixes(model);
-                RDFParserBuilder.create().source(inputStream).lang(Lang.TRIG).parse(model);
+                RDFParserBuilder.create().source(inputStream).lang(rdfLang).parse(model);
                 return model;
             }
         } catch (final IOException e) {
@@ -181,13 +327,12 @@ public final class RestTwksClient implements TwksClient {
     @Override
     public final Optional<Nanopublication> getNanopublication(final Uri uri) {
         try {
-            final HttpResponse response = httpRequestFactory.buildGetRequest(newNanopublicationUrl(uri)).setHeaders(new HttpHeaders().setAccept("text/trig")).execute();
+            final HttpResponse response = httpRequestFactory.buildGetRequest(newNanopublicationUrl(uri)).setHeaders(new HttpHeaders().setAccept(rdfLang.getContentType().getContentType())).execute();
             checkState(response.getStatusCode() == 200);
             try (final InputStream inputStream = response.getContent()) {
                 final Lang lang = RDFLanguages.contentTypeToLang(response.getContentType());
-                final NanopublicationParser nanopublicationParser = NanopublicationParser.builder().setDialect(NanopublicationDialect.SPECIFICATION).setLang(lang).build();
                 try {
-                    return Optional.of(nanopublicationParser.parseInputStream(inputStream).get(0));
+                    return Optional.of(nanopublicationParserCache.get(NanopublicationDialect.SPECIFICATION, lang).parseInputStream(inputStream).get(0));
                 } catch (final MalformedNanopublicationRuntimeException e) {
                     logger.error("malformed nanopublication from server: ", e);
                     return Optional.empty();
@@ -228,6 +373,28 @@ public final class RestTwksClient implements TwksClient {
         }
     }
 
+    /**
+     * Iterate over all nanopublications in the store, in nanopublication URI order.
+     * <p>
+     * See iterateNanopublications(Optional, int).
+     */
+    public final Iterator<Nanopublication> iterateNanopublications() {
+        return iterateNanopublications(Optional.empty(), ITERATE_NANOPUBLICATIONS_PAGE_SIZE_DEFAULT);
+    }
+
+    /**
+     * Iterate over the nanopublications in the store, in nanopublication URI order, fetching a page at a time from the server's bulk export.
+     * <p>
+     * Only one page is held in memory. To resume an interrupted iteration, pass the URI of the last nanopublication received as afterNanopublicationUri.
+     *
+     * @param afterNanopublicationUri if present, start after the nanopublication with this URI
+     * @param pageSize                number of nanopublications to request per page
+     */
+    public final Iterator<Nanopublication> iterateNanopublications(final Optional<Uri> afterNanopublicationUri, final int pageSize) {
+        checkArgument(pageSize > 0);
+        return new NanopublicationsPageIterator(afterNanopublicationUri, pageSize);
+    }
+
     private GenericUrl newNanopublicationUrl(final Uri nanopublicationUri) {
         try {
             return new GenericUrl(serverBaseUrl + "/nanopublication/" + URLEncoder.encode(nanopublicationUri.toString(), "UTF-8"));
@@ -236,11 +403,81 @@ public final class RestTwksClient implements TwksClient {
         }
     }
 
+    /**
+     * Post batches of nanopublications concurrently on the executor and collect the results in input order.
+     * <p>
+     * A batch that puts a nanopublication URI that's also in an earlier batch isn't posted until the earlier batch has committed, so the last put of each URI wins as it would in one request.
+     * The first failure cancels the batches that haven't been posted yet and is rethrown. Batches that have already committed stay committed.
+     */
+    static ImmutableList<PutNanopublicationResult> postNanopublicationsInBatches(final int batchSize, final Executor executor, final ImmutableList<Nanopublication> nanopublications, final Function<ImmutableList<Nanopublication>, ImmutableList<PutNanopublicationResult>> batchPoster) {
+        checkArgument(batchSize > 0);
+
+        final List<CompletableFuture<ImmutableList<PutNanopublicationResult>>> batchResultFutures = new ArrayList<>();
+        final Map<Uri, CompletableFuture<ImmutableList<PutNanopublicationResult>>> lastBatchResultFutureByNanopublicationUri = new HashMap<>();
+        for (int batchStart = 0; batchStart < nanopublications.size(); batchStart += batchSize) {
+            final ImmutableList<Nanopublication> batch = nanopublications.subList(batchStart, Math.min(batchStart + batchSize, nanopublications.size()));
+
+            final Set<CompletableFuture<ImmutableList<PutNanopublicationResult>>> precedingBatchResultFutures = new LinkedHashSet<>();
+            for (final Nanopublication nanopublication : batch) {
+                @Nullable final CompletableFuture<ImmutableList<PutNanopublicationResult>> precedingBatchResultFuture = lastBatchResultFutureByNanopublicationUri.get(nanopublication.getUri());
+                if (precedingBatchResultFuture != null) {
+                    precedingBatchResultFutures.add(precedingBatchResultFuture);
+                }
+            }
+
+            final CompletableFuture<ImmutableList<PutNanopublicationResult>> batchResultFuture = CompletableFuture.allOf(precedingBatchResultFutures.toArray(new CompletableFuture<?>[0])).thenApplyAsync(ignore -> batchPoster.apply(batch), executor);
+            for (final Nanopublication nanopublication : batch) {
+                lastBatchResultFutureByNanopublicationUri.put(nanopublication.getUri(), batchResultFuture);
+            }
+            batchResultFutures.add(batchResultFuture);
+        }
+
+        // Record the first failure before cancelling the other batches, so it's what gets rethrown rather than a CancellationException
+        final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        for (final CompletableFuture<ImmutableList<PutNanopublicationResult>> batchResultFuture : batchResultFutures) {
+            batchResultFuture.whenComplete((result, exception) -> {
+                if (exception == null || exception instanceof CancellationException) {
+                    return;
+                }
+                firstFailure.compareAndSet(null, exception instanceof CompletionException && exception.getCause() != null ? exception.getCause() : exception);
+                batchResultFutures.forEach(otherBatchResultFuture -> otherBatchResultFuture.cancel(false));
+            });
+        }
+
+        final ImmutableList.Builder<PutNanopublicationResult> resultsBuilder = ImmutableList.builder();
+        try {
+            for (final CompletableFuture<ImmutableList<PutNanopublicationResult>> batchResultFuture : batchResultFutures) {
+                resultsBuilder.addAll(batchResultFuture.get());
+            }
+        } catch (final CancellationException | ExecutionException e) {
+            @Nullable final Throwable failure = firstFailure.get() != null ? firstFailure.get() : e.getCause();
+            if (failure == null) {
+                throw (CancellationException) e;
+            }
+            Throwables.throwIfUnchecked(failure);
+            throw new RuntimeException(failure);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            batchResultFutures.forEach(batchResultFuture -> batchResultFuture.cancel(false));
+        }
+        return resultsBuilder.build();
+    }
+
     @Override
     public final ImmutableList<PutNanopublicationResult> postNanopublications(final ImmutableList<Nanopublication> nanopublications) {
+        if (!postNanopublicationsBatchSize.isPresent() || nanopublications.size() <= postNanopublicationsBatchSize.get()) {
+            return postNanopublicationsBatch(nanopublications);
+        }
+
+        return postNanopublicationsInBatches(postNanopublicationsBatchSize.get(), getPostNanopublicationsExecutor(), nanopublications, this::postNanopublicationsBatch);
+    }
+
+    private ImmutableList<PutNanopublicationResult> postNanopublicationsBatch(final ImmutableList<Nanopublication> nanopublications) {
         try {
             final GenericUrl url = new GenericUrl(serverBaseUrl + "/nanopublication/");
-            final HttpResponse response = httpRequestFactory.buildPostRequest(url, toContent(nanopublications.toArray(new Nanopublication[nanopublications.size()]))).execute();
+            final HttpResponse response = httpRequestFactory.buildPostRequest(url, toContent(nanopublications)).execute();
             final List<String> resultStrings = (List<String>) response.parseAs(new TypeToken<List<String>>() {
             }.getType());
             return resultStrings.stream().map(resultString -> PutNanopublicationResult.valueOf(resultString)).collect(ImmutableList.toImmutableList());
@@ -255,7 +492,7 @@ public final class RestTwksClient implements TwksClient {
     public final PutNanopublicationResult putNanopublication(final Nanopublication nanopublication) {
         final HttpResponse response;
         try {
-            response = httpRequestFactory.buildPutRequest(new GenericUrl(serverBaseUrl + "/nanopublication/"), toContent(nanopublication)).execute();
+            response = httpRequestFactory.buildPutRequest(new GenericUrl(serverBaseUrl + "/nanopublication/"), toContent(ImmutableList.of(nanopublication))).execute();
         } catch (final IOException e) {
             throw wrapException(e);
         }
@@ -272,15 +509,92 @@ public final class RestTwksClient implements TwksClient {
 
     @Override
     public final QueryExecution queryAssertions(final Query query) {
-        return QueryExecutionFactory.sparqlService(serverBaseUrl + "/sparql/assertions", query, httpTransport.getHttpClient());
+        return newQueryExecution(serverBaseUrl + "/sparql/assertions", query);
     }
 
     @Override
     public final QueryExecution queryNanopublications(final Query query) {
-        return QueryExecutionFactory.sparqlService(serverBaseUrl + "/sparql/nanopublications", query, httpTransport.getHttpClient());
+        return newQueryExecution(serverBaseUrl + "/sparql/nanopublications", query);
+    }
+
+    private QueryExecution newQueryExecution(final String serviceUrl, final Query query) {
+        final QueryEngineHTTP queryExecution = QueryExecutionFactory.createServiceRequest(serviceUrl, query, httpTransport.getHttpClient());
+        if (rdfLang == Lang.RDFTHRIFT) {
+            // ASK results can't be Thrift
+            queryExecution.setSelectContentType(WebContent.contentTypeResultsThrift);
+            queryExecution.setModelContentType(WebContent.contentTypeRDFThrift);
+        }
+        return queryExecution;
+    }
+
+    /**
+     * Exponential back off from clientRetryBackoffMs, with jitter. The number of retries is limited by the request rather than by elapsed time.
+     */
+    private static BackOff newRetryBackOff(final RestTwksClientConfiguration configuration) {
+        return new ExponentialBackOff.Builder()
+                .setInitialIntervalMillis(configuration.getClientRetryBackoffMs())
+                .setMaxElapsedTimeMillis(Integer.MAX_VALUE)
+                .setMultiplier(2)
+                .build();
     }
 
     private RuntimeException wrapException(final IOException e) {
         return new RuntimeException(e);
     }
+
+    private final class NanopublicationsPageIterator extends AbstractIterator<Nanopublication> {
+        private Iterator<Nanopublication> pageIterator = Collections.emptyIterator();
+        private @Nullable GenericUrl nextPageUrl;
+
+        NanopublicationsPageIterator(final Optional<Uri> afterNanopublicationUri, final int pageSize) {
+            nextPageUrl = new GenericUrl(serverBaseUrl + "/nanopublications");
+            nextPageUrl.set("limit", pageSize);
+            afterNanopublicationUri.ifPresent(uri -> nextPageUrl.set("after", uri.toString()));
+        }
+
+        @Override
+        protected final Nanopublication computeNext() {
+            while (!pageIterator.hasNext()) {
+                if (nextPageUrl == null) {
+                    return endOfData();
+                }
+                fetchNextPage();
+            }
+            return pageIterator.next();
+        }
+
+        private void fetchNextPage() {
+            try {
+                final Lang pageLang = rdfLang == Lang.TRIG ? Lang.NQUADS : rdfLang;
+                final HttpResponse response = httpRequestFactory.buildGetRequest(checkNotNull(nextPageUrl)).setHeaders(new HttpHeaders().setAccept(pageLang.getContentType().getContentType())).execute();
+                final byte[] pageBytes;
+                try (final InputStream inputStream = response.getContent()) {
+                    pageBytes = inputStream != null ? ByteStreams.toByteArray(inputStream) : new byte[0];
+                }
+                if (pageBytes.length > 0 && !(pageLang == Lang.NQUADS && new String(pageBytes, Charsets.UTF_8).trim().isEmpty())) {
+                    // The parser would treat an empty page as an empty assertion
+                    pageIterator = nanopublicationParserCache.get(NanopublicationDialect.SPECIFICATION, pageLang).parseInputStream(new ByteArrayInputStream(pageBytes)).iterator();
+                }
+                nextPageUrl = parseNextLink(response.getHeaders().getFirstHeaderStringValue("Link")).orElse(null);
+            } catch (final HttpResponseException e) {
+                throw wrapException(e);
+            } catch (final IOException e) {
+                throw wrapException(e);
+            }
+        }
+
+        private Optional<GenericUrl> parseNextLink(@Nullable final String link) {
+            // <url>; rel="next"
+            if (link == null || !link.contains("rel=\"next\"")) {
+                return Optional.empty();
+            }
+            final int urlStart = link.indexOf('<');
+            final int urlEnd = link.indexOf('>', urlStart);
+            if (urlStart == -1 || urlEnd == -1) {
+                logger.warn("unparseable Link header: {}", link);
+                return Optional.empty();
+            }
+            return Optional.of(new GenericUrl(link.substring(urlStart + 1, urlEnd)));
+        }
+    }
 }
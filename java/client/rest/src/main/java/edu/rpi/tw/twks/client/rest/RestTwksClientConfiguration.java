@@ -2,19 +2,44 @@ package edu.rpi.tw.twks.client.rest;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import edu.rpi.tw.twks.configuration.AbstractConfiguration;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public final class RestTwksClientConfiguration extends AbstractConfiguration {
+    public final static ImmutableSet<String> CLIENT_CONTENT_ENCODINGS = ImmutableSet.of("gzip", "zstd");
+    private final int clientAsyncConcurrencyLevel;
     private final Optional<Integer> clientConnectTimeoutMs;
+    private final Optional<Integer> clientConnectionIdleTimeoutMs;
+    private final Optional<Integer> clientConnectionKeepAliveMs;
+    private final Optional<String> clientContentEncoding;
+    private final int clientMaxConnections;
+    private final int clientMaxConnectionsPerRoute;
+    private final Optional<Integer> clientPostNanopublicationsBatchSize;
+    private final int clientPostNanopublicationsConcurrencyLevel;
+    private final boolean clientRdfThrift;
     private final Optional<Integer> clientReadTimeoutMs;
+    private final int clientRetries;
+    private final int clientRetryBackoffMs;
     private final Optional<Integer> clientWriteTimeoutMs;
     private final String serverBaseUrl;
 
     private RestTwksClientConfiguration(final Builder builder) {
+        this.clientAsyncConcurrencyLevel = builder.getClientAsyncConcurrencyLevel();
         this.clientConnectTimeoutMs = builder.getClientConnectTimeoutMs();
+        this.clientConnectionIdleTimeoutMs = builder.getClientConnectionIdleTimeoutMs();
+        this.clientConnectionKeepAliveMs = builder.getClientConnectionKeepAliveMs();
+        this.clientContentEncoding = builder.getClientContentEncoding();
+        this.clientMaxConnections = builder.getClientMaxConnections();
+        this.clientMaxConnectionsPerRoute = builder.getClientMaxConnectionsPerRoute();
+        this.clientPostNanopublicationsBatchSize = builder.getClientPostNanopublicationsBatchSize();
+        this.clientPostNanopublicationsConcurrencyLevel = builder.getClientPostNanopublicationsConcurrencyLevel();
+        this.clientRdfThrift = builder.getClientRdfThrift();
         this.clientReadTimeoutMs = builder.getClientReadTimeoutMs();
+        this.clientRetries = builder.getClientRetries();
+        this.clientRetryBackoffMs = builder.getClientRetryBackoffMs();
         this.clientWriteTimeoutMs = builder.getClientWriteTimeoutMs();
         this.serverBaseUrl = builder.getServerBaseUrl();
     }
@@ -23,14 +48,90 @@ public final class RestTwksClientConfiguration extends AbstractConfiguration {
         return new Builder();
     }
 
+    /**
+     * Number of requests RestAsyncTwksClient sends at a time, which is also the number of threads it uses.
+     */
+    public final int getClientAsyncConcurrencyLevel() {
+        return clientAsyncConcurrencyLevel;
+    }
+
     public final Optional<Integer> getClientConnectTimeoutMs() {
         return clientConnectTimeoutMs;
     }
 
+    /**
+     * Close pooled connections that have been idle for longer than this.
+     */
+    public final Optional<Integer> getClientConnectionIdleTimeoutMs() {
+        return clientConnectionIdleTimeoutMs;
+    }
+
+    /**
+     * Longest time to keep a pooled connection alive, when the server doesn't say for how long.
+     */
+    public final Optional<Integer> getClientConnectionKeepAliveMs() {
+        return clientConnectionKeepAliveMs;
+    }
+
+    /**
+     * Content encoding, gzip or zstd, to compress request bodies with and to ask for first in responses.
+     */
+    public final Optional<String> getClientContentEncoding() {
+        return clientContentEncoding;
+    }
+
+    public final int getClientMaxConnections() {
+        return clientMaxConnections;
+    }
+
+    /**
+     * Connections to keep open to the server. All requests from one client go to the same route.
+     */
+    public final int getClientMaxConnectionsPerRoute() {
+        return clientMaxConnectionsPerRoute;
+    }
+
+    /**
+     * If present, the largest number of nanopublications to post in one request. Larger lists are split into batches, each committed separately by the server, so posting them is no longer atomic.
+     * <p>
+     * Absent by default: lists are posted in one request and one transaction.
+     */
+    public final Optional<Integer> getClientPostNanopublicationsBatchSize() {
+        return clientPostNanopublicationsBatchSize;
+    }
+
+    /**
+     * Number of batches of a large list of nanopublications to post concurrently, if the client is configured to split them.
+     */
+    public final int getClientPostNanopublicationsConcurrencyLevel() {
+        return clientPostNanopublicationsConcurrencyLevel;
+    }
+
+    /**
+     * Exchange nanopublications, assertions and SPARQL results with the server in binary RDF Thrift instead of text.
+     */
+    public final boolean getClientRdfThrift() {
+        return clientRdfThrift;
+    }
+
     public final Optional<Integer> getClientReadTimeoutMs() {
         return clientReadTimeoutMs;
     }
 
+    /**
+     * Number of times to retry a request that failed with an I/O error or a 5xx response.
+     */
+    public final int getClientRetries() {
+        return clientRetries;
+    }
+
+    /**
+     * Time to wait before the first retry. The wait roughly doubles, with jitter, with each further retry.
+     */
+    public final int getClientRetryBackoffMs() {
+        return clientRetryBackoffMs;
+    }
+
     public final Optional<Integer> getClientWriteTimeoutMs() {
         return clientWriteTimeoutMs;
     }
@@ -42,13 +143,35 @@ public final class RestTwksClientConfiguration extends AbstractConfiguration {
     @Override
     protected MoreObjects.ToStringHelper toStringHelper() {
         return super.toStringHelper()
+                .add("clientAsyncConcurrencyLevel", clientAsyncConcurrencyLevel)
                 .add("clientConnectionTimeout", clientConnectTimeoutMs)
+                .add("clientConnectionIdleTimeoutMs", clientConnectionIdleTimeoutMs)
+                .add("clientConnectionKeepAliveMs", clientConnectionKeepAliveMs)
+                .add("clientContentEncoding", clientContentEncoding)
+                .add("clientMaxConnections", clientMaxConnections)
+                .add("clientMaxConnectionsPerRoute", clientMaxConnectionsPerRoute)
+                .add("clientPostNanopublicationsBatchSize", clientPostNanopublicationsBatchSize)
+                .add("clientPostNanopublicationsConcurrencyLevel", clientPostNanopublicationsConcurrencyLevel)
+                .add("clientRdfThrift", clientRdfThrift)
+                .add("clientRetries", clientRetries)
+                .add("clientRetryBackoffMs", clientRetryBackoffMs)
                 .add("serverBaseUrl", serverBaseUrl);
     }
 
     public final static class Builder extends AbstractConfiguration.Builder<Builder, RestTwksClientConfiguration> {
+        private int clientAsyncConcurrencyLevel = PropertyDefinitions.CLIENT_ASYNC_CONCURRENCY_LEVEL.getDefault();
         private Optional<Integer> clientConnectTimeoutMs = Optional.absent();
+        private Optional<Integer> clientConnectionIdleTimeoutMs = Optional.absent();
+        private Optional<Integer> clientConnectionKeepAliveMs = Optional.absent();
+        private Optional<String> clientContentEncoding = Optional.absent();
+        private int clientMaxConnections = PropertyDefinitions.CLIENT_MAX_CONNECTIONS.getDefault();
+        private int clientMaxConnectionsPerRoute = PropertyDefinitions.CLIENT_MAX_CONNECTIONS_PER_ROUTE.getDefault();
+        private Optional<Integer> clientPostNanopublicationsBatchSize = Optional.absent();
+        private int clientPostNanopublicationsConcurrencyLevel = PropertyDefinitions.CLIENT_POST_NANOPUBLICATIONS_CONCURRENCY_LEVEL.getDefault();
+        private boolean clientRdfThrift = PropertyDefinitions.CLIENT_RDF_THRIFT.getDefault();
         private Optional<Integer> clientReadTimeoutMs = Optional.absent();
+        private int clientRetries = PropertyDefinitions.CLIENT_RETRIES.getDefault();
+        private int clientRetryBackoffMs = PropertyDefinitions.CLIENT_RETRY_BACKOFF_MS.getDefault();
         private Optional<Integer> clientWriteTimeoutMs = Optional.absent();
         private String serverBaseUrl = PropertyDefinitions.SERVER_BASE_URL.getDefault();
 
@@ -57,6 +180,17 @@ public final class RestTwksClientConfiguration extends AbstractConfiguration {
             return new RestTwksClientConfiguration(this);
         }
 
+        public final int getClientAsyncConcurrencyLevel() {
+            return clientAsyncConcurrencyLevel;
+        }
+
+        public final Builder setClientAsyncConcurrencyLevel(final int clientAsyncConcurrencyLevel) {
+            checkArgument(clientAsyncConcurrencyLevel > 0);
+            this.clientAsyncConcurrencyLevel = clientAsyncConcurrencyLevel;
+            markDirty();
+            return this;
+        }
+
         public final Optional<Integer> getClientConnectTimeoutMs() {
             return clientConnectTimeoutMs;
         }
@@ -67,6 +201,93 @@ public final class RestTwksClientConfiguration extends AbstractConfiguration {
             return this;
         }
 
+        public final Optional<Integer> getClientConnectionIdleTimeoutMs() {
+            return clientConnectionIdleTimeoutMs;
+        }
+
+        public final Builder setClientConnectionIdleTimeoutMs(final Optional<Integer> clientConnectionIdleTimeoutMs) {
+            checkArgument(!clientConnectionIdleTimeoutMs.isPresent() || clientConnectionIdleTimeoutMs.get() > 0);
+            this.clientConnectionIdleTimeoutMs = clientConnectionIdleTimeoutMs;
+            markDirty();
+            return this;
+        }
+
+        public final Optional<Integer> getClientConnectionKeepAliveMs() {
+            return clientConnectionKeepAliveMs;
+        }
+
+        public final Builder setClientConnectionKeepAliveMs(final Optional<Integer> clientConnectionKeepAliveMs) {
+            checkArgument(!clientConnectionKeepAliveMs.isPresent() || clientConnectionKeepAliveMs.get() > 0);
+            this.clientConnectionKeepAliveMs = clientConnectionKeepAliveMs;
+            markDirty();
+            return this;
+        }
+
+        public final Optional<String> getClientContentEncoding() {
+            return clientContentEncoding;
+        }
+
+        public final Builder setClientContentEncoding(final Optional<String> clientContentEncoding) {
+            checkArgument(!clientContentEncoding.isPresent() || CLIENT_CONTENT_ENCODINGS.contains(clientContentEncoding.get()), "unsupported content encoding %s", clientContentEncoding);
+            this.clientContentEncoding = checkNotNull(clientContentEncoding);
+            markDirty();
+            return this;
+        }
+
+        public final int getClientMaxConnections() {
+            return clientMaxConnections;
+        }
+
+        public final Builder setClientMaxConnections(final int clientMaxConnections) {
+            checkArgument(clientMaxConnections > 0);
+            this.clientMaxConnections = clientMaxConnections;
+            markDirty();
+            return this;
+        }
+
+        public final int getClientMaxConnectionsPerRoute() {
+            return clientMaxConnectionsPerRoute;
+        }
+
+        public final Builder setClientMaxConnectionsPerRoute(final int clientMaxConnectionsPerRoute) {
+            checkArgument(clientMaxConnectionsPerRoute > 0);
+            this.clientMaxConnectionsPerRoute = clientMaxConnectionsPerRoute;
+            markDirty();
+            return this;
+        }
+
+        public final Optional<Integer> getClientPostNanopublicationsBatchSize() {
+            return clientPostNanopublicationsBatchSize;
+        }
+
+        public final Builder setClientPostNanopublicationsBatchSize(final Optional<Integer> clientPostNanopublicationsBatchSize) {
+            checkArgument(!clientPostNanopublicationsBatchSize.isPresent() || clientPostNanopublicationsBatchSize.get() > 0);
+            this.clientPostNanopublicationsBatchSize = clientPostNanopublicationsBatchSize;
+            markDirty();
+            return this;
+        }
+
+        public final int getClientPostNanopublicationsConcurrencyLevel() {
+            return clientPostNanopublicationsConcurrencyLevel;
+        }
+
+        public final Builder setClientPostNanopublicationsConcurrencyLevel(final int clientPostNanopublicationsConcurrencyLevel) {
+            checkArgument(clientPostNanopublicationsConcurrencyLevel > 0);
+            this.clientPostNanopublicationsConcurrencyLevel = clientPostNanopublicationsConcurrencyLevel;
+            markDirty();
+            return this;
+        }
+
+        public final boolean getClientRdfThrift() {
+            return clientRdfThrift;
+        }
+
+        public final Builder setClientRdfThrift(final boolean clientRdfThrift) {
+            this.clientRdfThrift = clientRdfThrift;
+            markDirty();
+            return this;
+        }
+
         public final Optional<Integer> getClientReadTimeoutMs() {
             return clientReadTimeoutMs;
         }
@@ -77,6 +298,28 @@ public final class RestTwksClientConfiguration extends AbstractConfiguration {
             return this;
         }
 
+        public final int getClientRetries() {
+            return clientRetries;
+        }
+
+        public final Builder setClientRetries(final int clientRetries) {
+            checkArgument(clientRetries >= 0);
+            this.clientRetries = clientRetries;
+            markDirty();
+            return this;
+        }
+
+        public final int getClientRetryBackoffMs() {
+            return clientRetryBackoffMs;
+        }
+
+        public final Builder setClientRetryBackoffMs(final int clientRetryBackoffMs) {
+            checkArgument(clientRetryBackoffMs > 0);
+            this.clientRetryBackoffMs = clientRetryBackoffMs;
+            markDirty();
+            return this;
+        }
+
         public final Optional<Integer> getClientWriteTimeoutMs() {
             return clientWriteTimeoutMs;
         }
@@ -99,8 +342,19 @@ public final class RestTwksClientConfiguration extends AbstractConfiguration {
 
         @Override
         public final Builder set(final ConfigurationWrapper properties) {
+            properties.getInteger(PropertyDefinitions.CLIENT_ASYNC_CONCURRENCY_LEVEL).ifPresent(value -> setClientAsyncConcurrencyLevel(value));
             properties.getInteger(PropertyDefinitions.CLIENT_CONNECT_TIMEOUT_MS).ifPresent(value -> setClientConnectTimeoutMs(Optional.of(value)));
+            properties.getInteger(PropertyDefinitions.CLIENT_CONNECTION_IDLE_TIMEOUT_MS).ifPresent(value -> setClientConnectionIdleTimeoutMs(Optional.of(value)));
+            properties.getInteger(PropertyDefinitions.CLIENT_CONNECTION_KEEP_ALIVE_MS).ifPresent(value -> setClientConnectionKeepAliveMs(Optional.of(value)));
+            properties.getString(PropertyDefinitions.CLIENT_CONTENT_ENCODING).ifPresent(value -> setClientContentEncoding(Optional.of(value)));
+            properties.getInteger(PropertyDefinitions.CLIENT_MAX_CONNECTIONS).ifPresent(value -> setClientMaxConnections(value));
+            properties.getInteger(PropertyDefinitions.CLIENT_MAX_CONNECTIONS_PER_ROUTE).ifPresent(value -> setClientMaxConnectionsPerRoute(value));
+            properties.getInteger(PropertyDefinitions.CLIENT_POST_NANOPUBLICATIONS_BATCH_SIZE).ifPresent(value -> setClientPostNanopublicationsBatchSize(Optional.of(value)));
+            properties.getInteger(PropertyDefinitions.CLIENT_POST_NANOPUBLICATIONS_CONCURRENCY_LEVEL).ifPresent(value -> setClientPostNanopublicationsConcurrencyLevel(value));
+            properties.getBoolean(PropertyDefinitions.CLIENT_RDF_THRIFT).ifPresent(value -> setClientRdfThrift(value));
             properties.getInteger(PropertyDefinitions.CLIENT_READ_TIMEOUT_MS).ifPresent(value -> setClientReadTimeoutMs(Optional.of(value)));
+            properties.getInteger(PropertyDefinitions.CLIENT_RETRIES).ifPresent(value -> setClientRetries(value));
+            properties.getInteger(PropertyDefinitions.CLIENT_RETRY_BACKOFF_MS).ifPresent(value -> setClientRetryBackoffMs(value));
             properties.getInteger(PropertyDefinitions.CLIENT_WRITE_TIMEOUT_MS).ifPresent(value -> setClientWriteTimeoutMs(Optional.of(value)));
             properties.getString(PropertyDefinitions.SERVER_BASE_URL).ifPresent(value -> setServerBaseUrl(value));
             return this;
@@ -108,8 +362,20 @@ public final class RestTwksClientConfiguration extends AbstractConfiguration {
     }
 
     private final static class PropertyDefinitions {
+        // Default clientMaxConnectionsPerRoute
+        public final static PropertyDefinitionWithDefault<Integer> CLIENT_ASYNC_CONCURRENCY_LEVEL = new PropertyDefinitionWithDefault<>(20, "clientAsyncConcurrencyLevel");
         public final static PropertyDefinition CLIENT_CONNECT_TIMEOUT_MS = new PropertyDefinition("clientConnectTimeoutMs");
+        public final static PropertyDefinition CLIENT_CONNECTION_IDLE_TIMEOUT_MS = new PropertyDefinition("clientConnectionIdleTimeoutMs");
+        public final static PropertyDefinition CLIENT_CONNECTION_KEEP_ALIVE_MS = new PropertyDefinition("clientConnectionKeepAliveMs");
+        public final static PropertyDefinition CLIENT_CONTENT_ENCODING = new PropertyDefinition("clientContentEncoding");
+        public final static PropertyDefinitionWithDefault<Integer> CLIENT_MAX_CONNECTIONS = new PropertyDefinitionWithDefault<>(200, "clientMaxConnections");
+        public final static PropertyDefinitionWithDefault<Integer> CLIENT_MAX_CONNECTIONS_PER_ROUTE = new PropertyDefinitionWithDefault<>(20, "clientMaxConnectionsPerRoute");
+        public final static PropertyDefinition CLIENT_POST_NANOPUBLICATIONS_BATCH_SIZE = new PropertyDefinition("clientPostNanopublicationsBatchSize");
+        public final static PropertyDefinitionWithDefault<Integer> CLIENT_POST_NANOPUBLICATIONS_CONCURRENCY_LEVEL = new PropertyDefinitionWithDefault<>(4, "clientPostNanopublicationsConcurrencyLevel");
+        public final static PropertyDefinitionWithDefault<Boolean> CLIENT_RDF_THRIFT = new PropertyDefinitionWithDefault<>(Boolean.FALSE, "clientRdfThrift");
         public final static PropertyDefinition CLIENT_READ_TIMEOUT_MS = new PropertyDefinition("clientReadTimeoutMs");
+        public final static PropertyDefinitionWithDefault<Integer> CLIENT_RETRIES = new PropertyDefinitionWithDefault<>(0, "clientRetries");
+        public final static PropertyDefinitionWithDefault<Integer> CLIENT_RETRY_BACKOFF_MS = new PropertyDefinitionWithDefault<>(500, "clientRetryBackoffMs");
         public final static PropertyDefinition CLIENT_WRITE_TIMEOUT_MS = new PropertyDefinition("clientWriteTimeoutMs");
         public final static PropertyDefinitionWithDefault<String> SERVER_BASE_URL = new PropertyDefinitionWithDefault<>("http://localhost:8080", "serverBaseUrl");
     }
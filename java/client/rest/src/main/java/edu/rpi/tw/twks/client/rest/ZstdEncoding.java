@@ -0,0 +1,33 @@
+package edu.rpi.tw.twks.client.rest;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import com.google.api.client.http.HttpEncoding;
+import com.google.api.client.util.StreamingContent;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Zstandard request content encoding, the counterpart of google-http-client's GZipEncoding.
+ */
+final class ZstdEncoding implements HttpEncoding {
+    @Override
+    public final void encode(final StreamingContent content, final OutputStream outputStream) throws IOException {
+        // Finish the compressed stream without closing the request's stream
+        final OutputStream unclosableOutputStream = new BufferedOutputStream(outputStream) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        try (final ZstdOutputStream zstdOutputStream = new ZstdOutputStream(unclosableOutputStream)) {
+            content.writeTo(zstdOutputStream);
+        }
+    }
+
+    @Override
+    public final String getName() {
+        return "zstd";
+    }
+}
@@ -0,0 +1,94 @@
+package edu.rpi.tw.twks.client.rest;
+
+import com.google.common.collect.ImmutableList;
+import edu.rpi.tw.twks.api.NanopublicationCrudApi;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.test.TestData;
+import edu.rpi.tw.twks.uri.Uri;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public final class PostNanopublicationsInBatchesTest {
+    private ExecutorService executor;
+    private TestData testData;
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+        testData = new TestData();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFailureCancelsRemainingBatches() {
+        final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        try {
+            final AtomicInteger postedBatchCount = new AtomicInteger();
+            try {
+                RestTwksClient.postNanopublicationsInBatches(1, singleThreadExecutor, ImmutableList.of(testData.specNanopublication, testData.secondNanopublication, testData.ontologyNanopublication), batch -> {
+                    postedBatchCount.incrementAndGet();
+                    sleep(100);
+                    throw new IllegalStateException("test");
+                });
+                fail();
+            } catch (final IllegalStateException e) {
+                assertEquals("test", e.getMessage());
+            }
+            assertEquals(1, postedBatchCount.get());
+        } finally {
+            singleThreadExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testResultsInInputOrder() {
+        final ImmutableList<Nanopublication> nanopublications = ImmutableList.of(testData.specNanopublication, testData.secondNanopublication, testData.ontologyNanopublication, testData.secondOntologyNanopublication);
+        final ImmutableList<NanopublicationCrudApi.PutNanopublicationResult> results = RestTwksClient.postNanopublicationsInBatches(1, executor, nanopublications, batch -> {
+            // Later batches finish first
+            final int nanopublicationI = nanopublications.indexOf(batch.get(0));
+            sleep(50 * (nanopublications.size() - nanopublicationI));
+            return ImmutableList.of(nanopublicationI % 2 == 0 ? NanopublicationCrudApi.PutNanopublicationResult.CREATED : NanopublicationCrudApi.PutNanopublicationResult.OVERWROTE);
+        });
+        assertEquals(ImmutableList.of(NanopublicationCrudApi.PutNanopublicationResult.CREATED, NanopublicationCrudApi.PutNanopublicationResult.OVERWROTE, NanopublicationCrudApi.PutNanopublicationResult.CREATED, NanopublicationCrudApi.PutNanopublicationResult.OVERWROTE), results);
+    }
+
+    @Test
+    public void testSameUriInOrder() {
+        final Map<Uri, Boolean> inFlightNanopublicationUris = new ConcurrentHashMap<>();
+        final AtomicInteger overlapCount = new AtomicInteger();
+        final AtomicInteger postedBatchCount = new AtomicInteger();
+        final ImmutableList<NanopublicationCrudApi.PutNanopublicationResult> results = RestTwksClient.postNanopublicationsInBatches(1, executor, ImmutableList.of(testData.specNanopublication, testData.secondNanopublication, testData.specNanopublication), batch -> {
+            final Uri nanopublicationUri = batch.get(0).getUri();
+            if (inFlightNanopublicationUris.putIfAbsent(nanopublicationUri, Boolean.TRUE) != null) {
+                overlapCount.incrementAndGet();
+            }
+            sleep(100);
+            inFlightNanopublicationUris.remove(nanopublicationUri);
+            return ImmutableList.of(postedBatchCount.incrementAndGet() == 1 ? NanopublicationCrudApi.PutNanopublicationResult.CREATED : NanopublicationCrudApi.PutNanopublicationResult.OVERWROTE);
+        });
+        assertEquals(3, results.size());
+        assertEquals(3, postedBatchCount.get());
+        assertEquals(0, overlapCount.get());
+    }
+}
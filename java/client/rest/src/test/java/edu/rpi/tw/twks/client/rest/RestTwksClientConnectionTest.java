@@ -0,0 +1,129 @@
+package edu.rpi.tw.twks.client.rest;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Optional;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.rpi.tw.twks.uri.Uri;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the client's connection handling against a minimal local HTTP server, which answers every request with the next status code from a list.
+ */
+public final class RestTwksClientConnectionTest {
+    private final static Uri NANOPUBLICATION_URI = Uri.parse("http://example.org/pub1");
+    private final List<Integer> requestRemotePorts = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> responseStatusCodes = Collections.synchronizedList(new ArrayList<>());
+    private HttpServer server;
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        requestRemotePorts.add(exchange.getRemoteAddress().getPort());
+        final int statusCode;
+        synchronized (responseStatusCodes) {
+            statusCode = responseStatusCodes.size() > 1 ? responseStatusCodes.remove(0) : responseStatusCodes.get(0);
+        }
+        final byte[] responseBody = Integer.toString(statusCode).getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(statusCode, responseBody.length);
+        try (final OutputStream responseOutputStream = exchange.getResponseBody()) {
+            responseOutputStream.write(responseBody);
+        }
+    }
+
+    private RestTwksClient newClient(final Function<RestTwksClientConfiguration.Builder, RestTwksClientConfiguration.Builder> configure, final MetricRegistry metricRegistry) {
+        return new RestTwksClient(configure.apply(RestTwksClientConfiguration.builder().setServerBaseUrl("http://localhost:" + server.getAddress().getPort())).build(), metricRegistry);
+    }
+
+    private static Map<String, Integer> getGaugeValues(final MetricRegistry metricRegistry, final String gaugeNameSuffix) {
+        final Map<String, Integer> gaugeValues = new HashMap<>();
+        for (final Map.Entry<String, Gauge> gauge : metricRegistry.getGauges((name, metric) -> name.endsWith(gaugeNameSuffix)).entrySet()) {
+            gaugeValues.put(gauge.getKey(), (Integer) gauge.getValue().getValue());
+        }
+        return gaugeValues;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        responseStatusCodes.add(404);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testConnectionKeepAlive() throws InterruptedException {
+        try (final RestTwksClient client = newClient(builder -> builder.setClientConnectionKeepAliveMs(Optional.of(200)), new MetricRegistry())) {
+            assertFalse(client.getNanopublication(NANOPUBLICATION_URI).isPresent());
+            assertFalse(client.getNanopublication(NANOPUBLICATION_URI).isPresent());
+            // The server doesn't send a keep-alive timeout, so the client's applies
+            Thread.sleep(500);
+            assertFalse(client.getNanopublication(NANOPUBLICATION_URI).isPresent());
+        }
+        assertEquals(3, requestRemotePorts.size());
+        assertEquals(requestRemotePorts.get(0), requestRemotePorts.get(1));
+        assertNotEquals(requestRemotePorts.get(1), requestRemotePorts.get(2));
+    }
+
+    @Test
+    public void testConnectionPoolMetrics() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        try (final RestTwksClient client = newClient(builder -> builder.setClientMaxConnections(5), metricRegistry)) {
+            try (final RestTwksClient otherClient = newClient(builder -> builder.setClientMaxConnections(7), metricRegistry)) {
+                // Each client reports its own pool
+                assertEquals(2, getGaugeValues(metricRegistry, ".maxConnections").size());
+                assertTrue(getGaugeValues(metricRegistry, ".maxConnections").values().containsAll(Arrays.asList(5, 7)));
+
+                assertFalse(otherClient.getNanopublication(NANOPUBLICATION_URI).isPresent());
+                assertTrue(getGaugeValues(metricRegistry, ".availableConnections").containsValue(1));
+                assertTrue(getGaugeValues(metricRegistry, ".pendingConnectionRequests").values().stream().allMatch(value -> value == 0));
+            }
+            // Closing a client removes its metrics
+            assertEquals(Collections.singleton(5), new HashSet<>(getGaugeValues(metricRegistry, ".maxConnections").values()));
+        }
+        assertTrue(metricRegistry.getMetrics().isEmpty());
+    }
+
+    @Test
+    public void testRetries() {
+        responseStatusCodes.add(0, 503);
+        try (final RestTwksClient client = newClient(builder -> builder.setClientRetries(2).setClientRetryBackoffMs(10), new MetricRegistry())) {
+            assertFalse(client.getNanopublication(NANOPUBLICATION_URI).isPresent());
+        }
+        assertEquals(2, requestRemotePorts.size());
+    }
+
+    @Test
+    public void testRetriesDisabled() {
+        responseStatusCodes.add(0, 503);
+        try (final RestTwksClient client = newClient(builder -> builder.setClientRetries(0), new MetricRegistry())) {
+            try {
+                client.getNanopublication(NANOPUBLICATION_URI);
+                fail();
+            } catch (final RuntimeException e) {
+            }
+        }
+        assertEquals(1, requestRemotePorts.size());
+    }
+}
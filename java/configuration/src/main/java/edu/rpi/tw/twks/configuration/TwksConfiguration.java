@@ -5,33 +5,68 @@ import com.google.common.base.MoreObjects;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 public abstract class TwksConfiguration extends AbstractConfiguration {
     private final Path dumpDirectoryPath;
+    private final boolean dumpIncremental;
+    private final int dumpShards;
     private final GeoSPARQLConfiguration geoSparqlConfiguration;
+    private final boolean virtualAssertionsUnion;
 
     protected TwksConfiguration(final Builder<?, ?> builder) {
         this.dumpDirectoryPath = builder.getDumpDirectoryPath();
+        this.dumpIncremental = builder.getDumpIncremental();
+        this.dumpShards = builder.getDumpShards();
         this.geoSparqlConfiguration = builder.getGeoSparqlConfiguration();
+        this.virtualAssertionsUnion = builder.getVirtualAssertionsUnion();
     }
 
     public final Path getDumpDirectoryPath() {
         return dumpDirectoryPath;
     }
 
+    /**
+     * If true, journal the nanopublications changed by each commit, and have dump write only the changes since the previous dump, after a first full dump.
+     */
+    public final boolean getDumpIncremental() {
+        return dumpIncremental;
+    }
+
+    /**
+     * If > 0, dump to this many gzipped N-Quads shard files, written in parallel, with a manifest. If 0, dump one TriG file per nanopublication.
+     */
+    public final int getDumpShards() {
+        return dumpShards;
+    }
+
     public final GeoSPARQLConfiguration getGeoSparqlConfiguration() {
         return geoSparqlConfiguration;
     }
 
+    /**
+     * If true, evaluate assertion queries over a query-time union of the nanopublications' assertion graphs instead of maintaining a materialized copy of all assertions.
+     */
+    public final boolean getVirtualAssertionsUnion() {
+        return virtualAssertionsUnion;
+    }
+
     @Override
     protected MoreObjects.ToStringHelper toStringHelper() {
         return super.toStringHelper()
                 .add("dumpDirectoryPath", dumpDirectoryPath)
-                .add("geoSparqlConfiguration", geoSparqlConfiguration.getEnable() ? geoSparqlConfiguration : null);
+                .add("dumpIncremental", dumpIncremental)
+                .add("dumpShards", dumpShards)
+                .add("geoSparqlConfiguration", geoSparqlConfiguration.getEnable() ? geoSparqlConfiguration : null)
+                .add("virtualAssertionsUnion", virtualAssertionsUnion);
     }
 
     public abstract static class Builder<BuilderT extends Builder<?, ?>, TwksConfigurationT extends TwksConfiguration> extends AbstractConfiguration.Builder<BuilderT, TwksConfigurationT> {
         private Path dumpDirectoryPath = PropertyDefinitions.DUMP_DIRECTORY_PATH.getDefault();
+        private boolean dumpIncremental = PropertyDefinitions.DUMP_INCREMENTAL.getDefault();
+        private int dumpShards = PropertyDefinitions.DUMP_SHARDS.getDefault();
         private GeoSPARQLConfiguration geoSparqlConfiguration = GeoSPARQLConfiguration.builder().setEnable(false).build();
+        private boolean virtualAssertionsUnion = PropertyDefinitions.VIRTUAL_ASSERTIONS_UNION.getDefault();
 
         @Override
         public abstract TwksConfigurationT build();
@@ -47,6 +82,29 @@ public abstract class TwksConfiguration extends AbstractConfiguration {
             return (BuilderT) this;
         }
 
+        public final boolean getDumpIncremental() {
+            return dumpIncremental;
+        }
+
+        @SuppressWarnings("unchecked")
+        public final BuilderT setDumpIncremental(final boolean dumpIncremental) {
+            this.dumpIncremental = dumpIncremental;
+            markDirty();
+            return (BuilderT) this;
+        }
+
+        public final int getDumpShards() {
+            return dumpShards;
+        }
+
+        @SuppressWarnings("unchecked")
+        public final BuilderT setDumpShards(final int dumpShards) {
+            checkArgument(dumpShards >= 0);
+            this.dumpShards = dumpShards;
+            markDirty();
+            return (BuilderT) this;
+        }
+
         public final GeoSPARQLConfiguration getGeoSparqlConfiguration() {
             return geoSparqlConfiguration;
         }
@@ -58,6 +116,17 @@ public abstract class TwksConfiguration extends AbstractConfiguration {
             return (BuilderT) this;
         }
 
+        public final boolean getVirtualAssertionsUnion() {
+            return virtualAssertionsUnion;
+        }
+
+        @SuppressWarnings("unchecked")
+        public final BuilderT setVirtualAssertionsUnion(final boolean virtualAssertionsUnion) {
+            this.virtualAssertionsUnion = virtualAssertionsUnion;
+            markDirty();
+            return (BuilderT) this;
+        }
+
         @Override
         @SuppressWarnings("unchecked")
         public BuilderT set(final ConfigurationWrapper properties) {
@@ -69,6 +138,9 @@ public abstract class TwksConfiguration extends AbstractConfiguration {
             }
 
             properties.getPath(PropertyDefinitions.DUMP_DIRECTORY_PATH).ifPresent(value -> setDumpDirectoryPath(value));
+            properties.getBoolean(PropertyDefinitions.DUMP_INCREMENTAL).ifPresent(value -> setDumpIncremental(value));
+            properties.getInteger(PropertyDefinitions.DUMP_SHARDS).ifPresent(value -> setDumpShards(value));
+            properties.getBoolean(PropertyDefinitions.VIRTUAL_ASSERTIONS_UNION).ifPresent(value -> setVirtualAssertionsUnion(value));
 
             return (BuilderT) this;
         }
@@ -76,5 +148,8 @@ public abstract class TwksConfiguration extends AbstractConfiguration {
 
     private final static class PropertyDefinitions {
         public final static PropertyDefinitionWithDefault<Path> DUMP_DIRECTORY_PATH = new PropertyDefinitionWithDefault<>(Paths.get("/dump"), "dump");
+        public final static PropertyDefinitionWithDefault<Boolean> DUMP_INCREMENTAL = new PropertyDefinitionWithDefault<>(Boolean.FALSE, "dumpIncremental");
+        public final static PropertyDefinitionWithDefault<Integer> DUMP_SHARDS = new PropertyDefinitionWithDefault<>(0, "dumpShards");
+        public final static PropertyDefinitionWithDefault<Boolean> VIRTUAL_ASSERTIONS_UNION = new PropertyDefinitionWithDefault<>(Boolean.FALSE, "virtualAssertionsUnion");
     }
 }
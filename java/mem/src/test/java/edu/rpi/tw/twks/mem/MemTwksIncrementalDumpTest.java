@@ -0,0 +1,76 @@
+package edu.rpi.tw.twks.mem;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import edu.rpi.tw.twks.api.Twks;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.nanopub.NanopublicationParser;
+import edu.rpi.tw.twks.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class MemTwksIncrementalDumpTest {
+    private final TestData testData;
+    private Path dumpDirectoryPath;
+    private Twks twks;
+
+    public MemTwksIncrementalDumpTest() throws Exception {
+        testData = new TestData();
+    }
+
+    private List<Path> listDumpFiles(final String prefix) throws Exception {
+        try (final Stream<Path> filePaths = Files.list(dumpDirectoryPath)) {
+            return filePaths.filter(filePath -> filePath.getFileName().toString().startsWith(prefix)).collect(Collectors.toList());
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        dumpDirectoryPath = Files.createTempDirectory(getClass().getSimpleName());
+        twks = new MemTwks(MemTwksConfiguration.builder().setDumpDirectoryPath(dumpDirectoryPath).setDumpIncremental(true).build(), new MetricRegistry());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        twks.close();
+        MoreFiles.deleteRecursively(dumpDirectoryPath, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testDump() throws Exception {
+        twks.postNanopublications(ImmutableList.of(testData.specNanopublication, testData.secondNanopublication));
+
+        // First dump is full
+        twks.dump();
+        assertTrue(listDumpFiles("delta-").isEmpty());
+        assertTrue(listDumpFiles("").stream().anyMatch(filePath -> filePath.getFileName().toString().endsWith(".trig")));
+
+        twks.putNanopublication(testData.ontologyNanopublication);
+        twks.deleteNanopublication(testData.specNanopublication.getUri());
+
+        twks.dump();
+
+        final List<Path> deltaFilePaths = listDumpFiles("delta-");
+        assertEquals(1, deltaFilePaths.size());
+        final ImmutableList<Nanopublication> delta = NanopublicationParser.builder().build().parseFile(deltaFilePaths.get(0));
+        assertEquals(1, delta.size());
+        assertTrue(delta.get(0).isIsomorphicWith(testData.ontologyNanopublication));
+
+        final List<Path> tombstonesFilePaths = listDumpFiles("tombstones-");
+        assertEquals(1, tombstonesFilePaths.size());
+        assertEquals(ImmutableList.of(testData.specNanopublication.getUri().toString()), Files.readAllLines(tombstonesFilePaths.get(0), Charsets.UTF_8));
+    }
+}
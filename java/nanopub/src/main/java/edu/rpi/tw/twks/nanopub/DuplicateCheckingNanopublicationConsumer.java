@@ -0,0 +1,88 @@
+package edu.rpi.tw.twks.nanopub;
+
+import edu.rpi.tw.twks.uri.Uri;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reject nanopublications that reuse the URI or a part graph name of a nanopublication passed on before them, as the in-memory parser does for a whole dataset.
+ * <p>
+ * Streaming parses hand off each nanopublication on its own, so the checks have to span them. To keep memory bounded, only the names of the last nanopublicationsMax nanopublications are remembered.
+ * Duplicates further apart than that are passed on.
+ * <p>
+ * Thread-safe, so the chunks of a file can share one.
+ */
+final class DuplicateCheckingNanopublicationConsumer implements NanopublicationConsumer {
+    private final boolean allowPartUriReuse;
+    private final NanopublicationConsumer delegate;
+    private final int nanopublicationsMax;
+    // Oldest first
+    private final Set<Uri> recentNanopublicationUris = new LinkedHashSet<>();
+    private final Set<Uri> recentPartNames = new LinkedHashSet<>();
+
+    DuplicateCheckingNanopublicationConsumer(final NanopublicationConsumer delegate, final NanopublicationDialect dialect, final int nanopublicationsMax) {
+        checkArgument(nanopublicationsMax > 0);
+        this.allowPartUriReuse = dialect.allowPartUriReuse();
+        this.delegate = checkNotNull(delegate);
+        this.nanopublicationsMax = nanopublicationsMax;
+    }
+
+    private static <T> void removeOldest(final Set<T> set, final int count) {
+        final Iterator<T> oldestI = set.iterator();
+        for (int i = 0; i < count; i++) {
+            oldestI.next();
+            oldestI.remove();
+        }
+    }
+
+    @Override
+    public final void accept(final Nanopublication nanopublication) {
+        final Optional<String> duplicateMessage = checkAndRecord(nanopublication);
+        if (duplicateMessage.isPresent()) {
+            delegate.onMalformedNanopublicationException(new MalformedNanopublicationException(new MalformedNanopublicationException(duplicateMessage.get()), nanopublication.getUri()));
+        } else {
+            delegate.accept(nanopublication);
+        }
+    }
+
+    private synchronized Optional<String> checkAndRecord(final Nanopublication nanopublication) {
+        final Uri nanopublicationUri = nanopublication.getUri();
+        if (recentNanopublicationUris.contains(nanopublicationUri)) {
+            return Optional.of("duplicate nanopublication URI: " + nanopublicationUri);
+        }
+
+        final NanopublicationPart[] parts = {nanopublication.getHead(), nanopublication.getAssertion(), nanopublication.getProvenance(), nanopublication.getPublicationInfo()};
+        if (!allowPartUriReuse) {
+            for (final NanopublicationPart part : parts) {
+                if (recentPartNames.contains(part.getName())) {
+                    return Optional.of(String.format("nanopublication %s refers to a named graph that has already been used by another nanopublication (%s)", nanopublicationUri, part.getName()));
+                }
+            }
+        }
+
+        recentNanopublicationUris.add(nanopublicationUri);
+        if (recentNanopublicationUris.size() > nanopublicationsMax) {
+            removeOldest(recentNanopublicationUris, 1);
+        }
+        if (!allowPartUriReuse) {
+            for (final NanopublicationPart part : parts) {
+                recentPartNames.add(part.getName());
+            }
+            if (recentPartNames.size() > nanopublicationsMax * parts.length) {
+                removeOldest(recentPartNames, recentPartNames.size() - nanopublicationsMax * parts.length);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public final void onMalformedNanopublicationException(final MalformedNanopublicationException exception) {
+        delegate.onMalformedNanopublicationException(exception);
+    }
+}
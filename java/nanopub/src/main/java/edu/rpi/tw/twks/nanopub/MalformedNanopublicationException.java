@@ -1,20 +1,46 @@
 package edu.rpi.tw.twks.nanopub;
 
+import edu.rpi.tw.twks.uri.Uri;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import org.apache.jena.riot.RiotException;
 
 import java.nio.charset.MalformedInputException;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
 
 @SuppressWarnings("serializable")
 public final class MalformedNanopublicationException extends Exception {
+    @Nullable
+    private final Uri nanopublicationUri;
+
     MalformedNanopublicationException(final String message) {
         super(message);
+        this.nanopublicationUri = null;
+    }
+
+    /**
+     * Copy an exception, adding the URI of the nanopublication it's about.
+     */
+    MalformedNanopublicationException(final MalformedNanopublicationException other, final Uri nanopublicationUri) {
+        super(other.getMessage(), other.getCause());
+        this.nanopublicationUri = checkNotNull(nanopublicationUri);
     }
 
     public MalformedNanopublicationException(final MalformedInputException cause) {
         super(cause);
+        this.nanopublicationUri = null;
     }
 
     public MalformedNanopublicationException(final RiotException cause) {
         super(cause);
+        this.nanopublicationUri = null;
+    }
+
+    /**
+     * The URI of the malformed nanopublication, if it got far enough to be known.
+     */
+    public final Optional<Uri> getNanopublicationUri() {
+        return Optional.ofNullable(nanopublicationUri);
     }
 }
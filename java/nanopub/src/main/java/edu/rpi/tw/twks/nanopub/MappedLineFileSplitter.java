@@ -0,0 +1,112 @@
+package edu.rpi.tw.twks.nanopub;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Split a large line-based file, such as N-Quads, into chunks that end at line boundaries, and read the chunks through memory maps.
+ * <p>
+ * Only the regions around the chunk boundaries are read while splitting. Each chunk is mapped when it's opened, so chunks can be read on different threads.
+ */
+final class MappedLineFileSplitter {
+    private final static int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private MappedLineFileSplitter() {
+    }
+
+    /**
+     * Find the offset just past the first newline at or after fromOffset, or the end of the file.
+     */
+    private static long findLineEnd(final FileChannel channel, final long fromOffset, final long fileSize) throws IOException {
+        for (long scanOffset = fromOffset; scanOffset < fileSize; scanOffset += SCAN_BUFFER_SIZE) {
+            final MappedByteBuffer scanBuffer = channel.map(FileChannel.MapMode.READ_ONLY, scanOffset, Math.min(SCAN_BUFFER_SIZE, fileSize - scanOffset));
+            for (int bufferI = 0; bufferI < scanBuffer.limit(); bufferI++) {
+                if (scanBuffer.get(bufferI) == '\n') {
+                    return scanOffset + bufferI + 1;
+                }
+            }
+        }
+        return fileSize;
+    }
+
+    /**
+     * @param chunkSize approximate size of each chunk; chunks are extended to the end of the line
+     */
+    static ImmutableList<Chunk> split(final FileChannel channel, final long chunkSize) throws IOException {
+        checkArgument(chunkSize > 0);
+
+        final long fileSize = channel.size();
+        final ImmutableList.Builder<Chunk> chunksBuilder = ImmutableList.builder();
+        long chunkOffset = 0;
+        while (chunkOffset < fileSize) {
+            final long chunkEnd = chunkOffset + chunkSize < fileSize ? findLineEnd(channel, chunkOffset + chunkSize - 1, fileSize) : fileSize;
+            if (chunkEnd - chunkOffset > Integer.MAX_VALUE) {
+                throw new IOException(String.format("line at offset %d is too long to map", chunkOffset + chunkSize));
+            }
+            chunksBuilder.add(new Chunk(chunkOffset, chunkEnd - chunkOffset));
+            chunkOffset = chunkEnd;
+        }
+        return chunksBuilder.build();
+    }
+
+    static final class Chunk {
+        private final long offset;
+        private final long size;
+
+        private Chunk(final long offset, final long size) {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        final long getOffset() {
+            return offset;
+        }
+
+        final long getSize() {
+            return size;
+        }
+
+        final InputStream open(final FileChannel channel) throws IOException {
+            return new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, offset, size));
+        }
+    }
+
+    private final static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = checkNotNull(buffer);
+        }
+
+        @Override
+        public final int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public final int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public final int read(final byte[] bytes, final int offset, final int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int readLength = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, readLength);
+            return readLength;
+        }
+    }
+}
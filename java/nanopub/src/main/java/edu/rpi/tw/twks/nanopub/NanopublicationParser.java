@@ -2,31 +2,40 @@ package edu.rpi.tw.twks.nanopub;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
-import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import edu.rpi.tw.twks.uri.Uri;
 import edu.rpi.tw.twks.vocabulary.NANOPUB;
 import org.apache.jena.atlas.RuntimeIOException;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.*;
 import org.apache.jena.riot.*;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
 import org.apache.jena.vocabulary.RDF;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.charset.MalformedInputException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -37,9 +46,18 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * parseX(source) -> list of nanopublications
  * <p>
  * In the latter case parser exceptions (e.g., MalformedNanopublicationException) are thrown as runtime exceptions.
+ * <p>
+ * A parser's configuration is fixed when it's built, and each parse creates its own Jena parser, so a parser can be shared between threads.
+ * See {@link NanopublicationParserCache}.
  */
 public class NanopublicationParser {
     private final static Logger logger = LoggerFactory.getLogger(NanopublicationParser.class);
+    private final static long CHUNK_SIZE = 64L * 1024 * 1024;
+    // Jena decompresses files with these suffixes, so they can't be split by offset
+    private final static ImmutableList<String> COMPRESSED_FILE_NAME_SUFFIXES = ImmutableList.of(".bz2", ".gz", ".sz");
+    private final static int STREAMING_WINDOW_GRAPHS_MAX = 1000;
+    // Number of nanopublications to check for duplicate URIs and part graph names when streaming
+    private final static int STREAMING_DUPLICATES_NANOPUBLICATIONS_MAX = 10000;
     private final static Predicate<Path> specificationNanopublicationDirectoryFilter = (Path path) -> {
         if (!Files.isRegularFile(path)) {
             return false;
@@ -55,12 +73,29 @@ public class NanopublicationParser {
     private final NanopublicationDialect dialect;
     private final Optional<Lang> lang;
     private final Metrics metrics;
+    private final boolean streaming;
+    private final boolean streamingStrict;
+    private long chunkSize = CHUNK_SIZE;
+    @Nullable
+    private ExecutorService parseChunkExecutor = null;
+    @Nullable
+    private ExecutorService parseFileExecutor = null;
 
     public NanopublicationParser(final int concurrencyLevel, final NanopublicationDialect dialect, final Optional<Lang> lang, final MetricRegistry metricRegistry) {
+        this(concurrencyLevel, dialect, lang, metricRegistry, false);
+    }
+
+    public NanopublicationParser(final int concurrencyLevel, final NanopublicationDialect dialect, final Optional<Lang> lang, final MetricRegistry metricRegistry, final boolean streaming) {
+        this(concurrencyLevel, dialect, lang, metricRegistry, streaming, false);
+    }
+
+    public NanopublicationParser(final int concurrencyLevel, final NanopublicationDialect dialect, final Optional<Lang> lang, final MetricRegistry metricRegistry, final boolean streaming, final boolean streamingStrict) {
         this.concurrencyLevel = concurrencyLevel;
         this.dialect = checkNotNull(dialect);
         this.lang = checkNotNull(lang);
         this.metrics = new Metrics(metricRegistry);
+        this.streaming = streaming;
+        this.streamingStrict = streamingStrict;
     }
 
     public final static NanopublicationParserBuilder builder() {
@@ -71,6 +106,73 @@ public class NanopublicationParser {
         return dialect;
     }
 
+    /**
+     * Executor for parsing the chunks of large files concurrently, shared by all calls on this parser.
+     * <p>
+     * Chunks get their own executor because a chunked file may itself be parsed on the file executor, e.g. in a directory walk.
+     * The file task waits for its chunks, so if they were queued behind it on the same executor, the parser would deadlock once every file thread was waiting.
+     * Chunk tasks don't submit tasks of their own, so they can always make progress.
+     */
+    private synchronized ExecutorService getParseChunkExecutor() {
+        if (parseChunkExecutor == null) {
+            parseChunkExecutor = newExecutor("twks-nanopublication-chunk-parser-%d");
+        }
+        return parseChunkExecutor;
+    }
+
+    /**
+     * Executor for parsing files concurrently, shared by all calls on this parser.
+     */
+    private synchronized ExecutorService getParseFileExecutor() {
+        if (parseFileExecutor == null) {
+            parseFileExecutor = newExecutor("twks-nanopublication-parser-%d");
+        }
+        return parseFileExecutor;
+    }
+
+    /**
+     * The threads are daemons and time out when idle, so a parser that's no longer used doesn't hold on to them.
+     */
+    private ExecutorService newExecutor(final String threadNameFormat) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrencyLevel, concurrencyLevel, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat(threadNameFormat).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Set the size of the chunks large N-Quads files are split into, for testing.
+     */
+    final void setChunkSize(final long chunkSize) {
+        checkArgument(chunkSize > 0);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Only large N-Quads files are worth splitting, and only when they can be mapped and parsed concurrently.
+     */
+    private boolean isChunkedFile(final Path filePath) {
+        if (!streaming || concurrencyLevel <= 1 || dialect != NanopublicationDialect.SPECIFICATION) {
+            return false;
+        }
+
+        final String fileName = filePath.getFileName().toString().toLowerCase();
+        @Nullable final Lang fileLang = lang.orElseGet(() -> RDFLanguages.filenameToLang(fileName));
+        if (!Lang.NQUADS.equals(fileLang)) {
+            return false;
+        }
+        for (final String compressedFileNameSuffix : COMPRESSED_FILE_NAME_SUFFIXES) {
+            if (fileName.endsWith(compressedFileNameSuffix)) {
+                return false;
+            }
+        }
+
+        try {
+            return Files.size(filePath) > 2 * chunkSize;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
     private RDFParserBuilder newRdfParserBuilder() {
         final RDFParserBuilder builder = RDFParserBuilder.create();
         if (lang.isPresent()) {
@@ -84,11 +186,29 @@ public class NanopublicationParser {
 //    }
 
     private void parse(final RDFParser rdfParser, final NanopublicationConsumer consumer, final Optional<Uri> sourceUri) {
+        if (streaming && dialect == NanopublicationDialect.SPECIFICATION) {
+            parseStreaming(rdfParser, consumer, sourceUri);
+            return;
+        }
+
         final Dataset dataset = DatasetFactory.create();
 
+        if (!parse(rdfParser, StreamRDFLib.dataset(dataset.asDatasetGraph()), consumer)) {
+            return;
+        }
+
+        parseParsedDataset(dataset, consumer, sourceUri);
+    }
+
+    /**
+     * Run the RDF parser, reporting syntax errors to the consumer.
+     *
+     * @return true if the parse succeeded
+     */
+    private boolean parse(final RDFParser rdfParser, final StreamRDF destination, final NanopublicationConsumer consumer) {
         final Timer.Context rdfParserTimerContext = metrics.rdfParserTimer.time();
         try {
-            rdfParser.parse(dataset);
+            rdfParser.parse(destination);
             rdfParserTimerContext.stop(); // Only record the time for successful parses.
         } catch (final RiotNotFoundException e) {
             throw e;
@@ -100,9 +220,12 @@ public class NanopublicationParser {
             }
         } catch (final RiotException e) {
             consumer.onMalformedNanopublicationException(new MalformedNanopublicationException(e));
-            return;
+            return false;
         }
+        return true;
+    }
 
+    private void parseParsedDataset(final Dataset dataset, final NanopublicationConsumer consumer, final Optional<Uri> sourceUri) {
         // Dataset has named graphs, assume it's a well-formed nanopublication.
         final boolean datasetHasNamedGraphs;
         try {
@@ -133,6 +256,31 @@ public class NanopublicationParser {
         consumer.accept(nanopublication);
     }
 
+    /**
+     * Parse nanopublications as their graphs are read, instead of reading the whole source into memory first.
+     * <p>
+     * Nanopublications parsed before a syntax error are still passed to the consumer.
+     * In strict mode, parsing also stops at input the assembler can't handle in its window.
+     * Duplicate nanopublication URIs and part graph names are only detected among the last {@link #STREAMING_DUPLICATES_NANOPUBLICATIONS_MAX} nanopublications.
+     */
+    private void parseStreaming(final RDFParser rdfParser, final NanopublicationConsumer delegateConsumer, final Optional<Uri> sourceUri) {
+        final NanopublicationConsumer consumer = new DuplicateCheckingNanopublicationConsumer(delegateConsumer, dialect, STREAMING_DUPLICATES_NANOPUBLICATIONS_MAX);
+        final StreamingNanopublicationAssembler assembler = new StreamingNanopublicationAssembler(STREAMING_WINDOW_GRAPHS_MAX, nanopublicationDataset -> parseDataset(nanopublicationDataset, consumer), consumer::onMalformedNanopublicationException, false, streamingStrict);
+
+        try {
+            if (!parse(rdfParser, assembler, consumer)) {
+                return;
+            }
+        } catch (final StreamingNanopublicationAssembler.StoppedException e) {
+            return;
+        }
+
+        final Optional<Dataset> remainderDataset = assembler.getRemainderDataset();
+        if (remainderDataset.isPresent()) {
+            parseParsedDataset(remainderDataset.get(), consumer, sourceUri);
+        }
+    }
+
     public final ImmutableList<Nanopublication> parse(final String source) throws MalformedNanopublicationRuntimeException {
         final CollectingNanopublicationConsumer consumer = new CollectingNanopublicationConsumer();
         parse(source, consumer);
@@ -222,10 +370,58 @@ public class NanopublicationParser {
             final String fileUri = filePath.toUri().toString();
             // Use source(file URI) instead of source (file Path object) to get around a bug in Jena, where it doesn't try to infer the
             // language from file paths, only from URIs.
+            if (isChunkedFile(filePath)) {
+                parseChunkedFile(filePath, consumer, Optional.of(Uri.parse(fileUri)), chunkSize);
+                return;
+            }
             parse(newRdfParserBuilder().source(fileUri).build(), consumer, Optional.of(Uri.parse(fileUri)));
         }
     }
 
+    /**
+     * Split a large, uncompressed N-Quads file into chunks at line boundaries and parse the chunks concurrently.
+     * <p>
+     * Each chunk is streamed through its own assembler. Nanopublications that span chunk boundaries, or that the assemblers can't handle otherwise,
+     * are merged from the chunks' remainders and parsed in memory at the end.
+     * Blank node labels are scoped to the file rather than the chunk, so the same label in different chunks is the same blank node.
+     * Duplicate nanopublication URIs and part graph names are checked across the chunks, as when streaming.
+     */
+    final void parseChunkedFile(final Path filePath, final NanopublicationConsumer delegateConsumer, final Optional<Uri> sourceUri, final long chunkSize) {
+        final NanopublicationConsumer consumer = new DuplicateCheckingNanopublicationConsumer(delegateConsumer, dialect, STREAMING_DUPLICATES_NANOPUBLICATIONS_MAX);
+        final UUID blankNodeScope = UUID.randomUUID();
+        final Dataset remainderDataset = DatasetFactory.create();
+
+        try (final FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            final ImmutableList<MappedLineFileSplitter.Chunk> chunks = MappedLineFileSplitter.split(channel, chunkSize);
+            logger.debug("parsing {} in {} chunk(s)", filePath, chunks.size());
+
+            forEachConcurrently(chunks.iterator(), getParseChunkExecutor(), chunk -> {
+                final StreamingNanopublicationAssembler assembler = new StreamingNanopublicationAssembler(STREAMING_WINDOW_GRAPHS_MAX, nanopublicationDataset -> parseDataset(nanopublicationDataset, consumer), consumer::onMalformedNanopublicationException, true, false);
+
+                try (final InputStream chunkInputStream = chunk.open(channel)) {
+                    if (!parse(RDFParserBuilder.create().lang(Lang.NQUADS).labelToNode(LabelToNode.createScopeByDocumentHash(blankNodeScope)).source(chunkInputStream).build(), assembler, consumer)) {
+                        return;
+                    }
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                final Optional<Dataset> chunkRemainderDataset = assembler.getRemainderDataset();
+                if (chunkRemainderDataset.isPresent()) {
+                    synchronized (remainderDataset) {
+                        chunkRemainderDataset.get().asDatasetGraph().find().forEachRemaining(remainderDataset.asDatasetGraph()::add);
+                    }
+                }
+            });
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (!remainderDataset.asDatasetGraph().isEmpty()) {
+            parseParsedDataset(remainderDataset, consumer, sourceUri);
+        }
+    }
+
     public final ImmutableList<Nanopublication> parseInputStream(final InputStream inputStream) throws MalformedNanopublicationRuntimeException {
         return parseInputStream(inputStream, Optional.empty());
     }
@@ -245,30 +441,72 @@ public class NanopublicationParser {
     }
 
     private void parseSpecificationNanopublicationsDirectory(final Path sourceDirectoryPath, final NanopublicationDirectoryConsumer consumer) {
-        Stream<Path> sourceFilePathStream;
+        // Walk the whole tree. The walk is lazy, so it only advances as fast as the files are parsed.
+        final Stream<Path> sourceFilePathStream;
         try {
-            sourceFilePathStream = Files.list(sourceDirectoryPath);
+            sourceFilePathStream = Files.walk(sourceDirectoryPath);
         } catch (final IOException e) {
             logger.info("error listing {}: ", sourceDirectoryPath, e);
             return;
         }
 
-        sourceFilePathStream = sourceFilePathStream.filter(specificationNanopublicationDirectoryFilter);
-
-        if (concurrencyLevel > 1) {
-            final ExecutorService executorService = Executors.newFixedThreadPool(concurrencyLevel);
-            sourceFilePathStream.forEach(sourceFilePath -> {
-                executorService.submit(() -> {
-                    parseFile(sourceFilePath, new FileNanopublicationConsumer(consumer, sourceFilePath));
-                });
-            });
-        } else {
-            sourceFilePathStream.forEach(sourceFilePath -> {
+        try (final Stream<Path> closeableSourceFilePathStream = sourceFilePathStream) {
+            forEachConcurrently(closeableSourceFilePathStream.filter(specificationNanopublicationDirectoryFilter).iterator(), getParseFileExecutor(), sourceFilePath -> {
                 parseFile(sourceFilePath, new FileNanopublicationConsumer(consumer, sourceFilePath));
             });
         }
     }
 
+    /**
+     * Apply an action to each item, on the given executor if the concurrency level is > 1, and return when all of them are done.
+     * <p>
+     * At most 2 * concurrencyLevel items are in flight at a time, so the iterator only advances as fast as the items are processed.
+     * If an action throws, no more items are submitted, and the first exception is rethrown on the calling thread once the items in flight are done.
+     */
+    private <T> void forEachConcurrently(final Iterator<T> iterator, final ExecutorService executor, final Consumer<T> action) {
+        if (concurrencyLevel <= 1) {
+            iterator.forEachRemaining(action);
+            return;
+        }
+
+        final int maxItemsInFlight = concurrencyLevel * 2;
+        final Semaphore itemsInFlight = new Semaphore(maxItemsInFlight);
+        final AtomicReference<Throwable> firstException = new AtomicReference<>();
+
+        try {
+            while (firstException.get() == null && iterator.hasNext()) {
+                final T item = iterator.next();
+                itemsInFlight.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            if (firstException.get() == null) {
+                                action.accept(item);
+                            }
+                        } catch (final RuntimeException | Error e) {
+                            firstException.compareAndSet(null, e);
+                        } finally {
+                            itemsInFlight.release();
+                        }
+                    });
+                } catch (final RejectedExecutionException e) {
+                    itemsInFlight.release();
+                    throw e;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            // Wait for the items in flight, even if the iterator failed
+            itemsInFlight.acquireUninterruptibly(maxItemsInFlight);
+        }
+
+        if (firstException.get() != null) {
+            Throwables.throwIfUnchecked(firstException.get());
+        }
+    }
+
     public final ImmutableList<Nanopublication> parseStdin() throws MalformedNanopublicationRuntimeException {
         final CollectingNanopublicationConsumer consumer = new CollectingNanopublicationConsumer();
         parseStdin(consumer);
@@ -276,14 +514,15 @@ public class NanopublicationParser {
     }
 
     public final void parseStdin(final NanopublicationConsumer consumer) {
-        final byte[] trigBytes;
-        try {
-            trigBytes = ByteStreams.toByteArray(System.in);
-        } catch (final IOException e) {
-            throw new RuntimeException(e);
+        // Don't read stdin into memory first. The input may be much larger than the heap e.g., a dump piped in.
+        // Stdin is always streamed, regardless of the streaming setting.
+        final RDFParser rdfParser = newRdfParserBuilder().source(System.in).build();
+        if (dialect == NanopublicationDialect.SPECIFICATION) {
+            parseStreaming(rdfParser, consumer, Optional.empty());
+        } else {
+            // Other dialects are converted a whole dataset at a time
+            parse(rdfParser, consumer, Optional.empty());
         }
-        final String trigString = new String(trigBytes);
-        parseString(trigString, consumer);
     }
 
     public final ImmutableList<Nanopublication> parseString(final String string) throws MalformedNanopublicationRuntimeException {
@@ -326,64 +565,75 @@ public class NanopublicationParser {
             return;
         }
 
-        // Trawl all of the subdirectories of /data/nanopublications
-        final ImmutableList<Path> nanopublicationSubdirectoryPaths;
+        // Trawl all of the subdirectories of /data/nanopublications, converting them in parallel if the concurrency level is > 1.
+        final Stream<Path> nanopublicationSubdirectoryPathStream;
         try {
-            nanopublicationSubdirectoryPaths = Files.list(sourceDirectoryPath).collect(ImmutableList.toImmutableList());
+            nanopublicationSubdirectoryPathStream = Files.list(sourceDirectoryPath);
         } catch (final IOException e) {
             logger.error("error listing {}: ", sourceDirectoryPath, e);
             return;
         }
 
-        for (final Path nanopublicationSubdirectoryPath : nanopublicationSubdirectoryPaths) {
-            if (!Files.isDirectory(nanopublicationSubdirectoryPath)) {
-                continue;
-            }
+        try (final Stream<Path> closeableNanopublicationSubdirectoryPathStream = nanopublicationSubdirectoryPathStream) {
+            forEachConcurrently(closeableNanopublicationSubdirectoryPathStream.iterator(), getParseFileExecutor(), nanopublicationSubdirectoryPath -> {
+                parseWhyisNanopublicationSubdirectory(nanopublicationSubdirectoryPath, consumer);
+            });
+        }
+    }
 
-            final Path whyisFilePath = nanopublicationSubdirectoryPath.resolve("file");
-            if (!Files.isRegularFile(whyisFilePath)) {
-                // If there's no Whyis nanopublication file in the directory, the nanopublication may have been deleted. Ignore lingering TWKS files.
-                logger.debug("no Whyis nanopublication file in {}, ignoring", nanopublicationSubdirectoryPath);
-                continue;
-            }
+    private void parseWhyisNanopublicationSubdirectory(final Path nanopublicationSubdirectoryPath, final NanopublicationDirectoryConsumer consumer) {
+        if (!Files.isDirectory(nanopublicationSubdirectoryPath)) {
+            return;
+        }
+
+        final Path whyisFilePath = nanopublicationSubdirectoryPath.resolve("file");
+        if (!Files.isRegularFile(whyisFilePath)) {
+            // If there's no Whyis nanopublication file in the directory, the nanopublication may have been deleted. Ignore lingering TWKS files.
+            logger.debug("no Whyis nanopublication file in {}, ignoring", nanopublicationSubdirectoryPath);
+            return;
+        }
 
-            final Path twksFilePath = nanopublicationSubdirectoryPath.resolve("file.twks.trig");
-            if (Files.isRegularFile(twksFilePath)) {
-                // #106
-                // We've previously parsed this Whyis nanopublication and written in back as a spec-compliant nanopublication.
-                // The conversion has to create new urn:uuid: graph URIs, which means that subsequent conversions won't
-                // produce the same spec-compliant nanopublication. We cache the converted nanopublication on disk so
-                // re-parsing it always produces the same result.
-                // We wrote the file.twks.trig in specification TRIG, regardless of the lang of the current parser.
+        final Path twksFilePath = nanopublicationSubdirectoryPath.resolve("file.twks.trig");
+        if (Files.isRegularFile(twksFilePath)) {
+            // #106
+            // We've previously parsed this Whyis nanopublication and written in back as a spec-compliant nanopublication.
+            // The conversion has to create new urn:uuid: graph URIs, which means that subsequent conversions won't
+            // produce the same spec-compliant nanopublication. We cache the converted nanopublication on disk so
+            // re-parsing it always produces the same result.
+            // We wrote the file.twks.trig in specification TRIG, regardless of the lang of the current parser.
 //                    checkState(NanopublicationParser.SPECIFICATION.getLang().equals(Lang.TRIG));
-                parseFile(twksFilePath, new FileNanopublicationConsumer(consumer, twksFilePath));
-                continue;
-            }
+            parseFile(twksFilePath, new FileNanopublicationConsumer(consumer, twksFilePath));
+            return;
+        }
 
-            // Collect the nanopublications so we can also write them out, independently of the consumer.
-            final List<Nanopublication> twksNanopublications = new ArrayList<>();
-            // Track the nanopublication under the twksFilePath, since on subsequent passes it will be tracked that way in the branch above.
-            // Force NQUADS
-            parse(newRdfParserBuilder().lang(Lang.NQUADS).source(whyisFilePath).build(), new FileNanopublicationConsumer(consumer, twksFilePath) {
-                @Override
-                public void accept(final Nanopublication nanopublication) {
-                    super.accept(nanopublication);
-                    twksNanopublications.add(nanopublication);
-                }
-            }, Optional.of(Uri.parse(whyisFilePath.toUri().toString())));
-            // Write the twksFile spec-compliant nanopublications for use later, in the branch above.
-            {
-                final Dataset dataset = DatasetFactory.create();
-                for (final Nanopublication nanopublication : twksNanopublications) {
-                    nanopublication.toDataset(dataset);
-                }
-                try (final OutputStream twksFileOutputStream = new FileOutputStream(twksFilePath.toFile())) {
+        // Collect the nanopublications so we can also write them out, independently of the consumer.
+        final List<Nanopublication> twksNanopublications = new ArrayList<>();
+        // Track the nanopublication under the twksFilePath, since on subsequent passes it will be tracked that way in the branch above.
+        // Force NQUADS
+        parse(newRdfParserBuilder().lang(Lang.NQUADS).source(whyisFilePath).build(), new FileNanopublicationConsumer(consumer, twksFilePath) {
+            @Override
+            public void accept(final Nanopublication nanopublication) {
+                super.accept(nanopublication);
+                twksNanopublications.add(nanopublication);
+            }
+        }, Optional.of(Uri.parse(whyisFilePath.toUri().toString())));
+        // Write the twksFile spec-compliant nanopublications for use later, in the branch above.
+        {
+            final Dataset dataset = DatasetFactory.create();
+            for (final Nanopublication nanopublication : twksNanopublications) {
+                nanopublication.toDataset(dataset);
+            }
+            // Write to a temporary file and move it into place, so an interrupted walk doesn't leave a partial cache file to be parsed on the next pass.
+            final Path twksTempFilePath = nanopublicationSubdirectoryPath.resolve("file.twks.trig.tmp");
+            try {
+                try (final OutputStream twksFileOutputStream = new FileOutputStream(twksTempFilePath.toFile())) {
                     // See note above re: file.twks.trig.
 //                            checkState(NanopublicationParser.SPECIFICATION.getLang().equals(Lang.TRIG));
                     RDFDataMgr.write(twksFileOutputStream, dataset, Lang.TRIG);
-                } catch (final IOException e) {
-                    throw new RuntimeException(e);
                 }
+                Files.move(twksTempFilePath, twksFilePath, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
             }
         }
     }
@@ -392,11 +642,11 @@ public class NanopublicationParser {
         private final ImmutableList.Builder<Nanopublication> nanopublicationsBuilder = ImmutableList.builder();
 
         @Override
-        public final void accept(final Nanopublication nanopublication) {
+        public final synchronized void accept(final Nanopublication nanopublication) {
             nanopublicationsBuilder.add(nanopublication);
         }
 
-        public final ImmutableList<Nanopublication> build() {
+        public final synchronized ImmutableList<Nanopublication> build() {
             return nanopublicationsBuilder.build();
         }
 
@@ -410,11 +660,11 @@ public class NanopublicationParser {
         private final ImmutableMultimap.Builder<Path, Nanopublication> nanopublicationsBuilder = ImmutableMultimap.builder();
 
         @Override
-        public final void accept(final Nanopublication nanopublication, final Path nanopublicationFilePath) {
+        public final synchronized void accept(final Nanopublication nanopublication, final Path nanopublicationFilePath) {
             nanopublicationsBuilder.put(nanopublicationFilePath, nanopublication);
         }
 
-        public final ImmutableMultimap<Path, Nanopublication> build() {
+        public final synchronized ImmutableMultimap<Path, Nanopublication> build() {
 //            if (logger.isDebugEnabled()) {
 //                logger.debug("parsed {} nanopublications from {}", result.size(), sourceDirectoryPath);
 //            }
@@ -637,8 +887,9 @@ public class NanopublicationParser {
                     try (final Timer.Context timerContext = metrics.parseDatasetNanopublicationTimer.time()) {
                         final QuerySolution querySolution = resultSet.nextSolution();
 
+                        @Nullable Uri nanopublicationUri = null;
                         try {
-                            final Uri nanopublicationUri = Uri.parse(getNanopublicationPartResource(querySolution, "np").getURI());
+                            nanopublicationUri = Uri.parse(getNanopublicationPartResource(querySolution, "np").getURI());
                             if (!nanopublicationUris.add(nanopublicationUri)) {
                                 throw new MalformedNanopublicationException("duplicate nanopublication URI: " + nanopublicationUri);
                             }
@@ -650,7 +901,7 @@ public class NanopublicationParser {
 
                             nanopublication = createNanopublicationFromParts(assertion, head, nanopublicationUri, provenance, publicationInfo);
                         } catch (final MalformedNanopublicationException e) {
-                            consumer.onMalformedNanopublicationException(e);
+                            consumer.onMalformedNanopublicationException(nanopublicationUri != null ? new MalformedNanopublicationException(e, nanopublicationUri) : e);
                             continue;
                         }
                     }
@@ -12,9 +12,11 @@ public final class NanopublicationParserBuilder {
     private NanopublicationDialect dialect = NanopublicationDialect.SPECIFICATION;
     private Optional<Lang> lang = Optional.empty();
     private Optional<MetricRegistry> metricRegistry = Optional.empty();
+    private boolean streaming = false;
+    private boolean streamingStrict = false;
 
     public final NanopublicationParser build() {
-        return new NanopublicationParser(concurrencyLevel, dialect, lang, metricRegistry.isPresent() ? metricRegistry.get() : new MetricRegistry());
+        return new NanopublicationParser(concurrencyLevel, dialect, lang, metricRegistry.isPresent() ? metricRegistry.get() : new MetricRegistry(), streaming, streamingStrict);
     }
 
     public final NanopublicationParserBuilder setConcurrencyLevel(final int concurrencyLevel) {
@@ -36,4 +38,26 @@ public final class NanopublicationParserBuilder {
         this.metricRegistry = Optional.of(metricRegistry);
         return this;
     }
+
+    /**
+     * Parse specification nanopublications as their graphs are read, instead of reading each source into memory first.
+     * <p>
+     * Suited to large files in which the graphs of each nanopublication are contiguous, such as dumps. Input that isn't is parsed in memory.
+     * <p>
+     * With a concurrency level > 1, large uncompressed N-Quads files are also split into chunks that are parsed concurrently, so the consumer must be thread-safe.
+     */
+    public final NanopublicationParserBuilder setStreaming(final boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
+    /**
+     * In streaming mode, report input that can't be parsed in a bounded window as malformed and stop, instead of parsing the rest of the source in memory.
+     * <p>
+     * For untrusted sources of unbounded size, such as request bodies.
+     */
+    public final NanopublicationParserBuilder setStreamingStrict(final boolean streamingStrict) {
+        this.streamingStrict = streamingStrict;
+        return this;
+    }
 }
@@ -0,0 +1,64 @@
+package edu.rpi.tw.twks.nanopub;
+
+import org.apache.jena.riot.Lang;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Cache of parsers by dialect and language, for callers that parse many small sources, such as request handlers.
+ * <p>
+ * Parsers are thread-safe, so a cached parser is shared by all of the threads that get it.
+ */
+public final class NanopublicationParserCache {
+    private final ConcurrentMap<Key, NanopublicationParser> parsers = new ConcurrentHashMap<>();
+    private final boolean streaming;
+    private final boolean streamingStrict;
+
+    public NanopublicationParserCache() {
+        this(false, false);
+    }
+
+    /**
+     * @param streaming       build streaming parsers, see {@link NanopublicationParserBuilder#setStreaming(boolean)}
+     * @param streamingStrict see {@link NanopublicationParserBuilder#setStreamingStrict(boolean)}
+     */
+    public NanopublicationParserCache(final boolean streaming, final boolean streamingStrict) {
+        this.streaming = streaming;
+        this.streamingStrict = streamingStrict;
+    }
+
+    public final NanopublicationParser get(final NanopublicationDialect dialect, final Lang lang) {
+        return parsers.computeIfAbsent(new Key(dialect, lang), key -> NanopublicationParser.builder().setDialect(key.dialect).setLang(key.lang).setStreaming(streaming).setStreamingStrict(streamingStrict).build());
+    }
+
+    private final static class Key {
+        private final NanopublicationDialect dialect;
+        private final Lang lang;
+
+        Key(final NanopublicationDialect dialect, final Lang lang) {
+            this.dialect = checkNotNull(dialect);
+            this.lang = checkNotNull(lang);
+        }
+
+        @Override
+        public final boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key otherKey = (Key) other;
+            return dialect == otherKey.dialect && lang.equals(otherKey.lang);
+        }
+
+        @Override
+        public final int hashCode() {
+            return Objects.hash(dialect, lang);
+        }
+    }
+}
@@ -11,13 +11,20 @@ public final class NanopublicationQueries {
 //            "  {graph ?H {: a np:Nanopublication {: np:hasAssertion ?G} union {: np:hasProvenance ?G} union {: np:hasPublicationInfo ?G}}}\n" +
 //            "  graph ?G {?S ?P ?O}\n" +
 //            "}";
-    public final static String GET_NANOPUBLICATION_GRAPH_NAMES_QUERY_STRING_TEMPLATE = "prefix np: <http://www.nanopub.org/nschema#>\n" +
-            "prefix : <%s>\n" +
-            "select ?G where {\n" +
-            "  {graph ?G {: a np:Nanopublication}} union\n" +
-            "  {graph ?H {: a np:Nanopublication {: np:hasAssertion ?G} union {: np:hasProvenance ?G} union {: np:hasPublicationInfo ?G}}}\n" +
-            "  graph ?G {?S ?P ?O}\n" +
-            "}";
+    // Bind values of ?G
+    public final static PreparedQuery GET_EXTANT_GRAPH_NAMES_QUERY = new PreparedQuery("select distinct ?G where {\n" +
+            "  graph ?G { ?S ?P ?O }\n" +
+            "}");
+    public final static Query HAS_ASSERTIONS_QUERY = QueryFactory.create("prefix np: <http://www.nanopub.org/nschema#>\n" +
+            "ask where {\n" +
+            "  graph ?H { ?np np:hasAssertion ?A }\n" +
+            "  graph ?A { ?S ?P ?O }\n" +
+            "}");
+    // Bind ?A
+    public final static PreparedQuery IS_ASSERTION_GRAPH_QUERY = new PreparedQuery("prefix np: <http://www.nanopub.org/nschema#>\n" +
+            "ask where {\n" +
+            "  graph ?H { ?np np:hasAssertion ?A }\n" +
+            "}");
     public final static String ITERATE_NANOPUBLICATIONS_QUERY_STRING = "prefix np: <http://www.nanopub.org/nschema#>\n" +
             "select ?A ?H ?I ?np ?P where {\n" +
             "graph ?H {\n" +
@@ -0,0 +1,57 @@
+package edu.rpi.tw.twks.nanopub;
+
+import com.google.common.collect.ImmutableMap;
+import edu.rpi.tw.twks.uri.Uri;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.syntax.ElementData;
+import org.apache.jena.sparql.syntax.ElementGroup;
+import org.apache.jena.sparql.syntax.syntaxtransform.QueryTransformOps;
+
+/**
+ * A SPARQL query that is parsed once and then bound to URI parameters on each use.
+ * <p>
+ * Binding substitutes into the parsed syntax tree rather than formatting and re-parsing a query string. Each bind returns a new Query, so the result can be modified by the caller.
+ */
+public final class PreparedQuery {
+    private final Query query;
+
+    public PreparedQuery(final String queryString) {
+        this.query = QueryFactory.create(queryString);
+    }
+
+    /**
+     * Substitute a URI for a variable.
+     */
+    public final Query bind(final String varName, final Uri value) {
+        return QueryTransformOps.transform(query, ImmutableMap.of(Var.alloc(varName), NodeFactory.createURI(value.toString())));
+    }
+
+    /**
+     * Bind a variable to a set of URIs with an inline VALUES block, which is evaluated before the rest of the query pattern.
+     */
+    public final Query bindValues(final String varName, final Iterable<Uri> values) {
+        final Var var = Var.alloc(varName);
+        final ElementData data = new ElementData();
+        data.add(var);
+        for (final Uri value : values) {
+            data.add(BindingFactory.binding(var, NodeFactory.createURI(value.toString())));
+        }
+
+        final ElementGroup queryPattern = new ElementGroup();
+        queryPattern.addElement(data);
+        queryPattern.addElement(query.getQueryPattern());
+
+        final Query result = QueryTransformOps.shallowCopy(query);
+        result.setQueryPattern(queryPattern);
+        return result;
+    }
+
+    @Override
+    public final String toString() {
+        return query.toString();
+    }
+}
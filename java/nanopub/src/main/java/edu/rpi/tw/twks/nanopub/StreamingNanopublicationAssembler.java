@@ -0,0 +1,258 @@
+package edu.rpi.tw.twks.nanopub;
+
+import edu.rpi.tw.twks.vocabulary.NANOPUB;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Assemble nanopublications from a stream of quads as their graphs complete, instead of parsing the whole input into one Dataset first.
+ * <p>
+ * Assumes the quads of each graph are contiguous in the input, and that the graphs of a nanopublication are near each other, as they are in dumps.
+ * A nanopublication is complete when its head and the part graphs the head refers to have been seen and the input has moved on to another graph.
+ * Each complete nanopublication is handed off as a Dataset of its own graphs, to be parsed and validated as usual.
+ * <p>
+ * Input the assembler can't handle in a bounded window of graphs, such as statements in the default graph or nanopublications whose graphs are far apart,
+ * is collected from that point on into a remainder Dataset to be parsed in memory after the stream finishes.
+ * In strict mode it's reported as malformed instead, and the assembler stops the parse by throwing a {@link StoppedException}.
+ * <p>
+ * When the input is a chunk of a larger file, its first and last graphs may be cut off. Nanopublications that involve them are left in the remainder, to be merged with the other chunks' remainders.
+ * <p>
+ * A graph that reappears after its nanopublication was handed off can't be fixed up. If it's one of the recently handed off graphs, it's reported as malformed and its statements are dropped.
+ */
+final class StreamingNanopublicationAssembler implements StreamRDF {
+    private final static Logger logger = LoggerFactory.getLogger(StreamingNanopublicationAssembler.class);
+    private final Consumer<MalformedNanopublicationException> malformedNanopublicationExceptionConsumer;
+    private final Consumer<Dataset> nanopublicationDatasetConsumer;
+    // Head graph name -> names of the part graphs it refers to
+    private final Map<Node, Set<Node>> partGraphNamesByHeadGraphName = new LinkedHashMap<>();
+    private final boolean partialInput;
+    private final boolean strict;
+    // Names of the last windowGraphsMax graphs handed off, oldest first
+    private final Set<Node> recentlyEmittedGraphNames = new LinkedHashSet<>();
+    // Graphs that haven't been handed off yet, in order of appearance
+    private final Map<Node, Graph> windowGraphs = new LinkedHashMap<>();
+    private final int windowGraphsMax;
+    @Nullable
+    private Node currentGraphName = null;
+    private boolean currentGraphRejected = false;
+    @Nullable
+    private Node firstGraphName = null;
+    private boolean emittedNanopublicationDataset = false;
+    @Nullable
+    private Dataset remainderDataset = null;
+
+    StreamingNanopublicationAssembler(final int windowGraphsMax, final Consumer<Dataset> nanopublicationDatasetConsumer, final Consumer<MalformedNanopublicationException> malformedNanopublicationExceptionConsumer) {
+        this(windowGraphsMax, nanopublicationDatasetConsumer, malformedNanopublicationExceptionConsumer, false, false);
+    }
+
+    /**
+     * @param partialInput the input is a chunk of a larger input, so its first and last graphs may be incomplete
+     * @param strict       report input that can't be handled in the window as malformed and stop, instead of collecting the rest of the input into the remainder
+     */
+    StreamingNanopublicationAssembler(final int windowGraphsMax, final Consumer<Dataset> nanopublicationDatasetConsumer, final Consumer<MalformedNanopublicationException> malformedNanopublicationExceptionConsumer, final boolean partialInput, final boolean strict) {
+        checkArgument(windowGraphsMax > 0);
+        checkArgument(!(partialInput && strict));
+        this.malformedNanopublicationExceptionConsumer = checkNotNull(malformedNanopublicationExceptionConsumer);
+        this.nanopublicationDatasetConsumer = checkNotNull(nanopublicationDatasetConsumer);
+        this.partialInput = partialInput;
+        this.strict = strict;
+        this.windowGraphsMax = windowGraphsMax;
+    }
+
+    @Override
+    public final void base(final String base) {
+    }
+
+    private void emitCompleteNanopublications() {
+        for (final Iterator<Map.Entry<Node, Set<Node>>> headI = partGraphNamesByHeadGraphName.entrySet().iterator(); headI.hasNext(); ) {
+            final Map.Entry<Node, Set<Node>> head = headI.next();
+            final Node headGraphName = head.getKey();
+            final Set<Node> partGraphNames = head.getValue();
+
+            if (headGraphName.equals(currentGraphName) || partGraphNames.contains(currentGraphName)) {
+                // Still being read
+                continue;
+            }
+            if (partialInput && (headGraphName.equals(firstGraphName) || partGraphNames.contains(firstGraphName))) {
+                // May be missing statements from before the input
+                continue;
+            }
+            if (!windowGraphs.keySet().containsAll(partGraphNames)) {
+                // Parts still to come
+                continue;
+            }
+
+            final Dataset nanopublicationDataset = DatasetFactory.create();
+            nanopublicationDataset.asDatasetGraph().addGraph(headGraphName, windowGraphs.remove(headGraphName));
+            onEmittedGraph(headGraphName);
+            for (final Node partGraphName : partGraphNames) {
+                @Nullable final Graph partGraph = windowGraphs.remove(partGraphName);
+                if (partGraph != null) {
+                    nanopublicationDataset.asDatasetGraph().addGraph(partGraphName, partGraph);
+                    onEmittedGraph(partGraphName);
+                }
+            }
+            headI.remove();
+
+            emittedNanopublicationDataset = true;
+            nanopublicationDatasetConsumer.accept(nanopublicationDataset);
+        }
+    }
+
+    private void fallBack(final String reason) {
+        if (strict) {
+            // Hand off the nanopublications completed before this point, in order, then drop the rest
+            currentGraphName = null;
+            emitCompleteNanopublications();
+            windowGraphs.clear();
+            partGraphNamesByHeadGraphName.clear();
+            malformedNanopublicationExceptionConsumer.accept(new MalformedNanopublicationException(reason + "; the graphs of each nanopublication must be contiguous and in named graphs"));
+            throw new StoppedException();
+        }
+        logger.info("parsing the rest of the input in memory: {}", reason);
+        moveWindowToRemainder();
+    }
+
+    private void moveWindowToRemainder() {
+        remainderDataset = DatasetFactory.create();
+        for (final Map.Entry<Node, Graph> windowGraph : windowGraphs.entrySet()) {
+            remainderDataset.asDatasetGraph().addGraph(windowGraph.getKey(), windowGraph.getValue());
+        }
+        windowGraphs.clear();
+        partGraphNamesByHeadGraphName.clear();
+    }
+
+    @Override
+    public final void finish() {
+        if (remainderDataset != null) {
+            return;
+        }
+
+        if (!partialInput) {
+            // Otherwise the last graph may continue after the input
+            currentGraphName = null;
+        }
+        emitCompleteNanopublications();
+
+        if (!windowGraphs.isEmpty()) {
+            // Incomplete nanopublications and graphs that aren't part of any nanopublication. Let the in-memory parser report them.
+            if (!partialInput) {
+                logger.info("parsing {} graph(s) left over at the end of the input in memory", windowGraphs.size());
+            }
+            moveWindowToRemainder();
+        }
+    }
+
+    /**
+     * The part of the input that couldn't be assembled into nanopublications, if any, to be parsed in memory after {@link #finish()}.
+     * <p>
+     * An empty input gives an empty remainder, so it's parsed the same way as it would be without streaming.
+     */
+    final Optional<Dataset> getRemainderDataset() {
+        if (remainderDataset != null) {
+            return Optional.of(remainderDataset);
+        } else if (!emittedNanopublicationDataset) {
+            return Optional.of(DatasetFactory.create());
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    private void onEmittedGraph(final Node graphName) {
+        recentlyEmittedGraphNames.add(graphName);
+        if (recentlyEmittedGraphNames.size() > windowGraphsMax) {
+            final Iterator<Node> oldestGraphNameI = recentlyEmittedGraphNames.iterator();
+            oldestGraphNameI.next();
+            oldestGraphNameI.remove();
+        }
+    }
+
+    @Override
+    public final void prefix(final String prefix, final String iri) {
+    }
+
+    @Override
+    public final void quad(final Quad quad) {
+        if (remainderDataset != null) {
+            remainderDataset.asDatasetGraph().add(quad);
+            return;
+        }
+
+        if (quad.isDefaultGraph()) {
+            fallBack("statements in the default graph");
+            remainderDataset.asDatasetGraph().add(quad);
+            return;
+        }
+
+        final Node graphName = quad.getGraph();
+        if (firstGraphName == null) {
+            firstGraphName = graphName;
+        }
+        if (!graphName.equals(currentGraphName)) {
+            currentGraphName = graphName;
+            currentGraphRejected = false;
+            emitCompleteNanopublications();
+            if (recentlyEmittedGraphNames.contains(graphName)) {
+                currentGraphRejected = true;
+                malformedNanopublicationExceptionConsumer.accept(new MalformedNanopublicationException(String.format("graph %s reappears after the nanopublication it belongs to was parsed; the graphs of each nanopublication must be contiguous in streaming mode", graphName)));
+            } else if (windowGraphs.size() >= windowGraphsMax && !windowGraphs.containsKey(graphName)) {
+                fallBack("more than " + windowGraphsMax + " graphs without a complete nanopublication");
+                remainderDataset.asDatasetGraph().add(quad);
+                return;
+            }
+        }
+
+        if (currentGraphRejected) {
+            return;
+        }
+
+        Graph graph = windowGraphs.get(graphName);
+        if (graph == null) {
+            graph = GraphFactory.createDefaultGraph();
+            windowGraphs.put(graphName, graph);
+        }
+        graph.add(quad.asTriple());
+
+        final Node predicate = quad.getPredicate();
+        if (predicate.equals(RDF.type.asNode()) && quad.getObject().equals(NANOPUB.Nanopublication.asNode())) {
+            partGraphNamesByHeadGraphName.computeIfAbsent(graphName, key -> new LinkedHashSet<>());
+        } else if (predicate.equals(NANOPUB.hasAssertion.asNode()) || predicate.equals(NANOPUB.hasProvenance.asNode()) || predicate.equals(NANOPUB.hasPublicationInfo.asNode())) {
+            partGraphNamesByHeadGraphName.computeIfAbsent(graphName, key -> new LinkedHashSet<>()).add(quad.getObject());
+        }
+    }
+
+    @Override
+    public final void start() {
+    }
+
+    @Override
+    public final void triple(final Triple triple) {
+        quad(new Quad(Quad.defaultGraphNodeGenerated, triple));
+    }
+
+    /**
+     * Thrown through the RDF parser to stop it in strict mode, after the reason has been reported.
+     */
+    @SuppressWarnings("serial")
+    final static class StoppedException extends RuntimeException {
+        private StoppedException() {
+            super(null, null, false, false);
+        }
+    }
+}
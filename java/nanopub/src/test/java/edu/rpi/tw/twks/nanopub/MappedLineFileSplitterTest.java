@@ -0,0 +1,54 @@
+package edu.rpi.tw.twks.nanopub;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class MappedLineFileSplitterTest {
+    private final static String CONTENTS = "first line\nsecond line\n\nfourth line without a newline";
+    private Path tempFilePath;
+
+    @Before
+    public void setUp() throws IOException {
+        tempFilePath = Files.createTempFile(null, ".nq");
+        Files.write(tempFilePath, CONTENTS.getBytes(Charsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.delete(tempFilePath);
+    }
+
+    @Test
+    public void testSplit() throws IOException {
+        for (long chunkSize = 1; chunkSize <= CONTENTS.length() + 1; chunkSize++) {
+            try (final FileChannel channel = FileChannel.open(tempFilePath, StandardOpenOption.READ)) {
+                final ImmutableList<MappedLineFileSplitter.Chunk> chunks = MappedLineFileSplitter.split(channel, chunkSize);
+                final StringBuilder actual = new StringBuilder();
+                for (final MappedLineFileSplitter.Chunk chunk : chunks) {
+                    try (final InputStream chunkInputStream = chunk.open(channel)) {
+                        final String chunkContents = new String(ByteStreams.toByteArray(chunkInputStream), Charsets.UTF_8);
+                        assertEquals(chunk.getSize(), chunkContents.length());
+                        // Every chunk but the last ends at a line boundary
+                        assertTrue(chunk.getOffset() + chunk.getSize() == CONTENTS.length() || chunkContents.endsWith("\n"));
+                        actual.append(chunkContents);
+                    }
+                }
+                assertEquals(CONTENTS, actual.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package edu.rpi.tw.twks.nanopub;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public final class NanopublicationParserCacheTest {
+    private NanopublicationParserCache sut;
+    private TestData testData;
+
+    @Before
+    public void setUp() throws Exception {
+        sut = new NanopublicationParserCache();
+        testData = new TestData();
+    }
+
+    @Test
+    public void testGet() {
+        final NanopublicationParser parser = sut.get(NanopublicationDialect.SPECIFICATION, Lang.TRIG);
+        assertSame(parser, sut.get(NanopublicationDialect.SPECIFICATION, Lang.TRIG));
+        assertNotSame(parser, sut.get(NanopublicationDialect.SPECIFICATION, Lang.NQUADS));
+        assertNotSame(parser, sut.get(NanopublicationDialect.WHYIS, Lang.TRIG));
+        assertEquals(NanopublicationDialect.WHYIS, sut.get(NanopublicationDialect.WHYIS, Lang.TRIG).getDialect());
+    }
+
+    @Test
+    public void testShared() throws ExecutionException, InterruptedException {
+        final StringWriter trig = new StringWriter();
+        RDFDataMgr.write(trig, testData.uniqueNanopublicationsDataset, Lang.TRIG);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<ImmutableList<Nanopublication>>> futures = new ArrayList<>();
+            for (int taskI = 0; taskI < 16; taskI++) {
+                futures.add(executor.submit(() -> sut.get(NanopublicationDialect.SPECIFICATION, Lang.TRIG).parseString(trig.toString())));
+            }
+            for (final Future<ImmutableList<Nanopublication>> future : futures) {
+                assertEquals(2, future.get().size());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
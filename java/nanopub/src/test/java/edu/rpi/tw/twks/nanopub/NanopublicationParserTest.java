@@ -10,7 +10,11 @@ import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream
 import org.apache.commons.io.IOUtils;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.RiotNotFoundException;
 import org.junit.Before;
 import org.junit.Test;
@@ -18,12 +22,16 @@ import org.junit.Test;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
@@ -236,6 +244,243 @@ public final class NanopublicationParserTest {
         }
     }
 
+    @Test
+    public void testSpecNanopublicationsDirectoryConcurrent() throws IOException {
+        final Path tempDirectoryPath = Files.createTempDirectory(null);
+        try {
+            for (int fileI = 0; fileI < 20; fileI++) {
+                Files.copy(testData.specNanopublicationFilePath, tempDirectoryPath.resolve("test" + fileI + ".trig"));
+            }
+            final NanopublicationParser concurrentSut = NanopublicationParser.builder().setConcurrencyLevel(4).build();
+            // Parse twice to reuse the executor
+            for (int parseI = 0; parseI < 2; parseI++) {
+                final ImmutableMultimap<Path, Nanopublication> results = concurrentSut.parseDirectory(tempDirectoryPath);
+                assertEquals(20, results.size());
+                assertEquals(20, results.keySet().size());
+            }
+        } finally {
+            MoreFiles.deleteRecursively(tempDirectoryPath, RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testSpecNanopublicationsDirectoryConcurrentMalformed() throws IOException {
+        final Path tempDirectoryPath = Files.createTempDirectory(null);
+        try {
+            for (int fileI = 0; fileI < 20; fileI++) {
+                Files.copy(testData.specNanopublicationFilePath, tempDirectoryPath.resolve("test" + fileI + ".trig"));
+            }
+            Files.write(tempDirectoryPath.resolve("malformed.trig"), "not trig".getBytes(Charsets.UTF_8));
+            try {
+                NanopublicationParser.builder().setConcurrencyLevel(4).build().parseDirectory(tempDirectoryPath);
+                fail();
+            } catch (final MalformedNanopublicationRuntimeException e) {
+            }
+        } finally {
+            MoreFiles.deleteRecursively(tempDirectoryPath, RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testSpecNanopublicationsDirectoryRecursive() throws IOException {
+        final Path tempDirectoryPath = Files.createTempDirectory(null);
+        try {
+            final Path tempSubdirectoryPath = tempDirectoryPath.resolve("a").resolve("b");
+            Files.createDirectories(tempSubdirectoryPath);
+            Files.copy(testData.specNanopublicationFilePath, tempDirectoryPath.resolve("test.trig"));
+            Files.copy(testData.specNanopublicationFilePath, tempSubdirectoryPath.resolve("test.trig"));
+            final ImmutableMultimap<Path, Nanopublication> results = sut.parseDirectory(tempDirectoryPath);
+            assertEquals(2, results.size());
+            assertEquals(1, results.get(tempSubdirectoryPath.resolve("test.trig")).size());
+        } finally {
+            MoreFiles.deleteRecursively(tempDirectoryPath, RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testWhyisNanopublicationsDirectoryConcurrent() throws IOException {
+        final Path tempDirectoryPath = Files.createTempDirectory(null);
+        try {
+            final Path nanopublicationsDirectoryPath = tempDirectoryPath.resolve("nanopublications");
+            Files.createDirectory(nanopublicationsDirectoryPath);
+            for (int nanopublicationI = 0; nanopublicationI < 8; nanopublicationI++) {
+                final Path nanopublicationDirectoryPath = nanopublicationsDirectoryPath.resolve("np" + nanopublicationI);
+                Files.createDirectory(nanopublicationDirectoryPath);
+                Files.copy(testData.whyisNanopublicationFilePath, nanopublicationDirectoryPath.resolve("file"));
+            }
+            final NanopublicationParser concurrentSut = NanopublicationParser.builder().setConcurrencyLevel(4).setDialect(NanopublicationDialect.WHYIS).build();
+
+            final ImmutableMultimap<Path, Nanopublication> firstResults = concurrentSut.parseDirectory(nanopublicationsDirectoryPath);
+            assertEquals(8, firstResults.size());
+            for (int nanopublicationI = 0; nanopublicationI < 8; nanopublicationI++) {
+                assertTrue(Files.isRegularFile(nanopublicationsDirectoryPath.resolve("np" + nanopublicationI).resolve("file.twks.trig")));
+            }
+
+            // The second pass reads the cached conversions, so it produces the same nanopublications
+            final ImmutableMultimap<Path, Nanopublication> secondResults = concurrentSut.parseDirectory(nanopublicationsDirectoryPath);
+            assertEquals(8, secondResults.size());
+            for (final Map.Entry<Path, Nanopublication> firstResult : firstResults.entries()) {
+                assertEquals(firstResult.getValue().getUri(), secondResults.get(firstResult.getKey()).asList().get(0).getUri());
+            }
+        } finally {
+            MoreFiles.deleteRecursively(tempDirectoryPath, RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testStdin() throws IOException {
+        final InputStream originalSystemIn = System.in;
+        try (final InputStream fileInputStream = Files.newInputStream(testData.specNanopublicationFilePath)) {
+            System.setIn(fileInputStream);
+            final ImmutableList<Nanopublication> nanopublications = NanopublicationParser.builder().setLang(Lang.TRIG).build().parseStdin();
+            assertEquals(1, nanopublications.size());
+            assertTrue(nanopublications.get(0).isIsomorphicWith(sut.parseFile(testData.specNanopublicationFilePath).get(0)));
+        } finally {
+            System.setIn(originalSystemIn);
+        }
+    }
+
+    @Test
+    public void testStdinAssertionOnly() throws IOException {
+        final InputStream originalSystemIn = System.in;
+        try (final InputStream fileInputStream = Files.newInputStream(testData.assertionOnlyFilePath)) {
+            System.setIn(fileInputStream);
+            final ImmutableList<Nanopublication> nanopublications = NanopublicationParser.builder().setLang(Lang.TURTLE).build().parseStdin();
+            assertEquals(1, nanopublications.size());
+            assertEquals(1, nanopublications.get(0).getAssertion().getModel().size());
+        } finally {
+            System.setIn(originalSystemIn);
+        }
+    }
+
+    private static List<Nanopublication> newChunkedFileNanopublications() throws MalformedNanopublicationException {
+        final List<Nanopublication> nanopublications = new ArrayList<>();
+        for (int nanopublicationI = 0; nanopublicationI < 20; nanopublicationI++) {
+            final Model assertion = ModelFactory.createDefaultModel();
+            // Blank nodes must be the same across chunks
+            final Resource blankNode = assertion.createResource();
+            assertion.add(assertion.createResource("http://example.com/subject" + nanopublicationI), assertion.createProperty("http://example.com/predicate"), blankNode);
+            blankNode.addLiteral(assertion.createProperty("http://example.com/value"), nanopublicationI);
+            nanopublications.add(Nanopublication.builder().getAssertionBuilder().setModel(assertion).getNanopublicationBuilder().build());
+        }
+        return nanopublications;
+    }
+
+    private static void writeNquads(final List<Nanopublication> nanopublications, final Path filePath) throws IOException {
+        try (final OutputStream outputStream = Files.newOutputStream(filePath)) {
+            for (final Nanopublication nanopublication : nanopublications) {
+                RDFDataMgr.write(outputStream, nanopublication.toDataset(), Lang.NQUADS);
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testChunkedFilesDirectory() throws IOException, MalformedNanopublicationException {
+        final Path tempDirectoryPath = Files.createTempDirectory(null);
+        try {
+            // At least as many chunked files as threads, so every directory worker is waiting on its chunks at the same time
+            final int concurrencyLevel = 2;
+            long fileSize = 0;
+            for (int fileI = 0; fileI < concurrencyLevel * 2; fileI++) {
+                final Path tempFilePath = tempDirectoryPath.resolve("test" + fileI + ".nq");
+                writeNquads(newChunkedFileNanopublications(), tempFilePath);
+                fileSize = Files.size(tempFilePath);
+            }
+
+            final NanopublicationParser parser = NanopublicationParser.builder().setConcurrencyLevel(concurrencyLevel).setStreaming(true).build();
+            parser.setChunkSize(fileSize / 7);
+            final ImmutableMultimap<Path, Nanopublication> results = parser.parseDirectory(tempDirectoryPath);
+            assertEquals(concurrencyLevel * 2 * 20, results.size());
+            assertEquals(concurrencyLevel * 2, results.keySet().size());
+        } finally {
+            MoreFiles.deleteRecursively(tempDirectoryPath, RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testChunkedFile() throws IOException, MalformedNanopublicationException {
+        final List<Nanopublication> expected = newChunkedFileNanopublications();
+
+        final Path tempDirectoryPath = Files.createTempDirectory(null);
+        try {
+            final Path tempFilePath = tempDirectoryPath.resolve("test.nq");
+            writeNquads(expected, tempFilePath);
+
+            final NanopublicationParser parser = NanopublicationParser.builder().setConcurrencyLevel(2).setStreaming(true).build();
+            final List<Nanopublication> actual = Collections.synchronizedList(new ArrayList<>());
+            // Small chunks, so most nanopublications are in one chunk and some span two
+            parser.parseChunkedFile(tempFilePath, new NanopublicationConsumer() {
+                @Override
+                public void accept(final Nanopublication nanopublication) {
+                    actual.add(nanopublication);
+                }
+
+                @Override
+                public void onMalformedNanopublicationException(final MalformedNanopublicationException exception) {
+                    fail(exception.getMessage());
+                }
+            }, Optional.empty(), Files.size(tempFilePath) / 7);
+
+            assertEquals(expected.size(), actual.size());
+            for (final Nanopublication expectedNanopublication : expected) {
+                assertTrue(actual.stream().anyMatch(actualNanopublication -> actualNanopublication.isIsomorphicWith(expectedNanopublication)));
+            }
+        } finally {
+            MoreFiles.deleteRecursively(tempDirectoryPath, RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+    }
+
+    private void testStreamingDuplicates(final String resourceName) throws IOException {
+        final List<Nanopublication> accepted = new ArrayList<>();
+        final List<MalformedNanopublicationException> exceptions = new ArrayList<>();
+        try (final InputStream inputStream = getClass().getResourceAsStream(resourceName)) {
+            NanopublicationParser.builder().setLang(Lang.TRIG).setStreaming(true).build().parseInputStream(inputStream, new NanopublicationConsumer() {
+                @Override
+                public void accept(final Nanopublication nanopublication) {
+                    accepted.add(nanopublication);
+                }
+
+                @Override
+                public void onMalformedNanopublicationException(final MalformedNanopublicationException exception) {
+                    exceptions.add(exception);
+                }
+            });
+        }
+        assertEquals(1, accepted.size());
+        assertEquals("http://example.org/pub1", accepted.get(0).getUri().toString());
+        assertEquals(1, exceptions.size());
+    }
+
+    @Test
+    public void testStreamingDuplicateNanopublications() throws IOException {
+        testStreamingDuplicates("duplicate_nanopublications.trig");
+    }
+
+    @Test
+    public void testStreamingOverlappingNanopublications() throws IOException {
+        testStreamingDuplicates("overlapping_nanopublications.trig");
+    }
+
+    @Test
+    public void testStreamingFile() throws IOException {
+        final Path tempDirectoryPath = Files.createTempDirectory(null);
+        try {
+            final Path tempFilePath = tempDirectoryPath.resolve("test.trig");
+            try (final OutputStream outputStream = Files.newOutputStream(tempFilePath)) {
+                RDFDataMgr.write(outputStream, testData.uniqueNanopublicationsDataset, Lang.TRIG);
+            }
+            final ImmutableList<Nanopublication> expected = sut.parseFile(tempFilePath);
+            assertEquals(2, expected.size());
+            final ImmutableList<Nanopublication> actual = NanopublicationParser.builder().setStreaming(true).build().parseFile(tempFilePath);
+            assertEquals(expected.size(), actual.size());
+            for (final Nanopublication expectedNanopublication : expected) {
+                assertTrue(actual.stream().anyMatch(actualNanopublication -> actualNanopublication.isIsomorphicWith(expectedNanopublication)));
+            }
+        } finally {
+            MoreFiles.deleteRecursively(tempDirectoryPath, RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+    }
+
     @Test
     public void testWhyisNanopublicationFile() throws MalformedNanopublicationException {
         final Nanopublication nanopublication = NanopublicationParser.builder().setDialect(NanopublicationDialect.WHYIS).build().parseFile(testData.whyisNanopublicationFilePath).get(0);
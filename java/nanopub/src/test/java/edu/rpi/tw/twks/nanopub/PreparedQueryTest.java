@@ -0,0 +1,52 @@
+package edu.rpi.tw.twks.nanopub;
+
+import com.google.common.collect.ImmutableList;
+import edu.rpi.tw.twks.uri.Uri;
+import org.apache.jena.query.*;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public final class PreparedQueryTest {
+    private final static PreparedQuery QUERY = new PreparedQuery("select ?s where { ?s a ?type }");
+    private Model model;
+
+    @Before
+    public void setUp() {
+        model = ModelFactory.createDefaultModel();
+        model.add(ResourceFactory.createResource("http://example.com/a"), RDF.type, RDFS.Class);
+        model.add(ResourceFactory.createResource("http://example.com/b"), RDF.type, RDF.Property);
+        model.add(ResourceFactory.createResource("http://example.com/c"), RDF.type, RDFS.Resource);
+    }
+
+    private Set<String> select(final Query query) {
+        final Set<String> result = new HashSet<>();
+        try (final QueryExecution queryExecution = QueryExecutionFactory.create(query, model)) {
+            queryExecution.execSelect().forEachRemaining(querySolution -> result.add(querySolution.getResource("s").getURI()));
+        }
+        return result;
+    }
+
+    @Test
+    public void testBind() {
+        assertEquals(ImmutableList.of("http://example.com/a"), ImmutableList.copyOf(select(QUERY.bind("type", Uri.parse(RDFS.Class.getURI())))));
+        // The prepared query itself is unchanged
+        assertEquals(ImmutableList.of("http://example.com/b"), ImmutableList.copyOf(select(QUERY.bind("type", Uri.parse(RDF.Property.getURI())))));
+    }
+
+    @Test
+    public void testBindValues() {
+        final Set<String> actual = select(QUERY.bindValues("type", ImmutableList.of(Uri.parse(RDFS.Class.getURI()), Uri.parse(RDF.Property.getURI()))));
+        assertEquals(2, actual.size());
+        assertEquals(0, select(QUERY.bindValues("type", ImmutableList.of())).size());
+    }
+}
@@ -0,0 +1,162 @@
+package edu.rpi.tw.twks.nanopub;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.sparql.core.Quad;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public final class StreamingNanopublicationAssemblerTest {
+    private ImmutableList<Nanopublication> nanopublications;
+    private TestData testData;
+
+    @Before
+    public void setUp() throws Exception {
+        testData = new TestData();
+        nanopublications = NanopublicationParser.builder().build().parseDataset(testData.uniqueNanopublicationsDataset);
+        assertEquals(2, nanopublications.size());
+    }
+
+    private static List<Quad> toQuads(final NanopublicationPart nanopublicationPart) {
+        final List<Quad> quads = new ArrayList<>();
+        final Node graphNode = NodeFactory.createURI(nanopublicationPart.getName().toString());
+        nanopublicationPart.getModel().getGraph().find().forEachRemaining(triple -> quads.add(new Quad(graphNode, triple)));
+        return quads;
+    }
+
+    private static List<Quad> toQuads(final Nanopublication nanopublication) {
+        final List<Quad> quads = new ArrayList<>();
+        // Head last, to check that the assembler doesn't depend on it coming first
+        quads.addAll(toQuads(nanopublication.getAssertion()));
+        quads.addAll(toQuads(nanopublication.getProvenance()));
+        quads.addAll(toQuads(nanopublication.getPublicationInfo()));
+        quads.addAll(toQuads(nanopublication.getHead()));
+        return quads;
+    }
+
+    @Test
+    public void testContiguous() {
+        final List<Dataset> nanopublicationDatasets = new ArrayList<>();
+        final StreamingNanopublicationAssembler sut = new StreamingNanopublicationAssembler(10, nanopublicationDatasets::add, exception -> fail());
+        sut.start();
+
+        for (final Quad quad : toQuads(nanopublications.get(0))) {
+            sut.quad(quad);
+        }
+        assertEquals(0, nanopublicationDatasets.size());
+
+        final List<Quad> secondNanopublicationQuads = toQuads(nanopublications.get(1));
+        sut.quad(secondNanopublicationQuads.get(0));
+        // Moving on to another graph completes the first nanopublication
+        assertEquals(1, nanopublicationDatasets.size());
+        for (final Quad quad : secondNanopublicationQuads.subList(1, secondNanopublicationQuads.size())) {
+            sut.quad(quad);
+        }
+
+        sut.finish();
+        assertEquals(2, nanopublicationDatasets.size());
+        assertFalse(sut.getRemainderDataset().isPresent());
+
+        for (int nanopublicationI = 0; nanopublicationI < 2; nanopublicationI++) {
+            final ImmutableList<Nanopublication> actual = NanopublicationParser.builder().build().parseDataset(nanopublicationDatasets.get(nanopublicationI));
+            assertEquals(1, actual.size());
+            assertTrue(actual.get(0).isIsomorphicWith(nanopublications.get(nanopublicationI)));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        final StreamingNanopublicationAssembler sut = new StreamingNanopublicationAssembler(10, dataset -> fail(), exception -> fail());
+        sut.start();
+        sut.finish();
+        final Optional<Dataset> remainderDataset = sut.getRemainderDataset();
+        assertTrue(remainderDataset.isPresent());
+        assertTrue(remainderDataset.get().isEmpty());
+    }
+
+    @Test
+    public void testPartialInput() {
+        final List<Dataset> nanopublicationDatasets = new ArrayList<>();
+        final StreamingNanopublicationAssembler sut = new StreamingNanopublicationAssembler(10, nanopublicationDatasets::add, exception -> fail(), true, false);
+        sut.start();
+        for (final Nanopublication nanopublication : nanopublications) {
+            for (final Quad quad : toQuads(nanopublication)) {
+                sut.quad(quad);
+            }
+        }
+        sut.finish();
+
+        // The first nanopublication may have started before the chunk and the last may continue after it
+        assertEquals(0, nanopublicationDatasets.size());
+        final ImmutableList<Nanopublication> actual = NanopublicationParser.builder().build().parseDataset(sut.getRemainderDataset().get());
+        assertEquals(2, actual.size());
+    }
+
+    @Test
+    public void testSplitGraph() {
+        final List<Dataset> nanopublicationDatasets = new ArrayList<>();
+        final List<MalformedNanopublicationException> exceptions = new ArrayList<>();
+        final StreamingNanopublicationAssembler sut = new StreamingNanopublicationAssembler(10, nanopublicationDatasets::add, exceptions::add);
+        sut.start();
+        for (final Nanopublication nanopublication : nanopublications) {
+            for (final Quad quad : toQuads(nanopublication)) {
+                sut.quad(quad);
+            }
+        }
+        // A statement in the first nanopublication's assertion graph, after the nanopublication has been handed off
+        sut.quad(toQuads(nanopublications.get(0).getAssertion()).get(0));
+        sut.finish();
+
+        assertEquals(2, nanopublicationDatasets.size());
+        assertEquals(1, exceptions.size());
+        assertFalse(sut.getRemainderDataset().isPresent());
+    }
+
+    @Test
+    public void testStrict() {
+        final List<Dataset> nanopublicationDatasets = new ArrayList<>();
+        final List<MalformedNanopublicationException> exceptions = new ArrayList<>();
+        final StreamingNanopublicationAssembler sut = new StreamingNanopublicationAssembler(10, nanopublicationDatasets::add, exceptions::add, false, true);
+        sut.start();
+        for (final Quad quad : toQuads(nanopublications.get(0))) {
+            sut.quad(quad);
+        }
+        final Quad defaultGraphQuad = new Quad(Quad.defaultGraphNodeGenerated, toQuads(nanopublications.get(1).getAssertion()).get(0).asTriple());
+        try {
+            sut.quad(defaultGraphQuad);
+            fail();
+        } catch (final StreamingNanopublicationAssembler.StoppedException e) {
+        }
+
+        // The nanopublication before the default graph statement was handed off, the rest of the input isn't buffered
+        assertEquals(1, nanopublicationDatasets.size());
+        assertEquals(1, exceptions.size());
+        assertFalse(sut.getRemainderDataset().isPresent());
+    }
+
+    @Test
+    public void testWindowOverflow() {
+        final List<Dataset> nanopublicationDatasets = new ArrayList<>();
+        // Too small a window to hold the parts before the head
+        final StreamingNanopublicationAssembler sut = new StreamingNanopublicationAssembler(2, nanopublicationDatasets::add, exception -> fail());
+        sut.start();
+        for (final Nanopublication nanopublication : nanopublications) {
+            for (final Quad quad : toQuads(nanopublication)) {
+                sut.quad(quad);
+            }
+        }
+        sut.finish();
+
+        assertEquals(0, nanopublicationDatasets.size());
+        final ImmutableList<Nanopublication> actual = NanopublicationParser.builder().build().parseDataset(sut.getRemainderDataset().get());
+        assertEquals(2, actual.size());
+    }
+}
@@ -69,7 +69,7 @@ public final class ServletContextListener implements javax.servlet.ServletContex
     }
 
     private void loadInitialNanopublications(final TwksServerConfiguration configuration, final Twks twks) {
-        final NanopublicationParser nanopublicationParser = NanopublicationParser.builder().setDialect(NanopublicationDialect.SPECIFICATION).build();
+        final NanopublicationParser nanopublicationParser = NanopublicationParser.builder().setConcurrencyLevel(configuration.getInitialNanopublicationsConcurrencyLevel()).setDialect(NanopublicationDialect.SPECIFICATION).build();
 
         if (configuration.getInitialNanopublicationsDirectoryPath().isPresent()) {
             final InitialNanopublicationConsumer consumer = new InitialNanopublicationConsumer(twks) {
@@ -119,23 +119,35 @@ public final class ServletContextListener implements javax.servlet.ServletContex
 
         @Override
         public final void accept(final Nanopublication nanopublication) {
-            nanopublicationsBuffer.add(nanopublication);
-            if (nanopublicationsBuffer.size() == 10) {
-                logger.info("posting {} initial nanopublication(s)", nanopublicationsBuffer.size());
-                twks.postNanopublications(ImmutableList.copyOf(nanopublicationsBuffer));
-                logger.info("posted {} initial nanopublication(s)", nanopublicationsBuffer.size());
+            // Called concurrently when the initial nanopublications are parsed concurrently
+            final ImmutableList<Nanopublication> nanopublicationsToPost;
+            synchronized (nanopublicationsBuffer) {
+                nanopublicationsBuffer.add(nanopublication);
+                if (nanopublicationsBuffer.size() < 10) {
+                    return;
+                }
+                nanopublicationsToPost = ImmutableList.copyOf(nanopublicationsBuffer);
                 nanopublicationsBuffer.clear();
             }
+            postNanopublications(nanopublicationsToPost);
         }
 
         public final void flush() {
-            if (nanopublicationsBuffer.isEmpty()) {
-                return;
+            final ImmutableList<Nanopublication> nanopublicationsToPost;
+            synchronized (nanopublicationsBuffer) {
+                if (nanopublicationsBuffer.isEmpty()) {
+                    return;
+                }
+                nanopublicationsToPost = ImmutableList.copyOf(nanopublicationsBuffer);
+                nanopublicationsBuffer.clear();
             }
-            logger.info("posting {} initial nanopublication(s)", nanopublicationsBuffer.size());
-            twks.postNanopublications(ImmutableList.copyOf(nanopublicationsBuffer));
-            logger.info("posted {} initial nanopublication(s)", nanopublicationsBuffer.size());
-            nanopublicationsBuffer.clear();
+            postNanopublications(nanopublicationsToPost);
+        }
+
+        private void postNanopublications(final ImmutableList<Nanopublication> nanopublicationsToPost) {
+            logger.info("posting {} initial nanopublication(s)", nanopublicationsToPost.size());
+            twks.postNanopublications(nanopublicationsToPost);
+            logger.info("posted {} initial nanopublication(s)", nanopublicationsToPost.size());
         }
     }
 }
@@ -9,6 +9,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Optional;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public final class TwksServerConfiguration extends AbstractConfiguration {
@@ -16,6 +17,7 @@ public final class TwksServerConfiguration extends AbstractConfiguration {
     private final Path extfsDirectoryPath;
     private final TwksFactoryConfiguration factoryConfiguration;
     private final Optional<ImmutableList<Path>> initialNanopublicationFilePaths;
+    private final int initialNanopublicationsConcurrencyLevel;
     private final Optional<Path> initialNanopublicationsDirectoryPath;
     private final String serverBaseUrl;
 
@@ -23,6 +25,7 @@ public final class TwksServerConfiguration extends AbstractConfiguration {
         this.extcpDirectoryPath = builder.getExtcpDirectoryPath();
         this.extfsDirectoryPath = builder.getExtfsDirectoryPath();
         this.factoryConfiguration = builder.getFactoryConfiguration();
+        this.initialNanopublicationsConcurrencyLevel = builder.getInitialNanopublicationsConcurrencyLevel();
         this.initialNanopublicationsDirectoryPath = builder.getInitialNanopublicationsDirectoryPath();
         this.initialNanopublicationFilePaths = builder.getInitialNanopublicationFilePaths();
         this.serverBaseUrl = builder.getServerBaseUrl();
@@ -48,6 +51,10 @@ public final class TwksServerConfiguration extends AbstractConfiguration {
         return initialNanopublicationFilePaths;
     }
 
+    public final int getInitialNanopublicationsConcurrencyLevel() {
+        return initialNanopublicationsConcurrencyLevel;
+    }
+
     public final Optional<Path> getInitialNanopublicationsDirectoryPath() {
         return initialNanopublicationsDirectoryPath;
     }
@@ -62,6 +69,7 @@ public final class TwksServerConfiguration extends AbstractConfiguration {
                 .add("extcpDirectoryPath", getExtcpDirectoryPath().orElse(null))
                 .add("extfsDirectoryPath", getExtfsDirectoryPath())
                 .add("factoryConfiguration", getFactoryConfiguration())
+                .add("initialNanopublicationsConcurrencyLevel", getInitialNanopublicationsConcurrencyLevel())
                 .add("initialNanopublicationDirectoryPath", getInitialNanopublicationsDirectoryPath().orElse(null))
                 .add("initialNanopublicationFilePaths", getInitialNanopublicationFilePaths().orElse(null))
                 .add("serverBaseUrl", getServerBaseUrl());
@@ -72,6 +80,7 @@ public final class TwksServerConfiguration extends AbstractConfiguration {
         private Path extfsDirectoryPath = PropertyDefinitions.EXTFS_DIRECTORY_PATH.getDefault();
         private TwksFactoryConfiguration factoryConfiguration = TwksFactoryConfiguration.builder().build();
         private Optional<ImmutableList<Path>> initialNanopublicationFilePaths = Optional.empty();
+        private int initialNanopublicationsConcurrencyLevel = PropertyDefinitions.INITIAL_NANOPUBLICATIONS_CONCURRENCY_LEVEL.getDefault();
         private Optional<Path> initialNanopublicationsDirectoryPath = Optional.empty();
         private String serverBaseUrl = PropertyDefinitions.SERVER_BASE_URL.getDefault();
 
@@ -123,6 +132,17 @@ public final class TwksServerConfiguration extends AbstractConfiguration {
             return this;
         }
 
+        public final int getInitialNanopublicationsConcurrencyLevel() {
+            return initialNanopublicationsConcurrencyLevel;
+        }
+
+        public final Builder setInitialNanopublicationsConcurrencyLevel(final int initialNanopublicationsConcurrencyLevel) {
+            checkArgument(initialNanopublicationsConcurrencyLevel >= 1);
+            this.initialNanopublicationsConcurrencyLevel = initialNanopublicationsConcurrencyLevel;
+            markDirty();
+            return this;
+        }
+
         public final Optional<Path> getInitialNanopublicationsDirectoryPath() {
             return initialNanopublicationsDirectoryPath;
         }
@@ -154,6 +174,7 @@ public final class TwksServerConfiguration extends AbstractConfiguration {
 
             properties.getPath(PropertyDefinitions.EXTCP_DIRECTORY_PATH).ifPresent(value -> setExtcpDirectoryPath(Optional.of(value)));
             properties.getPath(PropertyDefinitions.EXTFS_DIRECTORY_PATH).ifPresent(value -> setExtfsDirectoryPath(value));
+            properties.getInteger(PropertyDefinitions.INITIAL_NANOPUBLICATIONS_CONCURRENCY_LEVEL).ifPresent(value -> setInitialNanopublicationsConcurrencyLevel(value));
             properties.getPath(PropertyDefinitions.INITIAL_NANOPUBLICATIONS_DIRECTORY_PATH).ifPresent(value -> setInitialNanopublicationsDirectoryPath(value));
             properties.getPaths(PropertyDefinitions.INITIAL_NANOPUBLICATION_FILE_PATH).ifPresent(value -> setInitialNanopublicationFilePaths(value));
             properties.getString(PropertyDefinitions.SERVER_BASE_URL).ifPresent(value -> setServerBaseUrl(value));
@@ -165,6 +186,7 @@ public final class TwksServerConfiguration extends AbstractConfiguration {
     private final static class PropertyDefinitions {
         public final static PropertyDefinition EXTCP_DIRECTORY_PATH = new PropertyDefinition("extcp");
         public final static PropertyDefinitionWithDefault<Path> EXTFS_DIRECTORY_PATH = new PropertyDefinitionWithDefault<>(Paths.get("/extfs"), "extfs");
+        public final static PropertyDefinitionWithDefault<Integer> INITIAL_NANOPUBLICATIONS_CONCURRENCY_LEVEL = new PropertyDefinitionWithDefault<>(1, "initialNanopublicationsConcurrencyLevel");
         public final static PropertyDefinition INITIAL_NANOPUBLICATIONS_DIRECTORY_PATH = new PropertyDefinition("initialNanopublicationsDirectory");
         public final static PropertyDefinition INITIAL_NANOPUBLICATION_FILE_PATH = new PropertyDefinition("initialNanopublicationFilePath");
         public final static PropertyDefinitionWithDefault<String> SERVER_BASE_URL = new PropertyDefinitionWithDefault<>("http://localhost:8080", "serverBaseUrl");
@@ -11,9 +11,10 @@ import java.util.List;
 import java.util.Optional;
 
 public final class AcceptLists {
-    public final static AcceptList OFFER_DATASET = toAcceptList(Lang.TRIG, Lang.NQ, Lang.NQUADS);
+    // RDF Thrift is a binary format that's faster to write and parse than the text formats
+    public final static AcceptList OFFER_DATASET = toAcceptList(Lang.TRIG, Lang.NQ, Lang.NQUADS, Lang.RDFTHRIFT);
 
-    public final static AcceptList OFFER_GRAPH = toAcceptList(Lang.RDFXML, Lang.NTRIPLES, Lang.NT, Lang.N3, Lang.TURTLE, Lang.TTL, Lang.JSONLD, Lang.RDFJSON, Lang.NQUADS, Lang.NQ, Lang.TRIG);
+    public final static AcceptList OFFER_GRAPH = toAcceptList(Lang.RDFXML, Lang.NTRIPLES, Lang.NT, Lang.N3, Lang.TURTLE, Lang.TTL, Lang.JSONLD, Lang.RDFJSON, Lang.NQUADS, Lang.NQ, Lang.TRIG, Lang.RDFTHRIFT);
 
     private AcceptLists() {
     }
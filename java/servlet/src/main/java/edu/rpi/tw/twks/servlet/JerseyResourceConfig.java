@@ -4,7 +4,9 @@ import edu.rpi.tw.twks.api.Twks;
 import edu.rpi.tw.twks.servlet.resource.*;
 import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.glassfish.jersey.message.GZipEncoder;
 import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.filter.EncodingFilter;
 
 public class JerseyResourceConfig extends ResourceConfig {
     public JerseyResourceConfig(final Twks twks) {
@@ -28,7 +30,10 @@ public class JerseyResourceConfig extends ResourceConfig {
         register(AssertionsSparqlResource.class);
         register(DumpResource.class);
         register(NanopublicationResource.class);
+        register(NanopublicationsResource.class);
         register(NanopublicationsSparqlResource.class);
         register(VersionResource.class);
+        // Compress responses for clients that send Accept-Encoding: gzip or zstd, and decompress request entities sent with the corresponding Content-Encoding
+        EncodingFilter.enableFor(this, GZipEncoder.class, ZstdEncoder.class);
     }
 }
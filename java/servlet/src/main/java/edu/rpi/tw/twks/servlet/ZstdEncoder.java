@@ -0,0 +1,33 @@
+package edu.rpi.tw.twks.servlet;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.glassfish.jersey.spi.ContentEncoder;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Zstandard content encoding, the counterpart of Jersey's GZipEncoder.
+ * <p>
+ * Compresses responses to clients that send Accept-Encoding: zstd and decompresses request entities sent with Content-Encoding: zstd.
+ */
+@Priority(Priorities.ENTITY_CODER)
+public final class ZstdEncoder extends ContentEncoder {
+    public ZstdEncoder() {
+        super("zstd");
+    }
+
+    @Override
+    public final InputStream decode(final String contentEncoding, final InputStream encodedStream) throws IOException {
+        return new ZstdInputStream(encodedStream);
+    }
+
+    @Override
+    public final OutputStream encode(final String contentEncoding, final OutputStream entityStream) throws IOException {
+        return new ZstdOutputStream(entityStream);
+    }
+}
@@ -1,9 +1,16 @@
 package edu.rpi.tw.twks.servlet.resource;
 
 import edu.rpi.tw.twks.api.Twks;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.apache.jena.atlas.web.ContentType;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
 public abstract class AbstractResource {
     protected final Logger logger;
     private final Twks twks;
@@ -16,4 +23,20 @@ public abstract class AbstractResource {
     protected final Twks getTwks() {
         return twks;
     }
+
+    protected final Lang parseLang(@Nullable final String contentType) {
+        if (contentType == null || contentType.isEmpty()) {
+            throw new WebApplicationException("Missing Content-Type", Response.Status.BAD_REQUEST);
+        }
+
+        final ContentType contentTypeParsed = ContentType.create(contentType);
+
+        @Nullable final Lang lang = RDFLanguages.contentTypeToLang(contentTypeParsed);
+        if (lang == null) {
+            logger.error("non-RDF Content-Type: {}", contentType);
+            throw new WebApplicationException("non-RDF Content-Type: " + contentType, Response.Status.BAD_REQUEST);
+        }
+
+        return lang;
+    }
 }
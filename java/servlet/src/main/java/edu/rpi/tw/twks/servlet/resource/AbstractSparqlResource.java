@@ -12,11 +12,12 @@ import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
 
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.ArrayList;
@@ -25,7 +26,9 @@ import java.util.List;
 import java.util.Optional;
 
 abstract class AbstractSparqlResource extends AbstractResource {
-    protected final static AcceptList offerResultsAcceptList = AcceptLists.toAcceptList(ResultSetLang.SPARQLResultSetCSV, ResultSetLang.SPARQLResultSetJSON, ResultSetLang.SPARQLResultSetTSV, ResultSetLang.SPARQLResultSetXML);
+    // Jena can't write boolean results in Thrift
+    protected final static AcceptList offerBooleanResultsAcceptList = AcceptLists.toAcceptList(ResultSetLang.SPARQLResultSetCSV, ResultSetLang.SPARQLResultSetJSON, ResultSetLang.SPARQLResultSetTSV, ResultSetLang.SPARQLResultSetXML);
+    protected final static AcceptList offerResultsAcceptList = AcceptLists.toAcceptList(ResultSetLang.SPARQLResultSetCSV, ResultSetLang.SPARQLResultSetJSON, ResultSetLang.SPARQLResultSetTSV, ResultSetLang.SPARQLResultSetXML, ResultSetLang.SPARQLResultSetThrift);
     private final static MediaType APPLICATION_SPARQL_QUERY_MEDIA_TYPE = MediaType.valueOf("application/sparql-query");
 
     protected AbstractSparqlResource(final Twks twks) {
@@ -160,51 +163,60 @@ abstract class AbstractSparqlResource extends AbstractResource {
             query.addNamedGraphURI(namedGraphUri.toString());
         }
 
-        final Response.ResponseBuilder responseBuilder = Response.ok();
-
-        try (final TwksTransaction transaction = getTwks().beginTransaction(ReadWrite.READ)) {
-            try (final QueryExecution queryExecution = this.query(query, transaction)) {
-                switch (query.queryType()) {
-                    case ASK:
-                    case SELECT: {
-                        final Lang respLang = AcceptLists.calculateResponseLang(ResultSetLang.SPARQLResultSetXML, offerResultsAcceptList, proposeAcceptList);
-
-                        responseBuilder.header("Content-Type", respLang.getContentType().getContentTypeStr());
+        final Lang respLang;
+        switch (query.queryType()) {
+            case ASK:
+                respLang = AcceptLists.calculateResponseLang(ResultSetLang.SPARQLResultSetXML, offerBooleanResultsAcceptList, proposeAcceptList);
+                break;
+            case SELECT:
+                respLang = AcceptLists.calculateResponseLang(ResultSetLang.SPARQLResultSetXML, offerResultsAcceptList, proposeAcceptList);
+                break;
+            case CONSTRUCT:
+            case DESCRIBE:
+                respLang = AcceptLists.calculateResponseLang(Lang.TRIG, AcceptLists.OFFER_GRAPH, proposeAcceptList);
+                break;
+            default:
+                throw new UnsupportedOperationException("" + query.queryType());
+        }
 
-                        try (final ByteArrayOutputStream respOutputStream = new ByteArrayOutputStream()) {
-                            if (query.queryType() == QueryType.ASK) {
-                                final boolean result = queryExecution.execAsk();
-                                ResultSetFormatter.output(respOutputStream, result, respLang);
+        final Response.ResponseBuilder responseBuilder = Response.ok();
+        responseBuilder.header("Content-Type", respLang.getContentType().getContentTypeStr());
+        // Results are written to the response as the query executes rather than buffered, so the read transaction is opened and closed in the StreamingOutput.
+        // Errors after the container has flushed the first buffer of the response can't change the status code and abort the response instead.
+        responseBuilder.entity((StreamingOutput) respOutputStream -> {
+            try (final TwksTransaction transaction = getTwks().beginTransaction(ReadWrite.READ)) {
+                try (final QueryExecution queryExecution = this.query(query, transaction)) {
+                    switch (query.queryType()) {
+                        case ASK:
+                            ResultSetFormatter.output(respOutputStream, queryExecution.execAsk(), respLang);
+                            break;
+                        case SELECT:
+                            ResultSetFormatter.output(respOutputStream, queryExecution.execSelect(), respLang);
+                            break;
+                        case CONSTRUCT:
+                        case DESCRIBE: {
+                            if (StreamRDFWriter.registered(respLang)) {
+                                // Write triples as they're constructed instead of collecting them in a Model first.
+                                // Unlike the Model, the stream doesn't remove duplicate triples.
+                                final StreamRDF respStream = StreamRDFWriter.getWriterStream(respOutputStream, respLang);
+                                respStream.start();
+                                query.getPrefixMapping().getNsPrefixMap().forEach(respStream::prefix);
+                                (query.queryType() == QueryType.CONSTRUCT ? queryExecution.execConstructTriples() : queryExecution.execDescribeTriples()).forEachRemaining(respStream::triple);
+                                respStream.finish();
                             } else {
-                                final ResultSet resultSet = queryExecution.execSelect();
-                                ResultSetFormatter.output(respOutputStream, resultSet, respLang);
+                                // The language has no streaming writer (e.g., RDF/XML, JSON-LD)
+                                final Model respModel = query.queryType() == QueryType.CONSTRUCT ? queryExecution.execConstruct() : queryExecution.execDescribe();
+                                respModel.write(respOutputStream, respLang.getName());
                             }
-                            responseBuilder.entity(respOutputStream.toByteArray());
-                        } catch (final IOException e) {
-                            throw new IllegalStateException(e);
+                            break;
                         }
-                        break;
+                        default:
+                            throw new IllegalStateException();
                     }
-                    case CONSTRUCT:
-                    case DESCRIBE: {
-                        final Lang respLang = AcceptLists.calculateResponseLang(Lang.TRIG, AcceptLists.OFFER_GRAPH, proposeAcceptList);
-
-                        responseBuilder.header("Content-Type", respLang.getContentType().getContentTypeStr());
-
-                        final Model respModel = query.queryType() == QueryType.CONSTRUCT ? queryExecution.execConstruct() : queryExecution.execDescribe();
-                        try (final ByteArrayOutputStream respOutputStream = new ByteArrayOutputStream()) {
-                            respModel.write(respOutputStream, respLang.getName());
-                            responseBuilder.entity(respOutputStream.toByteArray());
-                        } catch (final IOException e) {
-                            throw new IllegalStateException(e);
-                        }
-                        break;
-                    }
-                    default:
-                        throw new UnsupportedOperationException("" + query.queryType());
                 }
             }
-        }
+            respOutputStream.flush();
+        });
 
         return responseBuilder.build();
     }
@@ -13,7 +13,8 @@ import org.apache.jena.atlas.web.AcceptList;
 import org.apache.jena.query.ReadWrite;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.riot.Lang;
-import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDFOps;
+import org.apache.jena.riot.system.StreamRDFWriter;
 
 import javax.inject.Inject;
 import javax.ws.rs.GET;
@@ -21,9 +22,10 @@ import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
-import java.io.StringWriter;
+import javax.ws.rs.core.StreamingOutput;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Path("assertions")
 public class AssertionsResource extends AbstractResource {
@@ -44,21 +46,25 @@ public class AssertionsResource extends AbstractResource {
     public Response getAssertions(
             @HeaderParam("Accept") @Nullable @Parameter(description = "Accept header, defaults to text/trig") final AcceptList accept
     ) {
-        try (final TwksTransaction transaction = getTwks().beginTransaction(ReadWrite.READ)) {
-            final Model assertions = transaction.getAssertions();
-            return getAssertionsDelegate(accept, assertions, transaction);
-        }
+        return getAssertionsDelegate(accept, TwksTransaction::getAssertions);
     }
 
-    private Response getAssertionsDelegate(@Nullable final AcceptList accept, final Model assertions, final TwksTransaction transaction) {
+    private Response getAssertionsDelegate(@Nullable final AcceptList accept, final Function<TwksTransaction, Model> getAssertions) {
         final Lang responseLang = AcceptLists.calculateResponseLang(Lang.TRIG, AcceptLists.OFFER_DATASET, Optional.ofNullable(accept));
 
         final Response.ResponseBuilder responseBuilder = Response.ok();
         responseBuilder.header("Content-Type", responseLang.getContentType().getContentType());
-        final StringWriter responseStringWriter = new StringWriter();
-        // Must be in a transaction to call RDFDataMgr.write
-        RDFDataMgr.write(responseStringWriter, assertions, responseLang);
-        responseBuilder.entity(responseStringWriter.toString());
+        // Write the graph to the response from inside the read transaction, one triple at a time, instead of serializing it to a String first.
+        // The response is gzipped if the client accepts it (see JerseyResourceConfig).
+        // Memory use is constant: stored graphs, such as the materialized union and a single ontology's assertions, are read as they're written,
+        // and the virtual union and the union of several ontologies are views over the stored graphs that drop duplicates without remembering the statements written so far.
+        responseBuilder.entity((StreamingOutput) responseOutputStream -> {
+            try (final TwksTransaction transaction = getTwks().beginTransaction(ReadWrite.READ)) {
+                final Model assertions = getAssertions.apply(transaction);
+                StreamRDFOps.graphToStream(assertions.getGraph(), StreamRDFWriter.getWriterStream(responseOutputStream, responseLang));
+            }
+            responseOutputStream.flush();
+        });
 
         return responseBuilder.build();
     }
@@ -78,9 +84,6 @@ public class AssertionsResource extends AbstractResource {
             @QueryParam("uri") @Parameter(description = "one or more ontology URIs") final List<String> ontologyUriStrings
     ) {
         final ImmutableSet<Uri> ontologyUris = ontologyUriStrings.stream().map(uriString -> Uri.parse(uriString)).collect(ImmutableSet.toImmutableSet());
-        try (final TwksTransaction transaction = getTwks().beginTransaction(ReadWrite.READ)) {
-            final Model assertions = transaction.getOntologyAssertions(ontologyUris);
-            return getAssertionsDelegate(accept, assertions, transaction);
-        }
+        return getAssertionsDelegate(accept, transaction -> transaction.getOntologyAssertions(ontologyUris));
     }
 }
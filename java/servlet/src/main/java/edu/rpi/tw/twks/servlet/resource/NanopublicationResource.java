@@ -5,8 +5,8 @@ import edu.rpi.tw.twks.api.NanopublicationCrudApi;
 import edu.rpi.tw.twks.api.Twks;
 import edu.rpi.tw.twks.nanopub.MalformedNanopublicationRuntimeException;
 import edu.rpi.tw.twks.nanopub.Nanopublication;
-import edu.rpi.tw.twks.nanopub.NanopublicationParser;
-import edu.rpi.tw.twks.nanopub.NanopublicationParserBuilder;
+import edu.rpi.tw.twks.nanopub.NanopublicationDialect;
+import edu.rpi.tw.twks.nanopub.NanopublicationParserCache;
 import edu.rpi.tw.twks.servlet.AcceptLists;
 import edu.rpi.tw.twks.uri.Uri;
 import edu.umd.cs.findbugs.annotations.Nullable;
@@ -15,18 +15,17 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import org.apache.jena.atlas.web.AcceptList;
-import org.apache.jena.atlas.web.ContentType;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
-import org.apache.jena.riot.RDFLanguages;
 
 import javax.inject.Inject;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
-import java.io.StringWriter;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLEncoder;
@@ -35,6 +34,9 @@ import java.util.Optional;
 
 @Path("nanopublication")
 public class NanopublicationResource extends AbstractResource {
+    // Resources are created per request, so share the parsers across instances
+    private final static NanopublicationParserCache parserCache = new NanopublicationParserCache();
+
     @Inject
     public NanopublicationResource(final Twks twks) {
         super(twks);
@@ -126,41 +128,24 @@ public class NanopublicationResource extends AbstractResource {
 
         final Response.ResponseBuilder responseBuilder = Response.ok();
         responseBuilder.header("Content-Type", responseLang.getContentType().getContentType());
-        final StringWriter responseStringWriter = new StringWriter();
-        RDFDataMgr.write(responseStringWriter, nanopublication.get().toDataset(), responseLang);
-        responseBuilder.entity(responseStringWriter.toString());
+        // Write bytes rather than characters, since the response language may be binary
+        responseBuilder.entity((StreamingOutput) responseOutputStream -> {
+            RDFDataMgr.write(responseOutputStream, nanopublication.get().toDataset(), responseLang);
+            responseOutputStream.flush();
+        });
 
         return responseBuilder.build();
     }
 
-    private Lang parseLang(@Nullable final String contentType) {
-        if (contentType == null || contentType.isEmpty()) {
-            throw new WebApplicationException("Missing Content-Type", Response.Status.BAD_REQUEST);
-        }
-
-        final ContentType contentTypeParsed = ContentType.create(contentType);
-
-        @Nullable final Lang lang = RDFLanguages.contentTypeToLang(contentTypeParsed);
-        if (lang == null) {
-            logger.error("non-RDF Content-Type: {}", contentType);
-            throw new WebApplicationException("non-RDF Content-Type: " + contentType, Response.Status.BAD_REQUEST);
-        }
-
-        return lang;
-    }
-
     private ImmutableList<Nanopublication> parseNanopublications(
             @Nullable final String contentType,
-            final String requestBody
+            final InputStream requestBody
     ) {
         final Lang lang = parseLang(contentType);
 
-        final NanopublicationParserBuilder parserBuilder = NanopublicationParser.builder();
-        parserBuilder.setLang(lang);
-        final NanopublicationParser parser = parserBuilder.build();
-
+        // Parse the body as it's read rather than decoding it into a String first
         try {
-            return parser.parseString(requestBody);
+            return parserCache.get(NanopublicationDialect.SPECIFICATION, lang).parseInputStream(requestBody);
         } catch (final MalformedNanopublicationRuntimeException e) {
             logger.info("error parsing nanopublication: ", e);
             throw new WebApplicationException("Malformed nanopublication", Response.Status.BAD_REQUEST);
@@ -181,7 +166,7 @@ public class NanopublicationResource extends AbstractResource {
     public List<NanopublicationCrudApi.PutNanopublicationResult>
     postNanopublications(
             @HeaderParam("Content-Type") final String contentType,
-            @RequestBody(description = "nanopublications in serialized RDF, such as text/trig or application/n-quads") final String requestBody
+            @RequestBody(description = "nanopublications in serialized RDF, such as text/trig or application/n-quads") final InputStream requestBody
     ) {
         final ImmutableList<Nanopublication> nanopublications = parseNanopublications(contentType, requestBody);
         return getTwks().postNanopublications(nanopublications);
@@ -208,7 +193,7 @@ public class NanopublicationResource extends AbstractResource {
     public Response
     putNanopublication(
             @HeaderParam("Content-Type") final String contentType,
-            @RequestBody(description = "either (1) a nanopublication in serialized RDF, such as text/trig or application/n-quads containing the named graphs, or (2) triples in any format with no named graphs, which constitute the assertions part of a new nanopublication") final String requestBody,
+            @RequestBody(description = "either (1) a nanopublication in serialized RDF, such as text/trig or application/n-quads containing the named graphs, or (2) triples in any format with no named graphs, which constitute the assertions part of a new nanopublication") final InputStream requestBody,
             @Context final UriInfo uriInfo
     ) {
         final ImmutableList<Nanopublication> nanopublications = parseNanopublications(contentType, requestBody);
@@ -0,0 +1,242 @@
+package edu.rpi.tw.twks.servlet.resource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import edu.rpi.tw.twks.api.NanopublicationCrudApi;
+import edu.rpi.tw.twks.api.Twks;
+import edu.rpi.tw.twks.api.TwksTransaction;
+import edu.rpi.tw.twks.nanopub.MalformedNanopublicationException;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.nanopub.NanopublicationConsumer;
+import edu.rpi.tw.twks.nanopub.NanopublicationDialect;
+import edu.rpi.tw.twks.nanopub.NanopublicationParser;
+import edu.rpi.tw.twks.nanopub.NanopublicationParserCache;
+import edu.rpi.tw.twks.nanopub.NanopublicationPart;
+import edu.rpi.tw.twks.servlet.AcceptLists;
+import edu.rpi.tw.twks.uri.Uri;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.apache.jena.atlas.web.AcceptList;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.*;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.core.Quad;
+
+import javax.inject.Inject;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Bulk export and ingest of nanopublications.
+ * <p>
+ * Exports are paged. The order of the nanopublications is determined by their URIs, and the cursor is the URI of the last nanopublication on the previous page, so an interrupted export can be resumed from the last nanopublication the client received.
+ * <p>
+ * Ingests are streamed. Nanopublications are parsed as the request body is read and committed in batches, and the result for each one is streamed back as a line of JSON once its batch commits.
+ * The server holds at most one batch and the streaming parser's window in memory, so uploads can be arbitrarily large as long as each nanopublication's graphs are contiguous.
+ * Input that can't be parsed in the window is reported as an error line, and the ingest stops there.
+ * Results and errors are written in input order, so a failed ingest can be resumed from the first nanopublication without a result.
+ */
+@Path("nanopublications")
+public class NanopublicationsResource extends AbstractResource {
+    public final static int BATCH_SIZE_DEFAULT = 1000;
+    public final static int BATCH_SIZE_MAX = 10000;
+    public final static int LIMIT_DEFAULT = 1000;
+    public final static int LIMIT_MAX = 10000;
+    private final static String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private final static ObjectMapper objectMapper = new ObjectMapper();
+    // Resources are created per request, so share the parsers across instances
+    private final static NanopublicationParserCache streamingParserCache = new NanopublicationParserCache(true, true);
+
+    @Inject
+    public NanopublicationsResource(final Twks twks) {
+        super(twks);
+    }
+
+    @GET
+    @Operation(
+            description = "Returns the nanopublications as named graphs in a quad format such as text/trig or application/n-quads. If there are more nanopublications, the response has a Link header with rel=\"next\" for the next page.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200"
+                    ),
+                    @ApiResponse(
+                            description = "invalid limit or cursor",
+                            responseCode = "400"
+                    )
+            },
+            summary = "Get a page of the nanopublications in the store"
+    )
+    public Response
+    getNanopublications(
+            @HeaderParam("Accept") @Nullable @Parameter(description = "Accept header, defaults to text/trig") final AcceptList accept,
+            @QueryParam("after") @Nullable @Parameter(description = "cursor: only return nanopublications after this nanopublication URI, usually the last nanopublication on the previous page") final String afterNanopublicationUriString,
+            @QueryParam("limit") @DefaultValue("" + LIMIT_DEFAULT) @Parameter(description = "maximum number of nanopublications to return") final int limit,
+            @Context final UriInfo uriInfo
+    ) {
+        if (limit <= 0 || limit > LIMIT_MAX) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        final Optional<Uri> afterNanopublicationUri;
+        try {
+            afterNanopublicationUri = afterNanopublicationUriString != null ? Optional.of(Uri.parse(afterNanopublicationUriString)) : Optional.empty();
+        } catch (final IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        final ImmutableList<Uri> pageNanopublicationUris;
+        try (final TwksTransaction transaction = getTwks().beginTransaction(ReadWrite.READ)) {
+            // Fetch one extra to tell if there's a next page
+            pageNanopublicationUris = transaction.getNanopublicationUris(afterNanopublicationUri, limit + 1);
+        }
+
+        final Lang responseLang = AcceptLists.calculateResponseLang(Lang.TRIG, AcceptLists.OFFER_DATASET, Optional.ofNullable(accept));
+
+        final Response.ResponseBuilder responseBuilder = Response.ok();
+        responseBuilder.header("Content-Type", responseLang.getContentType().getContentType());
+
+        final ImmutableList<Uri> responseNanopublicationUris;
+        if (pageNanopublicationUris.size() > limit) {
+            responseNanopublicationUris = pageNanopublicationUris.subList(0, limit);
+            responseBuilder.link(uriInfo.getRequestUriBuilder().replaceQueryParam("after", responseNanopublicationUris.get(limit - 1).toString()).replaceQueryParam("limit", limit).build(), "next");
+        } else {
+            responseNanopublicationUris = pageNanopublicationUris;
+        }
+
+        responseBuilder.entity((StreamingOutput) responseOutputStream -> {
+            final StreamRDF responseStream = StreamRDFWriter.getWriterStream(responseOutputStream, responseLang);
+            responseStream.start();
+            try (final TwksTransaction transaction = getTwks().beginTransaction(ReadWrite.READ)) {
+                for (final Uri nanopublicationUri : responseNanopublicationUris) {
+                    final Optional<Nanopublication> nanopublication = transaction.getNanopublication(nanopublicationUri);
+                    if (!nanopublication.isPresent()) {
+                        // Deleted since the page was read
+                        continue;
+                    }
+                    for (final NanopublicationPart nanopublicationPart : new NanopublicationPart[]{nanopublication.get().getHead(), nanopublication.get().getAssertion(), nanopublication.get().getProvenance(), nanopublication.get().getPublicationInfo()}) {
+                        final Node graphNode = NodeFactory.createURI(nanopublicationPart.getName().toString());
+                        nanopublicationPart.getModel().getGraph().find().forEachRemaining(triple -> responseStream.quad(new Quad(graphNode, triple)));
+                    }
+                }
+            }
+            responseStream.finish();
+            responseOutputStream.flush();
+        });
+
+        return responseBuilder.build();
+    }
+
+    @POST
+    @Produces(NDJSON_MEDIA_TYPE)
+    @Operation(
+            description = "Returns one line of JSON per nanopublication as its batch commits, {\"uri\": ..., \"result\": \"CREATED\" or \"OVERWROTE\"}, and {\"error\": ...} with the \"uri\" if it's known for each malformed nanopublication, all in input order. Input whose nanopublications' graphs aren't contiguous stops the ingest with an error. Batches committed before an error stay committed.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200"
+                    ),
+                    @ApiResponse(
+                            description = "invalid batch size or non-RDF Content-Type",
+                            responseCode = "400"
+                    )
+            },
+            summary = "Add a stream of nanopublications to the store in batches, overwriting (by URI) if necessary"
+    )
+    public Response
+    postNanopublications(
+            @HeaderParam("Content-Type") final String contentType,
+            @QueryParam("batchSize") @DefaultValue("" + BATCH_SIZE_DEFAULT) @Parameter(description = "number of nanopublications to commit in each transaction") final int batchSize,
+            @RequestBody(description = "nanopublications in serialized RDF, such as text/trig or application/n-quads, with each nanopublication's graphs contiguous") final InputStream requestBody
+    ) {
+        if (batchSize <= 0 || batchSize > BATCH_SIZE_MAX) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        final NanopublicationParser parser = streamingParserCache.get(NanopublicationDialect.SPECIFICATION, parseLang(contentType));
+
+        return Response.ok().type(NDJSON_MEDIA_TYPE).entity((StreamingOutput) responseOutputStream -> {
+            final BatchingNanopublicationConsumer consumer = new BatchingNanopublicationConsumer(batchSize, responseOutputStream);
+            try {
+                parser.parseInputStream(requestBody, consumer);
+                consumer.flush();
+            } catch (final UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }).build();
+    }
+
+    /**
+     * Collect nanopublications into batches, post each batch in its own transaction, and write the results.
+     */
+    private final class BatchingNanopublicationConsumer implements NanopublicationConsumer {
+        private final List<Nanopublication> batch = new ArrayList<>();
+        private final int batchSize;
+        private final OutputStream responseOutputStream;
+
+        BatchingNanopublicationConsumer(final int batchSize, final OutputStream responseOutputStream) {
+            this.batchSize = batchSize;
+            this.responseOutputStream = checkNotNull(responseOutputStream);
+        }
+
+        @Override
+        public final void accept(final Nanopublication nanopublication) {
+            batch.add(nanopublication);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        final void flush() {
+            if (!batch.isEmpty()) {
+                final ImmutableList<NanopublicationCrudApi.PutNanopublicationResult> results = getTwks().postNanopublications(ImmutableList.copyOf(batch));
+                for (int nanopublicationI = 0; nanopublicationI < batch.size(); nanopublicationI++) {
+                    writeLine(ImmutableMap.of("uri", batch.get(nanopublicationI).getUri().toString(), "result", results.get(nanopublicationI).name()));
+                }
+                batch.clear();
+            }
+            try {
+                responseOutputStream.flush();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public final void onMalformedNanopublicationException(final MalformedNanopublicationException exception) {
+            logger.info("malformed nanopublication in ingest: ", exception);
+            // Write the results of the nanopublications before this one first, to keep the lines in input order
+            flush();
+            final ImmutableMap.Builder<String, String> lineBuilder = ImmutableMap.builder();
+            lineBuilder.put("error", String.valueOf(exception.getMessage()));
+            exception.getNanopublicationUri().ifPresent(nanopublicationUri -> lineBuilder.put("uri", nanopublicationUri.toString()));
+            writeLine(lineBuilder.build());
+        }
+
+        private void writeLine(final ImmutableMap<String, String> line) {
+            try {
+                responseOutputStream.write(objectMapper.writeValueAsBytes(line));
+                responseOutputStream.write('\n');
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -2,21 +2,53 @@ package edu.rpi.tw.twks.servlet.resource;
 
 import com.google.common.base.Charsets;
 import com.google.common.io.ByteStreams;
+import edu.rpi.tw.twks.api.TwksTransaction;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
 import org.apache.commons.httpclient.util.URIUtil;
+import org.apache.jena.atlas.web.AcceptList;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.ResultSetMgr;
+import org.apache.jena.riot.resultset.ResultSetLang;
 import org.junit.Test;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Form;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.containsString;
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertThat;
+import static org.junit.Assert.*;
 
 public final class AbstractSparqlResourceTest extends AbstractResourceTest {
+    @Test
+    public void testGetAsk() throws Exception {
+        getTwks().putNanopublication(getTestData().specNanopublication);
+
+        final String queryString = "ASK WHERE { <http://example.org/trastuzumab> ?p ?o }";
+
+        final String responseBody =
+                target()
+                        .path("/sparql/assertions")
+                        .queryParam("query", URIUtil.encodeQuery(queryString))
+                        .request(ResultSetLang.SPARQLResultSetJSON.getContentType().getContentType())
+                        .get(String.class);
+        assertThat(responseBody, containsString("true"));
+    }
+
     @Test
     public void testGetConstruct() throws Exception {
         getTwks().putNanopublication(getTestData().specNanopublication);
@@ -32,6 +64,100 @@ public final class AbstractSparqlResourceTest extends AbstractResourceTest {
         assertThat(responseBody, containsString("<http://example.org/trastuzumab>"));
     }
 
+    @Test
+    public void testGetConstructNTriples() throws Exception {
+        getTwks().putNanopublication(getTestData().specNanopublication);
+
+        final String queryString = "CONSTRUCT WHERE { ?s ?p ?o }";
+
+        final String responseBody =
+                target()
+                        .path("/sparql/assertions")
+                        .queryParam("query", URIUtil.encodeQuery(queryString))
+                        .request(Lang.NTRIPLES.getContentType().getContentType())
+                        .get(String.class);
+        assertThat(responseBody, containsString("<http://example.org/trastuzumab> <http://example.org/is-indicated-for> <http://example.org/breast-cancer> ."));
+    }
+
+    @Test
+    public void testGetConstructStreaming() throws Exception {
+        final int tripleCount = 10000;
+        final Model assertion = ModelFactory.createDefaultModel();
+        for (int tripleI = 0; tripleI < tripleCount; tripleI++) {
+            assertion.add(ResourceFactory.createResource("http://example.org/subject" + tripleI), ResourceFactory.createProperty("http://example.org/predicate"), "object" + tripleI);
+        }
+        final Nanopublication nanopublication = Nanopublication.builder().getAssertionBuilder().setModel(assertion).getNanopublicationBuilder().build();
+        getTwks().putNanopublication(nanopublication);
+
+        // Count the triples the resource has taken from the query execution
+        final AtomicInteger constructedTripleCount = new AtomicInteger();
+        final AbstractSparqlResource resource = new AbstractSparqlResource(getTwks()) {
+            @Override
+            protected QueryExecution query(final Query query, final TwksTransaction transaction) {
+                final QueryExecution queryExecution = transaction.queryAssertions(query);
+                return (QueryExecution) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{QueryExecution.class}, (proxy, method, args) -> {
+                    final Object result;
+                    try {
+                        result = method.invoke(queryExecution, args);
+                    } catch (final InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (!method.getName().equals("execConstructTriples")) {
+                        return result;
+                    }
+                    @SuppressWarnings("unchecked") final Iterator<Triple> triples = (Iterator<Triple>) result;
+                    return new Iterator<Triple>() {
+                        @Override
+                        public boolean hasNext() {
+                            return triples.hasNext();
+                        }
+
+                        @Override
+                        public Triple next() {
+                            constructedTripleCount.incrementAndGet();
+                            return triples.next();
+                        }
+                    };
+                });
+            }
+        };
+
+        final Response response = resource.doGet(AcceptList.create(Lang.NTRIPLES.getContentType().getContentType()), null, null, "CONSTRUCT WHERE { ?s ?p ?o }");
+        assertTrue(response.getEntity() instanceof StreamingOutput);
+
+        // The first bytes should reach the response before the query has constructed all of the triples
+        final AtomicInteger firstWriteConstructedTripleCount = new AtomicInteger(-1);
+        final AtomicInteger responseLineCount = new AtomicInteger();
+        ((StreamingOutput) response.getEntity()).write(new OutputStream() {
+            @Override
+            public void write(final int b) {
+                firstWriteConstructedTripleCount.compareAndSet(-1, constructedTripleCount.get());
+                if (b == '\n') {
+                    responseLineCount.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(tripleCount, constructedTripleCount.get());
+        assertTrue(responseLineCount.get() >= tripleCount);
+        assertTrue(firstWriteConstructedTripleCount.get() >= 0);
+        assertTrue(firstWriteConstructedTripleCount.get() < tripleCount);
+    }
+
+    @Test
+    public void testGetConstructRdfXml() throws Exception {
+        getTwks().putNanopublication(getTestData().specNanopublication);
+
+        final String queryString = "CONSTRUCT WHERE { ?s ?p ?o }";
+
+        final String responseBody =
+                target()
+                        .path("/sparql/assertions")
+                        .queryParam("query", URIUtil.encodeQuery(queryString))
+                        .request(Lang.RDFXML.getContentType().getContentType())
+                        .get(String.class);
+        assertThat(responseBody, containsString("http://example.org/trastuzumab"));
+    }
+
     @Test
     public void testGetConstructWithDefaultGraph() throws Exception {
         getTwks().putNanopublication(getTestData().specNanopublication);
@@ -107,6 +233,21 @@ public final class AbstractSparqlResourceTest extends AbstractResourceTest {
         assertThat(responseBody, containsString("<uri>http://example.org/trastuzumab</uri>"));
     }
 
+    @Test
+    public void testGetSelectThrift() throws Exception {
+        getTwks().putNanopublication(getTestData().specNanopublication);
+
+        final String queryString = "SELECT ?s ?p ?o WHERE { ?s ?p ?o }";
+        final byte[] responseBody =
+                target()
+                        .path("/sparql/assertions")
+                        .queryParam("query", URIUtil.encodeQuery(queryString))
+                        .request(ResultSetLang.SPARQLResultSetThrift.getContentType().getContentType())
+                        .get(byte[].class);
+        final ResultSet resultSet = ResultSetMgr.read(new ByteArrayInputStream(responseBody), ResultSetLang.SPARQLResultSetThrift);
+        assertEquals("http://example.org/trastuzumab", resultSet.next().getResource("s").getURI());
+    }
+
     @Test
     public void testPostDirect() throws Exception {
         getTwks().putNanopublication(getTestData().specNanopublication);
@@ -1,12 +1,18 @@
 package edu.rpi.tw.twks.servlet.resource;
 
+import com.github.luben.zstd.ZstdInputStream;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
 import org.junit.Test;
 
+import javax.ws.rs.core.Response;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public final class AssertionsResourceTest extends AbstractResourceTest {
@@ -23,6 +29,40 @@ public final class AssertionsResourceTest extends AbstractResourceTest {
         assertTrue(getTestData().specNanopublication.getAssertion().getModel().isIsomorphicWith(actual));
     }
 
+    @Test
+    public void testGetAssertionsGzip() throws Exception {
+        getTwks().putNanopublication(getTestData().specNanopublication);
+        final Response response =
+                target()
+                        .path("/assertions")
+                        .request(Lang.NQUADS.getContentType().getContentType())
+                        .header("Accept-Encoding", "gzip")
+                        .get();
+        assertEquals("gzip", response.getHeaderString("Content-Encoding"));
+        final Model actual = ModelFactory.createDefaultModel();
+        try (final InputStream responseInputStream = new GZIPInputStream(response.readEntity(InputStream.class))) {
+            RDFDataMgr.read(actual, responseInputStream, Lang.NQUADS);
+        }
+        assertTrue(getTestData().specNanopublication.getAssertion().getModel().isIsomorphicWith(actual));
+    }
+
+    @Test
+    public void testGetAssertionsZstd() throws Exception {
+        getTwks().putNanopublication(getTestData().specNanopublication);
+        final Response response =
+                target()
+                        .path("/assertions")
+                        .request(Lang.NQUADS.getContentType().getContentType())
+                        .header("Accept-Encoding", "zstd")
+                        .get();
+        assertEquals("zstd", response.getHeaderString("Content-Encoding"));
+        final Model actual = ModelFactory.createDefaultModel();
+        try (final InputStream responseInputStream = new ZstdInputStream(response.readEntity(InputStream.class))) {
+            RDFDataMgr.read(actual, responseInputStream, Lang.NQUADS);
+        }
+        assertTrue(getTestData().specNanopublication.getAssertion().getModel().isIsomorphicWith(actual));
+    }
+
     @Test
     public void testGetOntologyAssertions() {
         getTwks().putNanopublication(getTestData().ontologyNanopublication);
@@ -4,12 +4,18 @@ import edu.rpi.tw.twks.api.NanopublicationCrudApi;
 import edu.rpi.tw.twks.nanopub.Nanopublication;
 import edu.rpi.tw.twks.nanopub.NanopublicationDialect;
 import edu.rpi.tw.twks.nanopub.NanopublicationParser;
+import edu.rpi.tw.twks.servlet.ZstdEncoder;
 import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.glassfish.jersey.message.GZipEncoder;
 import org.junit.Test;
 
+import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.net.URLEncoder;
 import java.util.List;
 
@@ -91,6 +97,15 @@ public final class NanopublicationResourceTest extends AbstractResourceTest {
         assertTrue(expected.isIsomorphicWith(actual));
     }
 
+    @Test
+    public void testGetNanopublicationThrift() throws Exception {
+        final Nanopublication expected = getTestData().specNanopublication;
+        getTwks().putNanopublication(expected);
+        final byte[] responseBody = target().path("/nanopublication/").path(URLEncoder.encode(expected.getUri().toString(), "UTF-8")).request(Lang.RDFTHRIFT.getContentType().getContentType()).get(byte[].class);
+        final Nanopublication actual = NanopublicationParser.builder().setDialect(NanopublicationDialect.SPECIFICATION).setLang(Lang.RDFTHRIFT).build().parseInputStream(new ByteArrayInputStream(responseBody)).get(0);
+        assertTrue(expected.isIsomorphicWith(actual));
+    }
+
     @Test
     public void testPostNanopublicationsAbsent() {
         final Response response =
@@ -104,6 +119,49 @@ public final class NanopublicationResourceTest extends AbstractResourceTest {
         assertEquals(NanopublicationCrudApi.PutNanopublicationResult.CREATED, results.get(1));
     }
 
+    @Test
+    public void testPostNanopublicationsCompressed() {
+        for (final String contentEncoding : new String[]{"gzip", "zstd"}) {
+            // The encoders compress the request entity on the client side according to its Content-Encoding
+            final Response response =
+                    target()
+                            .register(GZipEncoder.class)
+                            .register(ZstdEncoder.class)
+                            .path("/nanopublication/")
+                            .request()
+                            .header("Content-Encoding", contentEncoding)
+                            .post(toTrigEntity(getTestData().specNanopublication));
+            assertEquals(200, response.getStatus());
+            final List<NanopublicationCrudApi.PutNanopublicationResult> results = response.readEntity(new GenericType<List<NanopublicationCrudApi.PutNanopublicationResult>>() {
+            });
+            assertEquals(1, results.size());
+        }
+        assertTrue(getTwks().getNanopublication(getTestData().specNanopublication.getUri()).isPresent());
+    }
+
+    @Test
+    public void testPostNanopublicationsMalformed() {
+        final Response response =
+                target()
+                        .path("/nanopublication/")
+                        .request()
+                        .post(Entity.entity("<http://example.com/subject> {", Lang.TRIG.getContentType().getContentType()));
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void testPostNanopublicationsThrift() {
+        final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+        RDFDataMgr.write(requestBody, getTestData().specNanopublication.toDataset(), Lang.RDFTHRIFT);
+        final Response response =
+                target()
+                        .path("/nanopublication/")
+                        .request()
+                        .post(Entity.entity(requestBody.toByteArray(), Lang.RDFTHRIFT.getContentType().getContentType()));
+        assertEquals(200, response.getStatus());
+        assertTrue(getTwks().getNanopublication(getTestData().specNanopublication.getUri()).isPresent());
+    }
+
     @Test
     public void testPostNanopublicationsMixed() {
         getTwks().putNanopublication(getTestData().specNanopublication);
@@ -0,0 +1,122 @@
+package edu.rpi.tw.twks.servlet.resource;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.nanopub.NanopublicationParser;
+import org.apache.jena.riot.Lang;
+import org.junit.Test;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.Response;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public final class NanopublicationsResourceTest extends AbstractResourceTest {
+    private ImmutableList<Nanopublication> parseResponse(final Response response) {
+        assertEquals(200, response.getStatus());
+        return NanopublicationParser.builder().setLang(Lang.NQUADS).build().parseString(response.readEntity(String.class));
+    }
+
+    @Test
+    public void testGetNanopublicationsEmpty() {
+        final Response response = target().path("/nanopublications").request(Lang.NQUADS.getContentType().getContentType()).get();
+        assertEquals(200, response.getStatus());
+        assertTrue(response.readEntity(String.class).trim().isEmpty());
+        assertNull(response.getLink("next"));
+    }
+
+    @Test
+    public void testGetNanopublicationsPaged() {
+        getTwks().postNanopublications(ImmutableList.of(getTestData().specNanopublication, getTestData().secondNanopublication));
+
+        final Response firstResponse = target().path("/nanopublications").queryParam("limit", 1).request(Lang.NQUADS.getContentType().getContentType()).get();
+        final ImmutableList<Nanopublication> firstPage = parseResponse(firstResponse);
+        assertEquals(1, firstPage.size());
+        final Link nextLink = firstResponse.getLink("next");
+        assertNotNull(nextLink);
+
+        final Response secondResponse = client().target(nextLink).request(Lang.NQUADS.getContentType().getContentType()).get();
+        final ImmutableList<Nanopublication> secondPage = parseResponse(secondResponse);
+        assertEquals(1, secondPage.size());
+        assertNull(secondResponse.getLink("next"));
+
+        assertNotEquals(firstPage.get(0).getUri(), secondPage.get(0).getUri());
+        for (final Nanopublication nanopublication : ImmutableList.of(firstPage.get(0), secondPage.get(0))) {
+            assertTrue(nanopublication.isIsomorphicWith(getTestData().specNanopublication) || nanopublication.isIsomorphicWith(getTestData().secondNanopublication));
+        }
+    }
+
+    @Test
+    public void testGetNanopublicationsInvalidLimit() {
+        final Response response = target().path("/nanopublications").queryParam("limit", 0).request().get();
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void testPostNanopublications() {
+        final Response response = target().path("/nanopublications").queryParam("batchSize", 1).request().post(toTrigEntity(getTestData().specNanopublication, getTestData().secondNanopublication));
+        assertEquals(200, response.getStatus());
+        final List<String> lines = Splitter.on('\n').omitEmptyStrings().splitToList(response.readEntity(String.class));
+        assertEquals(2, lines.size());
+        for (final String line : lines) {
+            assertTrue(line.contains("\"result\":\"CREATED\""));
+        }
+        assertTrue(getTwks().getNanopublication(getTestData().specNanopublication.getUri()).isPresent());
+        assertTrue(getTwks().getNanopublication(getTestData().secondNanopublication.getUri()).isPresent());
+    }
+
+    @Test
+    public void testPostNanopublicationsInvalidBatchSize() {
+        final Response response = target().path("/nanopublications").queryParam("batchSize", 0).request().post(toTrigEntity(getTestData().specNanopublication));
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void testPostNanopublicationsMalformed() {
+        final Response response = target().path("/nanopublications").request().post(Entity.entity(toTrigString(getTestData().specNanopublication) + "<http://example.com/subject> {", Lang.TRIG.getContentType().getContentType()));
+        assertEquals(200, response.getStatus());
+        final String responseString = response.readEntity(String.class);
+        // The nanopublication before the syntax error is still ingested
+        assertTrue(responseString.contains("\"result\":\"CREATED\""));
+        assertTrue(responseString.contains("\"error\":"));
+        assertTrue(getTwks().getNanopublication(getTestData().specNanopublication.getUri()).isPresent());
+    }
+
+    @Test
+    public void testPostNanopublicationsMalformedInOrder() {
+        final String malformedNanopublicationTrig = "@prefix : <http://example.org/pub3#> .\n" +
+                "@prefix ex: <http://example.org/> .\n" +
+                "@prefix np:  <http://www.nanopub.org/nschema#> .\n" +
+                "@prefix prov: <http://www.w3.org/ns/prov#> .\n" +
+                ":head { ex:pub3 a np:Nanopublication ; np:hasAssertion :assertion ; np:hasProvenance :provenance ; np:hasPublicationInfo :pubInfo . }\n" +
+                ":assertion { ex:aspirin ex:is-indicated-for ex:headache . }\n" +
+                ":provenance { :other prov:wasDerivedFrom :experiment . }\n" +
+                ":pubInfo { ex:pub3 prov:wasAttributedTo ex:paul . }\n";
+        final String requestBody = toTrigString(getTestData().specNanopublication) + malformedNanopublicationTrig + toTrigString(getTestData().secondNanopublication);
+        final Response response = target().path("/nanopublications").request().post(Entity.entity(requestBody, Lang.TRIG.getContentType().getContentType()));
+        assertEquals(200, response.getStatus());
+        final List<String> lines = Splitter.on('\n').omitEmptyStrings().splitToList(response.readEntity(String.class));
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).contains("\"uri\":\"" + getTestData().specNanopublication.getUri() + "\""));
+        assertTrue(lines.get(1).contains("\"error\":"));
+        assertTrue(lines.get(1).contains("\"uri\":\"http://example.org/pub3\""));
+        assertTrue(lines.get(2).contains("\"uri\":\"" + getTestData().secondNanopublication.getUri() + "\""));
+    }
+
+    @Test
+    public void testPostNanopublicationsStrict() {
+        // Statements in the default graph can't be streamed, so the ingest stops there instead of buffering the rest of the body
+        final String requestBody = toTrigString(getTestData().specNanopublication) + "<http://example.com/subject> <http://example.com/predicate> <http://example.com/object> .\n" + toTrigString(getTestData().secondNanopublication);
+        final Response response = target().path("/nanopublications").request().post(Entity.entity(requestBody, Lang.TRIG.getContentType().getContentType()));
+        assertEquals(200, response.getStatus());
+        final List<String> lines = Splitter.on('\n').omitEmptyStrings().splitToList(response.readEntity(String.class));
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"result\":\"CREATED\""));
+        assertTrue(lines.get(1).contains("\"error\":"));
+        assertTrue(getTwks().getNanopublication(getTestData().specNanopublication.getUri()).isPresent());
+        assertFalse(getTwks().getNanopublication(getTestData().secondNanopublication.getUri()).isPresent());
+    }
+}
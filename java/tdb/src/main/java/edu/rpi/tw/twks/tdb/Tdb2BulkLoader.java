@@ -0,0 +1,106 @@
+package edu.rpi.tw.twks.tdb;
+
+import com.codahale.metrics.MetricRegistry;
+import edu.rpi.tw.twks.nanopub.MalformedNanopublicationException;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.nanopub.NanopublicationConsumer;
+import edu.rpi.tw.twks.nanopub.NanopublicationPart;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.loader.DataLoader;
+import org.apache.jena.tdb2.loader.LoaderFactory;
+import org.apache.jena.tdb2.loader.base.LoaderOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Builds a fresh TDB2 location from nanopublications with the TDB2 bulk loader, outside the normal Tdb2Twks transaction path.
+ * <p>
+ * Nanopublication parts are streamed into the loader as quads. The nanopublication index and assertion union graphs are built once, in finish().
+ * finish() fails if a nanopublication URI was loaded with more than one set of part graphs. Identical copies of a nanopublication load as one.
+ * The location must not be in use by another Tdb2Twks while loading.
+ */
+public final class Tdb2BulkLoader implements NanopublicationConsumer {
+    private final static Logger logger = LoggerFactory.getLogger(Tdb2BulkLoader.class);
+    private final Tdb2TwksConfiguration configuration;
+    private final DatasetGraph datasetGraph;
+    private final DataLoader loader;
+    private final MetricRegistry metricRegistry;
+    private final StreamRDF stream;
+    private long nanopublicationsCount = 0;
+
+    public Tdb2BulkLoader(final Tdb2TwksConfiguration configuration, final MetricRegistry metricRegistry) {
+        this.configuration = checkNotNull(configuration);
+        this.metricRegistry = checkNotNull(metricRegistry);
+
+        checkArgument(configuration.getLocation().isPresent() && !configuration.getLocation().get().equalsIgnoreCase("mem"), "bulk loading requires a TDB2 location on disk");
+        final Path locationPath = Paths.get(configuration.getLocation().get());
+        if (Files.isDirectory(locationPath)) {
+            try (final Stream<Path> locationFilePaths = Files.list(locationPath)) {
+                checkArgument(!locationFilePaths.findAny().isPresent(), "TDB2 location %s is not empty", locationPath);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        datasetGraph = DatabaseMgr.connectDatasetGraph(Location.create(locationPath.toString()));
+        loader = LoaderFactory.parallelLoader(datasetGraph, LoaderOps.outputToLog(logger));
+        loader.startBulk();
+        stream = loader.stream();
+    }
+
+    /**
+     * Abandon the bulk load after an error. The location should be discarded.
+     */
+    public final synchronized void abort(final Exception exception) {
+        loader.finishException(exception);
+        datasetGraph.close();
+    }
+
+    @Override
+    public final synchronized void accept(final Nanopublication nanopublication) {
+        for (final NanopublicationPart nanopublicationPart : new NanopublicationPart[]{nanopublication.getAssertion(), nanopublication.getHead(), nanopublication.getProvenance(), nanopublication.getPublicationInfo()}) {
+            final Node graphNode = NodeFactory.createURI(nanopublicationPart.getName().toString());
+            nanopublicationPart.getModel().getGraph().find().forEachRemaining(triple -> stream.quad(new Quad(graphNode, triple)));
+        }
+        nanopublicationsCount++;
+    }
+
+    /**
+     * Finish the bulk load and build the nanopublication index and assertion union graphs.
+     */
+    public final synchronized void finish() {
+        loader.finishBulk();
+        logger.info("bulk loaded {} nanopublication(s) ({} quads)", nanopublicationsCount, loader.countQuads());
+
+        try (final Tdb2Twks twks = new Tdb2Twks(configuration, DatasetFactory.wrap(datasetGraph), metricRegistry)) {
+            try (final Tdb2TwksTransaction transaction = (Tdb2TwksTransaction) twks._beginTransaction(ReadWrite.WRITE)) {
+                transaction.rebuildDerivedGraphs();
+                transaction.commit();
+            }
+        }
+        logger.info("built nanopublication index and assertion union graphs");
+    }
+
+    @Override
+    public final void onMalformedNanopublicationException(final MalformedNanopublicationException exception) {
+        logger.error("malformed nanopublication: {}", exception.getMessage());
+    }
+}
@@ -0,0 +1,87 @@
+package edu.rpi.tw.twks.tdb;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import edu.rpi.tw.twks.api.TwksTransaction;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.test.TestData;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.tdb2.TDB2Factory;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class Tdb2AssertionsUnionModeTest {
+    private final TestData testData;
+    private Dataset dataset;
+
+    public Tdb2AssertionsUnionModeTest() throws Exception {
+        testData = new TestData();
+    }
+
+    private Model expectedAssertions() {
+        return ModelFactory.createDefaultModel().add(testData.specNanopublication.getAssertion().getModel()).add(testData.secondNanopublication.getAssertion().getModel());
+    }
+
+    private Tdb2Twks newTwks(final boolean virtualAssertionsUnion) {
+        return new Tdb2Twks(Tdb2TwksConfiguration.builder().setVirtualAssertionsUnion(virtualAssertionsUnion).build(), dataset, new MetricRegistry());
+    }
+
+    @Before
+    public void setUp() {
+        dataset = TDB2Factory.createDataset();
+    }
+
+    @Test
+    public void testMaterializedToVirtual() {
+        newTwks(false).postNanopublications(ImmutableList.of(testData.specNanopublication, testData.secondNanopublication));
+
+        final Tdb2Twks virtualTwks = newTwks(true);
+        assertTrue(virtualTwks.getAssertions().isIsomorphicWith(expectedAssertions()));
+        virtualTwks.putNanopublication(testData.secondNanopublication);
+        assertTrue(virtualTwks.getAssertions().isIsomorphicWith(expectedAssertions()));
+    }
+
+    @Test
+    public void testVirtualDistinct() throws Exception {
+        final Model specAssertions = testData.specNanopublication.getAssertion().getModel();
+        final Tdb2Twks virtualTwks = newTwks(true);
+        virtualTwks.postNanopublications(ImmutableList.of(
+                testData.specNanopublication,
+                // Another nanopublication with the same assertions
+                Nanopublication.builder().getAssertionBuilder().setModel(specAssertions).getNanopublicationBuilder().build()
+        ));
+
+        try (final TwksTransaction transaction = virtualTwks.beginTransaction(ReadWrite.READ)) {
+            final Model assertions = transaction.getAssertions();
+            assertEquals(specAssertions.size(), assertions.listStatements().toList().size());
+            final Statement specStatement = specAssertions.listStatements().next();
+            assertEquals(1, assertions.listStatements(specStatement.getSubject(), specStatement.getPredicate(), specStatement.getObject()).toList().size());
+        }
+    }
+
+    @Test
+    public void testVirtualToMaterialized() {
+        final Tdb2Twks virtualTwks = newTwks(true);
+        virtualTwks.putNanopublication(testData.specNanopublication);
+        assertTrue(virtualTwks.getAssertions().isIsomorphicWith(testData.specNanopublication.getAssertion().getModel()));
+
+        final Tdb2Twks materializedTwks = newTwks(false);
+        try {
+            materializedTwks.getAssertions();
+            fail();
+        } catch (final IllegalStateException e) {
+        }
+
+        // The first write rebuilds the union graph
+        materializedTwks.putNanopublication(testData.secondNanopublication);
+        assertTrue(materializedTwks.getAssertions().isIsomorphicWith(expectedAssertions()));
+    }
+}
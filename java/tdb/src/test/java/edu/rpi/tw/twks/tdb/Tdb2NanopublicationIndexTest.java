@@ -0,0 +1,122 @@
+package edu.rpi.tw.twks.tdb;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import edu.rpi.tw.twks.api.TwksTransaction;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.nanopub.NanopublicationParser;
+import edu.rpi.tw.twks.nanopub.NanopublicationPart;
+import edu.rpi.tw.twks.test.TestData;
+import edu.rpi.tw.twks.uri.Uri;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2Factory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public final class Tdb2NanopublicationIndexTest {
+    private final TestData testData;
+    private Dataset dataset;
+
+    public Tdb2NanopublicationIndexTest() throws Exception {
+        testData = new TestData();
+    }
+
+    private ImmutableList<Uri> getNanopublicationUris(final Tdb2Twks twks) {
+        try (final TwksTransaction transaction = twks.beginTransaction(ReadWrite.READ)) {
+            return transaction.getNanopublicationUris(Optional.empty(), 10);
+        }
+    }
+
+    private Tdb2Twks newTwks() {
+        return new Tdb2Twks(Tdb2TwksConfiguration.builder().build(), dataset, new MetricRegistry());
+    }
+
+    @Before
+    public void setUp() {
+        dataset = TDB2Factory.createDataset();
+    }
+
+    @Test
+    public void testDeleteAll() {
+        final Tdb2Twks twks = newTwks();
+        twks.postNanopublications(ImmutableList.of(testData.specNanopublication, testData.secondNanopublication));
+        twks.deleteNanopublications();
+        assertEquals(ImmutableList.of(), getNanopublicationUris(twks));
+
+        // The index is rebuilt on the next write
+        twks.putNanopublication(testData.secondNanopublication);
+        assertEquals(ImmutableList.of(testData.secondNanopublication.getUri()), getNanopublicationUris(twks));
+        assertTrue(twks.getNanopublication(testData.secondNanopublication.getUri()).get().isIsomorphicWith(testData.secondNanopublication));
+    }
+
+    @Test
+    public void testDuplicateNanopublicationUri() throws Exception {
+        // Two nanopublications with the same URI and different part graph names, written around the API, as by the bulk loader
+        final Nanopublication renamedSpecNanopublication = NanopublicationParser.builder().setLang(Lang.TRIG).build().parseString(TestData.SPEC_NANOPUBLICATION_TRIG.replace("http://example.org/pub1#", "http://example.org/pub1v2#")).get(0);
+        Txn.executeWrite(dataset, () -> {
+            for (final Nanopublication nanopublication : new Nanopublication[]{testData.specNanopublication, renamedSpecNanopublication}) {
+                for (final NanopublicationPart nanopublicationPart : new NanopublicationPart[]{nanopublication.getHead(), nanopublication.getAssertion(), nanopublication.getProvenance(), nanopublication.getPublicationInfo()}) {
+                    dataset.addNamedModel(nanopublicationPart.getName().toString(), nanopublicationPart.getModel());
+                }
+            }
+        });
+
+        // Building the index fails instead of indexing one of them
+        try {
+            newTwks().putNanopublication(testData.secondNanopublication);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().contains(testData.specNanopublication.getUri().toString()));
+        }
+    }
+
+    @Test
+    public void testMigration() {
+        // A store written before the index existed: nanopublication graphs only
+        Txn.executeWrite(dataset, () -> {
+            for (final NanopublicationPart nanopublicationPart : new NanopublicationPart[]{testData.specNanopublication.getHead(), testData.specNanopublication.getAssertion(), testData.specNanopublication.getProvenance(), testData.specNanopublication.getPublicationInfo()}) {
+                dataset.addNamedModel(nanopublicationPart.getName().toString(), nanopublicationPart.getModel());
+            }
+        });
+
+        final Tdb2Twks twks = newTwks();
+        // Reads fall back to querying the nanopublication graphs
+        assertTrue(twks.getNanopublication(testData.specNanopublication.getUri()).get().isIsomorphicWith(testData.specNanopublication));
+        assertEquals(ImmutableList.of(testData.specNanopublication.getUri()), getNanopublicationUris(twks));
+
+        // The first write builds the index from the extant nanopublications
+        twks.putNanopublication(testData.secondNanopublication);
+        assertEquals(2, getNanopublicationUris(twks).size());
+        assertTrue(twks.getNanopublication(testData.specNanopublication.getUri()).get().isIsomorphicWith(testData.specNanopublication));
+        assertEquals(TwksTransaction.DeleteNanopublicationResult.DELETED, twks.deleteNanopublication(testData.specNanopublication.getUri()));
+        assertFalse(twks.getNanopublication(testData.specNanopublication.getUri()).isPresent());
+    }
+
+    @Test
+    public void testPutDelete() throws Exception {
+        final Tdb2Twks twks = newTwks();
+        twks.postNanopublications(ImmutableList.of(testData.specNanopublication, testData.secondNanopublication));
+        assertEquals(2, getNanopublicationUris(twks).size());
+
+        // Overwrite with the same URI and different part graph names
+        final Nanopublication renamedSpecNanopublication = NanopublicationParser.builder().setLang(Lang.TRIG).build().parseString(TestData.SPEC_NANOPUBLICATION_TRIG.replace("http://example.org/pub1#", "http://example.org/pub1v2#")).get(0);
+        assertEquals(testData.specNanopublication.getUri(), renamedSpecNanopublication.getUri());
+        twks.putNanopublication(renamedSpecNanopublication);
+        assertTrue(twks.getNanopublication(testData.specNanopublication.getUri()).get().isIsomorphicWith(renamedSpecNanopublication));
+        assertEquals(2, getNanopublicationUris(twks).size());
+
+        assertEquals(TwksTransaction.DeleteNanopublicationResult.DELETED, twks.deleteNanopublication(testData.specNanopublication.getUri()));
+        assertFalse(twks.getNanopublication(testData.specNanopublication.getUri()).isPresent());
+        assertEquals(ImmutableList.of(testData.secondNanopublication.getUri()), getNanopublicationUris(twks));
+        // The old part graphs are gone, so the original can be put again
+        twks.putNanopublication(testData.specNanopublication);
+        assertTrue(twks.getNanopublication(testData.specNanopublication.getUri()).get().isIsomorphicWith(testData.specNanopublication));
+    }
+}
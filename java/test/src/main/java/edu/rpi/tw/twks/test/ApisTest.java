@@ -15,6 +15,7 @@ import org.apache.jena.query.QueryFactory;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.riot.Lang;
 import org.apache.jena.vocabulary.OWL;
 import org.apache.jena.vocabulary.RDF;
 import org.junit.After;
@@ -203,6 +204,52 @@ public abstract class ApisTest<SystemUnderTestT extends NanopublicationCrudApi>
         assertModelEquals(((GetAssertionsApi) sut).getAssertions(), testData.secondNanopublication.getAssertion().getModel());
     }
 
+    @Test
+    public void testGetAssertionsAfterDeleteBlankNodes() throws Exception {
+        if (!(sut instanceof GetAssertionsApi)) {
+            return;
+        }
+
+        // Same shape of statements, different blank nodes
+        final NanopublicationParser parser = NanopublicationParser.builder().setLang(Lang.TRIG).build();
+        final Nanopublication specNanopublication = parser.parseString(TestData.SPEC_NANOPUBLICATION_TRIG.replace("ex:trastuzumab ex:is-indicated-for ex:breast-cancer .", "ex:trastuzumab ex:is-indicated-for [ a ex:Indication ] .")).get(0);
+        final Nanopublication secondNanopublication = parser.parseString(TestData.SECOND_NANOPUBLICATION_TRIG.replace("ex:aspirin ex:is-indicated-for ex:pain .", "ex:trastuzumab ex:is-indicated-for [ a ex:Indication ] .")).get(0);
+
+        sut.putNanopublication(specNanopublication);
+        sut.putNanopublication(secondNanopublication);
+        assertEquals(4, ((GetAssertionsApi) sut).getAssertions().size());
+
+        // Only the deleted nanopublication's blank node statements are retracted
+        sut.deleteNanopublication(specNanopublication.getUri());
+        assertModelEquals(((GetAssertionsApi) sut).getAssertions(), secondNanopublication.getAssertion().getModel());
+
+        sut.deleteNanopublication(secondNanopublication.getUri());
+        assertTrue(((GetAssertionsApi) sut).getAssertions().isEmpty());
+    }
+
+    @Test
+    public void testGetAssertionsAfterDeleteSharedStatements() {
+        if (!(sut instanceof GetAssertionsApi)) {
+            return;
+        }
+
+        // The ontology nanopublication's assertions are a superset of the spec nanopublication's
+        sut.putNanopublication(testData.specNanopublication);
+        sut.putNanopublication(testData.ontologyNanopublication);
+
+        assertModelEquals(((GetAssertionsApi) sut).getAssertions(), testData.ontologyNanopublication.getAssertion().getModel());
+
+        // Statements the spec nanopublication still asserts should remain
+        sut.deleteNanopublication(testData.ontologyNanopublication.getUri());
+
+        assertModelEquals(((GetAssertionsApi) sut).getAssertions(), testData.specNanopublication.getAssertion().getModel());
+        assertTrue(((GetAssertionsApi) sut).getOntologyAssertions(ImmutableSet.of(testData.ontologyUri)).isEmpty());
+
+        sut.deleteNanopublication(testData.specNanopublication.getUri());
+
+        assertTrue(((GetAssertionsApi) sut).getAssertions().isEmpty());
+    }
+
     @Test
     public void testGetAssertionsEmpty() {
         if (!(sut instanceof GetAssertionsApi)) {
@@ -403,6 +450,24 @@ public abstract class ApisTest<SystemUnderTestT extends NanopublicationCrudApi>
         assertEquals(ImmutableList.of(NanopublicationCrudApi.PutNanopublicationResult.CREATED, NanopublicationCrudApi.PutNanopublicationResult.CREATED), results);
     }
 
+    @Test
+    public void testPostNanopublicationsAssertions() {
+        if (!(sut instanceof GetAssertionsApi)) {
+            return;
+        }
+
+        final ImmutableList<Nanopublication> nanopublications = ImmutableList.of(testData.secondNanopublication, testData.ontologyNanopublication);
+        final Model expectedAssertions = ModelFactory.createDefaultModel();
+        expectedAssertions.add(testData.secondNanopublication.getAssertion().getModel());
+        expectedAssertions.add(testData.ontologyNanopublication.getAssertion().getModel());
+
+        for (int i = 0; i < 2; i++) {
+            sut.postNanopublications(nanopublications);
+            assertModelEquals(((GetAssertionsApi) sut).getAssertions(), expectedAssertions);
+            assertModelEquals(((GetAssertionsApi) sut).getOntologyAssertions(ImmutableSet.of(testData.ontologyUri)), testData.ontologyNanopublication.getAssertion().getModel());
+        }
+    }
+
     @Test
     public void testPostNanopublicationsMixed() {
         sut.putNanopublication(testData.specNanopublication);
@@ -475,4 +540,44 @@ public abstract class ApisTest<SystemUnderTestT extends NanopublicationCrudApi>
 
         assertTrue(actual.isIsomorphicWith(testData.specNanopublication));
     }
+
+    @Test
+    public void testQueryNanopublicationsInternalGraphsHidden() {
+        if (!(sut instanceof NanopublicationQueryApi)) {
+            return;
+        }
+
+        sut.putNanopublication(testData.specNanopublication);
+
+        final ImmutableSet<String> expectedGraphNames = ImmutableSet.of(testData.specNanopublication.getHead().getName().toString(), testData.specNanopublication.getAssertion().getName().toString(), testData.specNanopublication.getProvenance().getName().toString(), testData.specNanopublication.getPublicationInfo().getName().toString());
+        for (final String queryString : new String[]{
+                "SELECT DISTINCT ?G WHERE { GRAPH ?G { ?S ?P ?O } }",
+                "SELECT ?G WHERE { { SELECT DISTINCT ?G WHERE { GRAPH ?G { ?S ?P ?O } } } }"
+        }) {
+            final ImmutableSet.Builder<String> actualGraphNamesBuilder = ImmutableSet.builder();
+            try (final QueryExecution queryExecution = ((NanopublicationQueryApi) sut).queryNanopublications(QueryFactory.create(queryString))) {
+                queryExecution.execSelect().forEachRemaining(querySolution -> actualGraphNamesBuilder.add(querySolution.getResource("G").getURI()));
+            }
+            assertEquals(queryString, expectedGraphNames, actualGraphNamesBuilder.build());
+        }
+
+        try (final QueryExecution queryExecution = ((NanopublicationQueryApi) sut).queryNanopublications(QueryFactory.create("ASK WHERE { GRAPH <urn:twks:nanopublications> { ?S ?P ?O } }"))) {
+            assertFalse(queryExecution.execAsk());
+        }
+
+        for (final String queryString : new String[]{
+                "ASK FROM <urn:twks:nanopublications> WHERE { ?S ?P ?O }",
+                "ASK FROM NAMED <urn:twks:nanopublications> WHERE { GRAPH ?G { ?S ?P ?O } }"
+        }) {
+            try (final QueryExecution queryExecution = ((NanopublicationQueryApi) sut).queryNanopublications(QueryFactory.create(queryString))) {
+                assertFalse(queryString, queryExecution.execAsk());
+            }
+        }
+
+        try (final QueryExecution queryExecution = ((NanopublicationQueryApi) sut).queryNanopublications(QueryFactory.create("SELECT DISTINCT ?G FROM NAMED <urn:twks:nanopublications> FROM NAMED <" + testData.specNanopublication.getAssertion().getName() + "> WHERE { GRAPH ?G { ?S ?P ?O } }"))) {
+            final ImmutableSet.Builder<String> actualGraphNamesBuilder = ImmutableSet.builder();
+            queryExecution.execSelect().forEachRemaining(querySolution -> actualGraphNamesBuilder.add(querySolution.getResource("G").getURI()));
+            assertEquals(ImmutableSet.of(testData.specNanopublication.getAssertion().getName().toString()), actualGraphNamesBuilder.build());
+        }
+    }
 }
@@ -1,10 +1,21 @@
 package edu.rpi.tw.twks.test;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import edu.rpi.tw.twks.api.Twks;
 import edu.rpi.tw.twks.api.TwksTransaction;
+import edu.rpi.tw.twks.nanopub.Nanopublication;
+import edu.rpi.tw.twks.uri.Uri;
 import org.apache.jena.query.ReadWrite;
+import org.junit.Test;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public abstract class TwksTransactionTest extends ApisTest<TwksTransaction> {
     @Override
@@ -20,4 +31,37 @@ public abstract class TwksTransactionTest extends ApisTest<TwksTransaction> {
     protected final TwksTransaction openSystemUnderTest() throws Exception {
         return newTwks(getTempDirPath().resolve("dump")).beginTransaction(ReadWrite.WRITE);
     }
+
+    @Test
+    public void testGetNanopublicationUris() {
+        final ImmutableList<Nanopublication> nanopublications = ImmutableList.of(getTestData().specNanopublication, getTestData().secondNanopublication, getTestData().ontologyNanopublication, getTestData().secondOntologyNanopublication);
+        getSystemUnderTest().postNanopublications(nanopublications);
+
+        final ImmutableList<Uri> allNanopublicationUris = getSystemUnderTest().getNanopublicationUris(Optional.empty(), 10);
+        assertEquals(nanopublications.stream().map(Nanopublication::getUri).collect(ImmutableSet.toImmutableSet()), ImmutableSet.copyOf(allNanopublicationUris));
+        assertEquals(nanopublications.size(), allNanopublicationUris.size());
+
+        // Page through them one at a time
+        final List<Uri> pagedNanopublicationUris = new ArrayList<>();
+        Optional<Uri> afterNanopublicationUri = Optional.empty();
+        while (true) {
+            final ImmutableList<Uri> page = getSystemUnderTest().getNanopublicationUris(afterNanopublicationUri, 1);
+            if (page.isEmpty()) {
+                break;
+            }
+            assertEquals(1, page.size());
+            pagedNanopublicationUris.add(page.get(0));
+            afterNanopublicationUri = Optional.of(page.get(0));
+        }
+        assertEquals(allNanopublicationUris, pagedNanopublicationUris);
+
+        // Resume after a nanopublication that has since been deleted
+        getSystemUnderTest().deleteNanopublication(allNanopublicationUris.get(1));
+        assertEquals(allNanopublicationUris.subList(2, allNanopublicationUris.size()), getSystemUnderTest().getNanopublicationUris(Optional.of(allNanopublicationUris.get(1)), 10));
+    }
+
+    @Test
+    public void testGetNanopublicationUrisEmpty() {
+        assertTrue(getSystemUnderTest().getNanopublicationUris(Optional.empty(), 10).isEmpty());
+    }
 }